@@ -0,0 +1,111 @@
+package com.zhumj.batteryview;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * @Description : 电池状态来源的基础实现，负责监听管理和分发，线程安全
+ * 第一个监听者加入时回调 onActive，最后一个监听者离开时回调 onInactive，子类在这里开始、停止采集。
+ * 状态用 getAndSet 原子替换，每次真正的变化只分发一次；分发不持有锁，分发完之后如果状态又变了就补发最新的，
+ * 多个线程同时 publish 时，监听者最后收到的总是当前状态。
+ */
+public abstract class BaseBatteryStateSource implements BatteryStateSource {
+
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+    //最近一次的状态
+    private final AtomicReference<BatteryState> state = new AtomicReference<>();
+
+    @Override
+    public void addListener(@NonNull Listener listener) {
+        boolean active;
+        synchronized (listeners) {
+            if (!listeners.addIfAbsent(listener)) {
+                return;
+            }
+            active = listeners.size() == 1;
+            if (active) {
+                onActive();
+            }
+        }
+        BatteryState current = state.get();
+        while (current != null) {
+            listener.onBatteryStateChanged(current);
+            // 回调期间有新的状态并且先送达了，再补发一次，保证最后收到的是最新的
+            BatteryState latest = state.get();
+            current = current.equals(latest) ? null : latest;
+        }
+    }
+
+    @Override
+    public void removeListener(@NonNull Listener listener) {
+        synchronized (listeners) {
+            if (listeners.remove(listener) && listeners.isEmpty()) {
+                onInactive();
+            }
+        }
+    }
+
+    @Nullable
+    @Override
+    public BatteryState getState() {
+        return state.get();
+    }
+
+    /**
+     * 是否有监听者
+     */
+    public boolean isActive() {
+        return !listeners.isEmpty();
+    }
+
+    /**
+     * 保存并分发新的状态，可以在任意线程调用；和上一次相同时不分发
+     */
+    @AnyThread
+    protected void publish(@NonNull BatteryState newState) {
+        publishIfChanged(newState);
+    }
+
+    /**
+     * 和 publish 相同，返回这次是否分发了，供需要统计分发次数的子类使用
+     */
+    @AnyThread
+    protected final boolean publishIfChanged(@NonNull BatteryState newState) {
+        if (newState.equals(state.getAndSet(newState))) {
+            return false;
+        }
+        BatteryState current = newState;
+        while (current != null) {
+            for (Listener listener : listeners) {
+                listener.onBatteryStateChanged(current);
+            }
+            // 另一个线程的新状态可能比这次先送达，被这次覆盖了，补发最新的
+            BatteryState latest = state.get();
+            current = current.equals(latest) ? null : latest;
+        }
+        return true;
+    }
+
+    /**
+     * 只保存状态，不分发，用于在 onActive 中设置初始状态
+     */
+    protected void setState(@Nullable BatteryState state) {
+        this.state.set(state);
+    }
+
+    /**
+     * 第一个监听者加入
+     */
+    protected void onActive() {
+    }
+
+    /**
+     * 最后一个监听者离开
+     */
+    protected void onInactive() {
+    }
+}
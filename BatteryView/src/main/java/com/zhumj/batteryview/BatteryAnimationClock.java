@@ -0,0 +1,106 @@
+package com.zhumj.batteryview;
+
+import android.view.Choreographer;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.ArrayList;
+
+/**
+ * @Description : 所有 BatteryView 共享的动画时钟
+ * 基于 Choreographer，同一个 vsync 里依次通知所有监听者，所有充电中的 View 在同一帧步进；
+ * 没有监听者时不再请求帧回调。只能在主线程使用。
+ */
+final class BatteryAnimationClock implements Choreographer.FrameCallback {
+
+    /**
+     * 步进动画间隔，单位毫秒
+     */
+    static final long STEP_INTERVAL = 1000;
+
+    interface OnTickListener {
+        void onTick(long frameTimeNanos);
+    }
+
+    private static BatteryAnimationClock instance;
+
+    private final ArrayList<OnTickListener> listeners = new ArrayList<>();
+    //分发时使用的副本，避免回调里增删监听者导致异常，只在容量不够时扩容
+    private OnTickListener[] dispatchBuffer = new OnTickListener[8];
+    private boolean isScheduled;
+
+    private BatteryAnimationClock() {
+    }
+
+    @MainThread
+    static BatteryAnimationClock getInstance() {
+        if (instance == null) {
+            instance = new BatteryAnimationClock();
+        }
+        return instance;
+    }
+
+    /**
+     * 添加监听，下一次时钟步进时开始回调
+     */
+    @MainThread
+    void add(OnTickListener listener) {
+        if (listener == null || listeners.contains(listener)) {
+            return;
+        }
+        listeners.add(listener);
+        if (!isScheduled) {
+            isScheduled = true;
+            Choreographer.getInstance().postFrameCallbackDelayed(this, STEP_INTERVAL);
+        }
+    }
+
+    /**
+     * 移除监听，没有监听者时停止请求帧回调
+     */
+    @MainThread
+    void remove(OnTickListener listener) {
+        if (listeners.remove(listener) && listeners.isEmpty() && isScheduled) {
+            isScheduled = false;
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+    }
+
+    /**
+     * 获取当前的监听者数量
+     */
+    @VisibleForTesting
+    @MainThread
+    int getListenerCount() {
+        return listeners.size();
+    }
+
+    /**
+     * 获取是否已经请求了下一次帧回调
+     */
+    @VisibleForTesting
+    @MainThread
+    boolean isScheduled() {
+        return isScheduled;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        isScheduled = false;
+        int size = listeners.size();
+        if (dispatchBuffer.length < size) {
+            dispatchBuffer = new OnTickListener[Math.max(size, dispatchBuffer.length * 2)];
+        }
+        OnTickListener[] buffer = listeners.toArray(dispatchBuffer);
+        for (int i = 0; i < size; i++) {
+            OnTickListener listener = buffer[i];
+            buffer[i] = null;
+            listener.onTick(frameTimeNanos);
+        }
+        if (!listeners.isEmpty() && !isScheduled) {
+            isScheduled = true;
+            Choreographer.getInstance().postFrameCallbackDelayed(this, STEP_INTERVAL);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.zhumj.batteryview;
+
+import java.util.Arrays;
+
+/**
+ * @Description : 位图缓存的键，由尺寸、方向和所有影响外观的样式属性组成，float 属性按 Float.floatToIntBits 保存
+ */
+final class BatteryCacheKey {
+
+    private final int[] values;
+    private final int hashCode;
+
+    BatteryCacheKey(int... values) {
+        this.values = values;
+        this.hashCode = Arrays.hashCode(values);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof BatteryCacheKey)) return false;
+        BatteryCacheKey key = (BatteryCacheKey) o;
+        return hashCode == key.hashCode && Arrays.equals(values, key.values);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+}
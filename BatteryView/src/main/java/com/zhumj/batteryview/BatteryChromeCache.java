@@ -0,0 +1,86 @@
+package com.zhumj.batteryview;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+
+import androidx.annotation.VisibleForTesting;
+
+/**
+ * @Description : 电池外框和电池头的位图缓存
+ * 外框和电池头只在尺寸、颜色或方向变化时才需要重画，缓存后每帧只画一次位图，电量部分照常绘制
+ */
+final class BatteryChromeCache {
+
+    private final Canvas cacheCanvas = new Canvas();
+    private Bitmap bitmap;
+    private boolean isValid;
+
+    //缓存对应的参数
+    private int width;
+    private int height;
+    private int orientation;
+    private int borderColor;
+    private int headColor;
+    //重新渲染的次数
+    private int renderCount;
+
+    /**
+     * 画外框和电池头，缓存失效时先重新渲染到位图
+     */
+    void draw(Canvas canvas, BatteryGeometry geometry, int width, int height, int orientation,
+              float borderRadius, Paint borderPaint, Paint headPaint) {
+        int borderColor = borderPaint.getColor();
+        int headColor = headPaint.getColor();
+        if (!isValid || bitmap == null
+                || this.width != width || this.height != height || this.orientation != orientation
+                || this.borderColor != borderColor || this.headColor != headColor) {
+            if (bitmap == null || bitmap.getWidth() != width || bitmap.getHeight() != height) {
+                release();
+                bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+                cacheCanvas.setBitmap(bitmap);
+            } else {
+                bitmap.eraseColor(Color.TRANSPARENT);
+            }
+            cacheCanvas.drawRoundRect(geometry.borderRectF, borderRadius, borderRadius, borderPaint);
+            cacheCanvas.drawRoundRect(geometry.headRectF, geometry.headRadius, geometry.headRadius, headPaint);
+
+            this.width = width;
+            this.height = height;
+            this.orientation = orientation;
+            this.borderColor = borderColor;
+            this.headColor = headColor;
+            isValid = true;
+            renderCount++;
+        }
+        canvas.drawBitmap(bitmap, 0, 0, null);
+    }
+
+    /**
+     * 获取重新渲染位图的次数
+     */
+    @VisibleForTesting
+    int getRenderCount() {
+        return renderCount;
+    }
+
+    /**
+     * 标记缓存失效，下次绘制时重新渲染
+     */
+    void invalidate() {
+        isValid = false;
+    }
+
+    /**
+     * 释放位图
+     */
+    void release() {
+        isValid = false;
+        if (bitmap != null) {
+            cacheCanvas.setBitmap(null);
+            bitmap.recycle();
+            bitmap = null;
+        }
+    }
+}
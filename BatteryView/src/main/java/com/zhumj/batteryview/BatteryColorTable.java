@@ -0,0 +1,77 @@
+package com.zhumj.batteryview;
+
+import androidx.annotation.ColorInt;
+
+/**
+ * @Description : 按电量插值的颜色查找表
+ * 颜色节点均匀分布在 0~maxPower 上，每个显示等级对应一个预先混合好的颜色；连续显示时按 1% 分桶。
+ * 查找表只在样式创建时计算一次，绘制时只做一次数组访问。
+ */
+final class BatteryColorTable {
+
+    /**
+     * 连续显示时的分桶数量
+     */
+    private static final int CONTINUOUS_BUCKETS = 100;
+
+    private final BatteryLevels levels;
+    private final int[] colors;
+
+    BatteryColorTable(BatteryLevels levels, @ColorInt int[] stops) {
+        this.levels = levels;
+        int count = levels.getValueCount() > 0 ? levels.getValueCount() : CONTINUOUS_BUCKETS + 1;
+        colors = new int[count];
+        for (int i = 0; i < count; i++) {
+            float fraction;
+            if (levels.getValueCount() > 0) {
+                fraction = levels.maxPower == 0 ? 1f : (float) levels.valueAt(i) / levels.maxPower;
+            } else {
+                fraction = (float) i / CONTINUOUS_BUCKETS;
+            }
+            colors[i] = colorAtFraction(stops, fraction);
+        }
+    }
+
+    /**
+     * 电量对应的颜色，电量应当是分级后的值
+     */
+    @ColorInt
+    int colorAt(int power) {
+        if (levels.getValueCount() > 0) {
+            int index = levels.indexOf(power);
+            if (index >= 0) {
+                return colors[index];
+            }
+        }
+        if (power <= 0 || levels.maxPower == 0) {
+            return colors[power <= 0 ? 0 : colors.length - 1];
+        }
+        int index = (int) ((long) Math.min(power, levels.maxPower) * (colors.length - 1) / levels.maxPower);
+        return colors[index];
+    }
+
+    /**
+     * 多个颜色节点均匀分布时 fraction 处的颜色
+     */
+    @ColorInt
+    static int colorAtFraction(@ColorInt int[] stops, float fraction) {
+        if (stops.length == 1) {
+            return stops[0];
+        }
+        float position = Math.max(0f, Math.min(1f, fraction)) * (stops.length - 1);
+        int index = Math.min((int) position, stops.length - 2);
+        return blendColor(stops[index], stops[index + 1], position - index);
+    }
+
+    /**
+     * 按 ARGB 各通道插值颜色
+     */
+    @ColorInt
+    static int blendColor(@ColorInt int from, @ColorInt int to, float fraction) {
+        int a = (int) (((from >>> 24) & 0xff) + (((to >>> 24) & 0xff) - ((from >>> 24) & 0xff)) * fraction + 0.5f);
+        int r = (int) (((from >> 16) & 0xff) + (((to >> 16) & 0xff) - ((from >> 16) & 0xff)) * fraction + 0.5f);
+        int g = (int) (((from >> 8) & 0xff) + (((to >> 8) & 0xff) - ((from >> 8) & 0xff)) * fraction + 0.5f);
+        int b = (int) ((from & 0xff) + ((to & 0xff) - (from & 0xff)) * fraction + 0.5f);
+        return (a << 24) | (r << 16) | (g << 8) | b;
+    }
+}
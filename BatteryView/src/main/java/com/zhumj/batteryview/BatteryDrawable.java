@@ -0,0 +1,1339 @@
+package com.zhumj.batteryview;
+
+import android.content.ComponentCallbacks2;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Shader;
+import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
+import android.os.SystemClock;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * @Description : 电池电量 Drawable，不依赖 View，可用于 ImageView、TextView 的 CompoundDrawable、MenuItem 图标等
+ * 支持 setLevel，level 0~10000 对应电量 0~maxPower
+ */
+public class BatteryDrawable extends Drawable {
+
+    /**
+     * Drawable level 最大值
+     */
+    public static final int MAX_LEVEL = 10000;
+
+    //样式，多个 Drawable 可以共用同一个样式；修改属性时复制一份新的样式
+    private BatteryStyle style = BatteryStyle.DEFAULT;
+
+    private int alpha = 255;
+    private ColorFilter colorFilter;
+    //设置了透明度或颜色过滤时使用的画笔，按需创建：外框、电池头、内部、闪电、历史曲线
+    private Paint[] tintPaints;
+    //FILL_LEVEL 模式的内部画笔，只修改颜色
+    private Paint levelPaint;
+    //FILL_GRADIENT 模式的内部画笔和 Shader，Shader 只在尺寸或样式变化后重新查找
+    private Paint gradientPaint;
+    private Shader fillShader;
+    //百分比文字的画笔和预先测量的结果，尺寸或样式变化后重新确定字号
+    private Paint labelPaint;
+    private BatteryLabelMetrics labelMetrics;
+    //代替百分比显示的文字，例如预计剩余时间，null 时按 showLabel 显示百分比；字号和宽度在文字、尺寸或样式变化后重新测量
+    private String labelText;
+    private Paint labelTextPaint;
+    private float labelTextWidth = -1;
+    private float labelTextBaseline;
+    //电量历史曲线，HISTORY_INSIDE 模式下按内部区域的宽度创建，每个像素一个采样
+    private BatterySparkline sparkline;
+    //按曲线的采样间隔定时记录一次当前电量，让曲线随时间向左移动
+    private boolean isHistoryScheduled;
+    private final Runnable historyTask = this::onHistoryTick;
+
+    //是否处于充电状态
+    private boolean isCharging;
+    //电量
+    private int power = style.maxPower;
+    //最后一次设置的真实电量，步进动画停止时恢复
+    private int realPower = power;
+    //绘制质量等级，见 BatteryQualityMonitor
+    private int quality = BatteryQualityMonitor.QUALITY_FULL;
+    //降低质量时步进动画隔一次时钟才前进
+    private int skippedTicks;
+
+    //几何信息缓存
+    private final BatteryGeometry geometry = new BatteryGeometry();
+    private boolean isGeometryDirty = true;
+    //局部刷新区域
+    private final RectF dirtyRectF = new RectF();
+    private final Rect dirtyBounds = new Rect();
+    private boolean isDirtyRegion;
+
+    //外框和电池头的位图缓存
+    private BatteryChromeCache chromeCache;
+
+    //精灵图集
+    private BatterySpriteAtlas spriteAtlas;
+    private final Paint atlasPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+    //步进动画是否已加入动画时钟
+    private boolean isAnimating;
+    //上一次步进之后是否绘制过，用于统计不在屏幕上时的步进
+    private boolean isDrawnSinceTick;
+
+    //单独设置的统计，null 时使用全局统计
+    private volatile BatteryMetrics metrics;
+
+    //过渡动画：内部区域的长度和颜色从开始时显示的值插值到当前电量
+    private boolean isTransitioning;
+    private long transitionStart;
+    private float transitionFromPower;
+    private @ColorInt int transitionFromColor;
+    private float displayPower;
+    private @ColorInt int displayColor;
+    private final Runnable transitionTask = this::stepTransition;
+
+    /**
+     * 充电步进动画，由共享的动画时钟驱动
+     */
+    private final BatteryAnimationClock.OnTickListener chargingTask = frameTimeNanos -> {
+        if (getCallback() == null) {
+            // 已经没有宿主，停止动画
+            isAnimating = false;
+            BatteryAnimationClock.getInstance().remove(this.chargingTask);
+            return;
+        }
+        if (quality == BatteryQualityMonitor.QUALITY_REDUCED && (++skippedTicks & 1) != 0) {
+            return;
+        }
+        BatteryMetrics metrics = getActiveMetrics();
+        if (metrics != null) {
+            metrics.recordAnimationTick(!isDrawnSinceTick);
+        }
+        isDrawnSinceTick = false;
+        int oldPower = power;
+        power = nextStepPower(power);
+        // 满了之后直接回到第一步，不做过渡
+        onPowerChanged(oldPower, power > oldPower);
+    };
+
+    /**
+     * 步进动画的下一个电量：每次前进 1/5，满了之后从第一步重新开始
+     */
+    int nextStepPower(int p) {
+        return style.levels.nextStep(p);
+    }
+
+    public BatteryDrawable() {
+    }
+
+    public BatteryDrawable(@NonNull BatteryStyle style) {
+        this.style = style;
+        this.power = style.maxPower;
+        this.realPower = power;
+    }
+
+    @Override
+    public void draw(@NonNull Canvas canvas) {
+        isDrawnSinceTick = true;
+        BatteryMetrics metrics = getActiveMetrics();
+        if (metrics == null) {
+            drawFrame(canvas);
+            return;
+        }
+        long start = System.nanoTime();
+        drawFrame(canvas);
+        metrics.recordDraw(System.nanoTime() - start);
+    }
+
+    private void drawFrame(@NonNull Canvas canvas) {
+        Rect bounds = getBounds();
+        if (bounds.isEmpty()) {
+            return;
+        }
+        if (isGeometryDirty) {
+            updateGeometry();
+        }
+
+        BatteryStyle style = this.style;
+        if (style.spriteAtlas && alpha == 255 && colorFilter == null && !isTransitioning) {
+            BatteryLevels levels = style.levels;
+            int bucket = levels.getValueCount() <= BatterySpriteAtlas.MAX_BUCKET_COUNT ? levels.indexOf(power) : -1;
+            // 尺寸太大、图集超过缓存大小时不创建图集，按矢量方式绘制
+            if (bucket >= 0 && spriteAtlas == null
+                    && BatterySpriteAtlas.fitsCache(levels.getValueCount(), bounds.width(), bounds.height())) {
+                spriteAtlas = BatterySpriteAtlas.obtain(getAtlasKey(), this, levels.getValueCount(), bounds.width(), bounds.height());
+            }
+            if (bucket >= 0 && spriteAtlas != null) {
+                int state = BatterySpriteAtlas.STATE_NORMAL;
+                if (isCharging) {
+                    state = style.chargingAnimMode == BatteryView.LIGHTNING ? BatterySpriteAtlas.STATE_LIGHTNING : BatterySpriteAtlas.STATE_STEP;
+                }
+                spriteAtlas.draw(canvas, bucket, state, bounds, atlasPaint);
+                if (style.showLabel || labelText != null || sparkline != null) {
+                    int saveCount = canvas.save();
+                    canvas.translate(bounds.left, bounds.top);
+                    drawOverlay(canvas);
+                    canvas.restoreToCount(saveCount);
+                }
+                return;
+            }
+        }
+
+        int saveCount = canvas.save();
+        canvas.translate(bounds.left, bounds.top);
+        drawBattery(canvas, power, isCharging, style.chargingAnimMode, style.chromeCache, isTransitioning);
+        drawOverlay(canvas);
+        canvas.restoreToCount(saveCount);
+    }
+
+    /**
+     * 画在电池内部、不属于电池本身的内容：历史曲线和百分比（或代替它的）文字
+     */
+    private void drawOverlay(Canvas canvas) {
+        if (sparkline != null) {
+            Paint paint = style.historyPaint;
+            if (alpha != 255 || colorFilter != null || quality != BatteryQualityMonitor.QUALITY_FULL) {
+                paint = tint(4, paint);
+            }
+            RectF inside = geometry.insideRectF;
+            sparkline.draw(canvas, inside.left, inside.top, paint);
+        }
+        if (labelText != null) {
+            drawLabelText(canvas);
+        } else if (style.showLabel) {
+            drawLabel(canvas, realPower, isCharging, style.chargingAnimMode);
+        }
+    }
+
+    /**
+     * 以 (0, 0) 为原点画电池，按显示状态从样式中选择配置好的画笔
+     */
+    private void drawBattery(Canvas canvas, int power, boolean isCharging, int chargingAnimMode, boolean useChromeCache,
+                             boolean transition) {
+        BatteryStyle style = this.style;
+        Paint borderPaint;
+        Paint headPaint;
+        if (isCharging) {
+            borderPaint = style.chargingBorderPaint;
+            headPaint = style.chargingFillPaint;
+        } else if (power <= style.maxPower/10) {
+            borderPaint = style.lowBorderPaint;
+            headPaint = style.lowFillPaint;
+        } else {
+            borderPaint = style.borderPaint;
+            headPaint = style.headPaint;
+        }
+        Paint insidePaint = fillPaint(power, isCharging, chargingAnimMode);
+        float fillPower = power;
+        if (transition) {
+            // 过渡中内部区域使用插值后的长度和颜色
+            fillPower = displayPower;
+            Paint paint = tintPaint(2);
+            paint.set(insidePaint);
+            paint.setColor(displayColor);
+            insidePaint = paint;
+        }
+        Paint lightningPaint = style.chargingFillPaint;
+        if (alpha != 255 || colorFilter != null || quality != BatteryQualityMonitor.QUALITY_FULL) {
+            borderPaint = tint(0, borderPaint);
+            headPaint = tint(1, headPaint);
+            insidePaint = tint(2, insidePaint);
+            lightningPaint = tint(3, lightningPaint);
+        }
+
+        if (useChromeCache) {
+            // 外框和头部从缓存位图中画
+            if (chromeCache == null) {
+                chromeCache = new BatteryChromeCache();
+            }
+            Rect bounds = getBounds();
+            chromeCache.draw(canvas, geometry, bounds.width(), bounds.height(), style.orientation, style.borderRadius, borderPaint, headPaint);
+        } else {
+            // 画外框
+            canvas.drawRoundRect(geometry.borderRectF, style.borderRadius, style.borderRadius, borderPaint);
+            // 画头部
+            canvas.drawRoundRect(geometry.headRectF, geometry.headRadius, geometry.headRadius, headPaint);
+        }
+        // 画内部
+        geometry.updateFill(fillPower, style.maxPower, style.insideRadius);
+        canvas.drawRoundRect(geometry.fillRectF, geometry.fillRadius, geometry.fillRadius, insidePaint);
+
+        if (isCharging && chargingAnimMode == BatteryView.LIGHTNING) {
+            canvas.drawPath(geometry.lightningPath, lightningPaint);
+        }
+    }
+
+    /**
+     * 样式中的画笔是共享的，不能修改；需要透明度、颜色过滤或关闭抗锯齿时复制到自己的画笔上
+     */
+    private Paint tint(int slot, Paint paint) {
+        Paint tinted = tintPaint(slot);
+        tinted.set(paint);
+        tinted.setAlpha(paint.getAlpha() * alpha / 255);
+        tinted.setColorFilter(colorFilter);
+        if (quality != BatteryQualityMonitor.QUALITY_FULL) {
+            tinted.setAntiAlias(false);
+        }
+        return tinted;
+    }
+
+    private Paint tintPaint(int slot) {
+        if (tintPaints == null) {
+            tintPaints = new Paint[5];
+            for (int i = 0; i < tintPaints.length; i++) {
+                tintPaints[i] = new Paint();
+            }
+        }
+        return tintPaints[slot];
+    }
+
+    /**
+     * 内部区域在各个显示状态下的画笔
+     */
+    private Paint fillPaint(int power, boolean isCharging, int chargingAnimMode) {
+        BatteryStyle style = this.style;
+        if (isCharging) {
+            return chargingAnimMode == BatteryView.LIGHTNING ? style.chargingDimFillPaint : style.chargingFillPaint;
+        }
+        switch (style.fillMode) {
+            case BatteryView.FILL_LEVEL:
+                // 颜色从查找表中取，不在绘制时混合
+                if (levelPaint == null) {
+                    levelPaint = new Paint(style.insidePaint);
+                }
+                levelPaint.setColor(style.colorTable.colorAt(power));
+                return levelPaint;
+            case BatteryView.FILL_GRADIENT:
+                if (gradientPaint == null) {
+                    gradientPaint = new Paint(style.insidePaint);
+                }
+                if (fillShader == null) {
+                    fillShader = BatteryShaderCache.obtain(geometry.insideRectF, style.orientation, style.fillStops);
+                    gradientPaint.setShader(fillShader);
+                }
+                return gradientPaint;
+            default:
+                return power <= style.maxPower/10 ? style.lowFillPaint : style.insidePaint;
+        }
+    }
+
+    /**
+     * 电量变化后刷新：可以过渡时从当前显示的位置动画到新电量，否则直接局部刷新
+     */
+    private void onPowerChanged(int oldPower, boolean animate) {
+        if (oldPower == power) {
+            return;
+        }
+        if (animate && canTransition()) {
+            startTransition(isTransitioning ? displayPower : oldPower, displayedFillColor(oldPower, isCharging));
+            invalidateSelf();
+        } else {
+            endTransition();
+            invalidatePower(oldPower);
+        }
+    }
+
+    /**
+     * 设置了过渡时长、可见并且有宿主时才使用过渡动画，最低绘制质量时不使用
+     */
+    private boolean canTransition() {
+        return style.transitionDuration > 0 && isVisible() && getCallback() != null && !getBounds().isEmpty()
+                && quality != BatteryQualityMonitor.QUALITY_MINIMAL;
+    }
+
+    /**
+     * 当前显示的内部颜色
+     */
+    private int displayedFillColor(int power, boolean isCharging) {
+        return isTransitioning ? displayColor : fillPaint(power, isCharging, style.chargingAnimMode).getColor();
+    }
+
+    /**
+     * 从指定的长度和颜色开始过渡；已经在过渡中时沿用已经安排的下一帧
+     */
+    private void startTransition(float fromPower, @ColorInt int fromColor) {
+        transitionFromPower = fromPower;
+        transitionFromColor = fromColor;
+        displayPower = fromPower;
+        displayColor = fromColor;
+        transitionStart = SystemClock.uptimeMillis();
+        if (!isTransitioning) {
+            isTransitioning = true;
+            scheduleSelf(transitionTask, transitionStart + getFrameInterval());
+        }
+    }
+
+    /**
+     * 过渡动画的一帧，到达目标后立即停止
+     */
+    private void stepTransition() {
+        if (!isTransitioning) {
+            return;
+        }
+        long now = SystemClock.uptimeMillis();
+        float t = Math.min(1f, (float) (now - transitionStart) / style.transitionDuration);
+        // 减速插值
+        float fraction = 1 - (1 - t) * (1 - t);
+        displayPower = transitionFromPower + (power - transitionFromPower) * fraction;
+        displayColor = BatteryColorTable.blendColor(transitionFromColor, fillPaint(power, isCharging, style.chargingAnimMode).getColor(), fraction);
+        if (t >= 1f) {
+            isTransitioning = false;
+        } else {
+            scheduleSelf(transitionTask, now + getFrameInterval());
+        }
+        invalidateSelf();
+    }
+
+    private void endTransition() {
+        if (isTransitioning) {
+            isTransitioning = false;
+            unscheduleSelf(transitionTask);
+        }
+    }
+
+    /**
+     * 过渡动画的帧间隔，降低绘制质量时帧率减半
+     */
+    private long getFrameInterval() {
+        int fps = style.transitionMaxFps;
+        if (quality == BatteryQualityMonitor.QUALITY_REDUCED) {
+            fps = Math.max(1, fps / 2);
+        }
+        return Math.max(1, 1000 / fps);
+    }
+
+    /**
+     * 渲染图集中的一个格子
+     */
+    void drawCell(Canvas canvas, int bucket, int state) {
+        drawBattery(canvas, style.levels.valueAt(bucket), state != BatterySpriteAtlas.STATE_NORMAL,
+                state == BatterySpriteAtlas.STATE_STEP ? BatteryView.STEP : BatteryView.LIGHTNING, false, false);
+    }
+
+    /**
+     * 以 (0, 0) 为原点画出指定状态的电池，不改变当前的电量和充电状态，也不使用任何位图缓存
+     */
+    void drawStatic(Canvas canvas, int power, boolean isCharging, int chargingAnimMode) {
+        if (getBounds().isEmpty()) {
+            return;
+        }
+        if (isGeometryDirty) {
+            updateGeometry();
+        }
+        int shownPower = verifyPower(power);
+        drawBattery(canvas, shownPower, isCharging, chargingAnimMode, false, false);
+        if (style.showLabel) {
+            drawLabel(canvas, shownPower, isCharging, chargingAnimMode);
+        }
+    }
+
+    /**
+     * 在内部区域中心画电量百分比，闪电模式充电时不画，避免和闪电重叠
+     */
+    private void drawLabel(Canvas canvas, int power, boolean isCharging, int chargingAnimMode) {
+        BatteryStyle style = this.style;
+        if (isCharging && chargingAnimMode == BatteryView.LIGHTNING) {
+            return;
+        }
+        if (labelMetrics == null) {
+            updateLabel();
+        }
+        int percent = style.maxPower > 0 ? (int) ((long) Math.max(0, Math.min(power, style.maxPower)) * 100 / style.maxPower) : 0;
+        Paint paint = applyLabelColor(labelPaint);
+        RectF inside = geometry.insideRectF;
+        canvas.drawText(BatteryLabelMetrics.textAt(percent),
+                inside.centerX() - labelMetrics.widthAt(percent) / 2,
+                inside.centerY() + labelMetrics.baselineOffset,
+                paint);
+    }
+
+    /**
+     * 在内部区域中心画 labelText，和百分比一样闪电模式充电时不画
+     */
+    private void drawLabelText(Canvas canvas) {
+        if (isCharging && style.chargingAnimMode == BatteryView.LIGHTNING) {
+            return;
+        }
+        if (labelTextWidth < 0) {
+            updateLabelText();
+        }
+        Paint paint = applyLabelColor(labelTextPaint);
+        RectF inside = geometry.insideRectF;
+        canvas.drawText(labelText, inside.centerX() - labelTextWidth / 2, inside.centerY() + labelTextBaseline, paint);
+    }
+
+    private Paint applyLabelColor(Paint paint) {
+        BatteryStyle style = this.style;
+        paint.setColor(style.labelColor);
+        paint.setAlpha(Color.alpha(style.labelColor) * alpha / 255);
+        paint.setColorFilter(colorFilter);
+        paint.setAntiAlias(quality == BatteryQualityMonitor.QUALITY_FULL);
+        return paint;
+    }
+
+    /**
+     * 满电时的内部区域，相对 bounds 左上角
+     */
+    @VisibleForTesting
+    RectF getInsideRect() {
+        if (isGeometryDirty) {
+            updateGeometry();
+        }
+        return geometry.insideRectF;
+    }
+
+    /**
+     * 确定字号：没有设置时按内部区域的短边计算，最宽的 "100%" 或文字高度放不下时按比例缩小，然后取预先测量的结果
+     */
+    private void updateLabel() {
+        BatteryStyle style = this.style;
+        if (labelPaint == null) {
+            labelPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        }
+        RectF inside = geometry.insideRectF;
+        float maxWidth = inside.width();
+        float maxHeight = inside.height();
+        float textSize = style.labelTextSize > 0 ? style.labelTextSize : Math.min(maxWidth, maxHeight) / 2;
+        labelPaint.setTypeface(style.labelTypeface);
+        labelPaint.setTextSize(textSize);
+        float widest = BatteryLabelMetrics.measureWidest(labelPaint);
+        float height = labelPaint.descent() - labelPaint.ascent();
+        float scale = 1;
+        if (widest > maxWidth && widest > 0) {
+            scale = maxWidth / widest;
+        }
+        if (height > maxHeight && height > 0) {
+            scale = Math.min(scale, maxHeight / height);
+        }
+        if (scale < 1) {
+            labelPaint.setTextSize(Math.max(1, (float) Math.floor(textSize * scale)));
+        }
+        labelMetrics = BatteryLabelMetrics.obtain(labelPaint);
+    }
+
+    /**
+     * 和 updateLabel 相同的规则确定 labelText 的字号，文字变化时才重新测量
+     */
+    private void updateLabelText() {
+        BatteryStyle style = this.style;
+        if (labelTextPaint == null) {
+            labelTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        }
+        Paint paint = labelTextPaint;
+        RectF inside = geometry.insideRectF;
+        float maxWidth = inside.width();
+        float maxHeight = inside.height();
+        float textSize = style.labelTextSize > 0 ? style.labelTextSize : Math.min(maxWidth, maxHeight) / 2;
+        paint.setTypeface(style.labelTypeface);
+        paint.setTextSize(textSize);
+        float width = paint.measureText(labelText);
+        float height = paint.descent() - paint.ascent();
+        float scale = 1;
+        if (width > maxWidth && width > 0) {
+            scale = maxWidth / width;
+        }
+        if (height > maxHeight && height > 0) {
+            scale = Math.min(scale, maxHeight / height);
+        }
+        if (scale < 1) {
+            paint.setTextSize(Math.max(1, (float) Math.floor(textSize * scale)));
+            width = paint.measureText(labelText);
+        }
+        labelTextWidth = width;
+        labelTextBaseline = -(paint.ascent() + paint.descent()) / 2;
+    }
+
+    /**
+     * 图集的键：降低质量时关闭了抗锯齿，画出的图集不能和完整质量的共用
+     */
+    private BatteryCacheKey getAtlasKey() {
+        Rect bounds = getBounds();
+        return getCacheKey(bounds.width(), bounds.height(), quality);
+    }
+
+    /**
+     * 位图缓存的键：方向、最大电量、所有样式属性，再加上调用方给出的其它值
+     */
+    BatteryCacheKey getCacheKey(int... extras) {
+        BatteryStyle s = style;
+        int[] values = new int[]{
+                s.orientation, s.maxPower, s.levels.levels,
+                Float.floatToIntBits(s.borderWidth), Float.floatToIntBits(s.borderRadius), s.borderColor,
+                Float.floatToIntBits(s.headWidth), Float.floatToIntBits(s.headHeight), Float.floatToIntBits(s.headPadding), s.headColor,
+                Float.floatToIntBits(s.insidePadding), Float.floatToIntBits(s.insideRadius),
+                s.lowPowerColor, s.highPowerColor, s.chargingColor, s.fillMode,
+                s.showLabel ? 1 : 0, Float.floatToIntBits(s.labelTextSize), s.labelColor, System.identityHashCode(s.labelTypeface),
+                s.fillStops.length
+        };
+        int[] key = Arrays.copyOf(values, values.length + s.fillStops.length + extras.length);
+        System.arraycopy(s.fillStops, 0, key, values.length, s.fillStops.length);
+        System.arraycopy(extras, 0, key, values.length + s.fillStops.length, extras.length);
+        return new BatteryCacheKey(key);
+    }
+
+    /**
+     * 样式发生变化，重新查找图集
+     */
+    private void invalidateStyle() {
+        spriteAtlas = null;
+        invalidateSelf();
+    }
+
+    /**
+     * 重新计算几何信息，只在尺寸、方向或尺寸属性变化后执行
+     */
+    private void updateGeometry() {
+        isGeometryDirty = false;
+        fillShader = null;
+        labelMetrics = null;
+        labelTextWidth = -1;
+        if (chromeCache != null) {
+            chromeCache.invalidate();
+        }
+        Rect bounds = getBounds();
+        BatteryStyle s = style;
+        geometry.update(bounds.width(), bounds.height(), s.orientation,
+                s.borderWidth, s.headWidth, s.headHeight, s.headPadding, s.insidePadding);
+        updateHistory();
+    }
+
+    /**
+     * 按内部区域的宽度创建或调整历史曲线，已有的采样按新的容量重新分段
+     */
+    private void updateHistory() {
+        BatteryStyle s = style;
+        RectF inside = geometry.insideRectF;
+        if (s.historyMode != BatteryView.HISTORY_INSIDE || inside.width() < 2 || inside.height() <= 0) {
+            sparkline = null;
+            updateHistoryTick();
+            return;
+        }
+        int capacity = (int) inside.width();
+        long windowMillis = s.historyWindow * 60_000L;
+        BatteryHistory old = sparkline != null ? sparkline.getHistory() : null;
+        if (old == null || old.getCapacity() != capacity || old.getWindowMillis() != windowMillis) {
+            BatteryHistory history = new BatteryHistory(capacity, windowMillis);
+            if (old != null) {
+                history.addAll(old);
+            }
+            sparkline = new BatterySparkline(history);
+        }
+        sparkline.setSize(inside.width(), inside.height());
+        recordHistory();
+        updateHistoryTick();
+    }
+
+    /**
+     * 记录一次当前的真实电量，曲线发生变化时返回 true；使用 elapsedRealtime，修改系统时间不会打乱采样顺序
+     */
+    private boolean recordHistory() {
+        return sparkline != null && sparkline.add(SystemClock.elapsedRealtime(), realPower, style.maxPower);
+    }
+
+    /**
+     * 有历史曲线并且可见时，每个采样间隔记录一次
+     */
+    private void updateHistoryTick() {
+        boolean schedule = sparkline != null && isVisible() && getCallback() != null;
+        if (schedule != isHistoryScheduled) {
+            isHistoryScheduled = schedule;
+            if (schedule) {
+                scheduleSelf(historyTask, SystemClock.uptimeMillis() + sparkline.getHistory().getBucketMillis());
+            } else {
+                unscheduleSelf(historyTask);
+            }
+        }
+    }
+
+    private void onHistoryTick() {
+        isHistoryScheduled = false;
+        if (recordHistory()) {
+            invalidateSelf();
+        }
+        updateHistoryTick();
+    }
+
+    /**
+     * 获取历史曲线的采样，没有开启历史曲线或者还没有尺寸时返回 null
+     */
+    @VisibleForTesting
+    BatteryHistory getHistory() {
+        if (isGeometryDirty && !getBounds().isEmpty()) {
+            updateGeometry();
+        }
+        return sparkline != null ? sparkline.getHistory() : null;
+    }
+
+    /**
+     * 标记几何信息需要重新计算
+     */
+    private void invalidateGeometry() {
+        isGeometryDirty = true;
+        invalidateStyle();
+    }
+
+    /**
+     * 电量变化后只刷新内部区域变化的部分和显示的百分比；颜色发生变化（跨过低电量阈值、按电量取色的填充换了颜色）时整体刷新
+     */
+    private void invalidatePower(int oldPower) {
+        if (oldPower == power) {
+            return;
+        }
+        Rect bounds = getBounds();
+        if (isGeometryDirty || bounds.isEmpty() || isLowPower(oldPower) != isLowPower(power)
+                || fillColor(oldPower) != fillColor(power)) {
+            invalidateSelf();
+            return;
+        }
+        geometry.getFillDirtyRect(oldPower, power, style.maxPower, style.insideRadius, dirtyRectF);
+        if (style.showLabel && labelText == null && !(isCharging && style.chargingAnimMode == BatteryView.LIGHTNING)) {
+            if (labelMetrics == null) {
+                invalidateSelf();
+                return;
+            }
+            // 百分比文字在内部区域中心，数字也会变化，按最宽的 "100%" 加上文字所在的区域
+            RectF inside = geometry.insideRectF;
+            float halfWidth = labelMetrics.widthAt(BatteryLabelMetrics.COUNT - 1) / 2;
+            float halfHeight = (labelPaint.descent() - labelPaint.ascent()) / 2;
+            dirtyRectF.union(inside.centerX() - halfWidth, inside.centerY() - halfHeight,
+                    inside.centerX() + halfWidth, inside.centerY() + halfHeight);
+        }
+        // 多刷新 1 像素，覆盖抗锯齿的边缘
+        dirtyBounds.set(
+                bounds.left + (int) Math.floor(dirtyRectF.left) - 1,
+                bounds.top + (int) Math.floor(dirtyRectF.top) - 1,
+                bounds.left + (int) Math.ceil(dirtyRectF.right) + 1,
+                bounds.top + (int) Math.ceil(dirtyRectF.bottom) + 1
+        );
+        isDirtyRegion = true;
+        invalidateSelf();
+        isDirtyRegion = false;
+    }
+
+    /**
+     * 内部区域按当前充电状态画指定电量时使用的颜色
+     */
+    private int fillColor(int power) {
+        return fillPaint(power, isCharging, style.chargingAnimMode).getColor();
+    }
+
+    /**
+     * 是否显示为低电量颜色
+     */
+    private boolean isLowPower(int power) {
+        return !isCharging && power <= style.maxPower/10;
+    }
+
+    /**
+     * 局部刷新时返回变化的区域，View.invalidateDrawable 会据此只刷新这一部分
+     */
+    @NonNull
+    @Override
+    public Rect getDirtyBounds() {
+        return isDirtyRegion ? dirtyBounds : getBounds();
+    }
+
+    @Override
+    protected void onBoundsChange(@NonNull Rect bounds) {
+        super.onBoundsChange(bounds);
+        isGeometryDirty = true;
+        spriteAtlas = null;
+    }
+
+    /**
+     * level 0~10000 对应电量 0~maxPower
+     */
+    @Override
+    protected boolean onLevelChange(int level) {
+        int oldPower = power;
+        power = verifyPower((int) ((long) level * style.maxPower / MAX_LEVEL));
+        realPower = power;
+        onPowerChanged(oldPower, true);
+        if (recordHistory()) {
+            // 曲线在整个内部区域，局部刷新不够
+            invalidateSelf();
+        }
+        return oldPower != power;
+    }
+
+    @Override
+    public boolean setVisible(boolean visible, boolean restart) {
+        boolean changed = super.setVisible(visible, restart);
+        if (!visible) {
+            endTransition();
+        } else if (recordHistory()) {
+            invalidateSelf();
+        }
+        updateChargingAnim();
+        updateHistoryTick();
+        return changed;
+    }
+
+    /**
+     * 步进动画只在充电中、步进模式并且可见时运行，其余情况从动画时钟移除
+     */
+    private void updateChargingAnim() {
+        boolean animating = isCharging && style.chargingAnimMode == BatteryView.STEP && isVisible() && getCallback() != null
+                && quality != BatteryQualityMonitor.QUALITY_MINIMAL;
+        // 状态没变化时不访问动画时钟，没有宿主的 Drawable（例如离屏渲染）不会碰到主线程的时钟
+        if (animating != isAnimating) {
+            isAnimating = animating;
+            if (animating) {
+                isDrawnSinceTick = true;
+                BatteryAnimationClock.getInstance().add(chargingTask);
+            } else {
+                BatteryAnimationClock.getInstance().remove(chargingTask);
+                // 动画停在真实电量上
+                int oldPower = power;
+                power = realPower;
+                onPowerChanged(oldPower, true);
+            }
+        }
+    }
+
+    /**
+     * 验证数值，把电量按查找表分级
+     */
+    int verifyPower(int power) {
+        return style.levels.quantize(power);
+    }
+
+    @Override
+    public int getIntrinsicWidth() {
+        return style.intrinsicWidth;
+    }
+
+    @Override
+    public int getIntrinsicHeight() {
+        return style.intrinsicHeight;
+    }
+
+    @Override
+    public void setAlpha(int alpha) {
+        if (this.alpha != alpha) {
+            this.alpha = alpha;
+            invalidateSelf();
+        }
+    }
+
+    @Override
+    public int getAlpha() {
+        return alpha;
+    }
+
+    @Override
+    public void setColorFilter(@Nullable ColorFilter colorFilter) {
+        this.colorFilter = colorFilter;
+        if (chromeCache != null) {
+            chromeCache.invalidate();
+        }
+        invalidateSelf();
+    }
+
+    @Override
+    public int getOpacity() {
+        return PixelFormat.TRANSLUCENT;
+    }
+
+    /**
+     * 获取当前样式
+     */
+    @NonNull
+    public BatteryStyle getBatteryStyle() {
+        return style;
+    }
+
+    /**
+     * 设置样式，同一个样式可以设置给任意多个 Drawable
+     */
+    public void setBatteryStyle(@NonNull BatteryStyle style) {
+        BatteryStyle old = this.style;
+        if (old == style) {
+            return;
+        }
+        this.style = style;
+        endTransition();
+        fillShader = null;
+        labelMetrics = null;
+        labelTextWidth = -1;
+        if (old.levels.levels != style.levels.levels) {
+            power = verifyPower(power);
+            realPower = verifyPower(realPower);
+        }
+        if (chromeCache != null) {
+            chromeCache.invalidate();
+        }
+        if (!style.chromeCache) {
+            releaseChromeCache();
+        }
+        updateChargingAnim();
+        if (old.sameGeometry(style) && old.historyMode == style.historyMode && old.historyWindow == style.historyWindow) {
+            invalidateStyle();
+        } else {
+            invalidateGeometry();
+        }
+    }
+
+    /**
+     * 设置绘制质量等级：降低质量时步进动画减半、关闭抗锯齿，最低质量时停止步进动画并显示真实电量
+     */
+    public void setQuality(int quality) {
+        if (this.quality != quality) {
+            this.quality = quality;
+            skippedTicks = 0;
+            if (chromeCache != null) {
+                chromeCache.invalidate();
+            }
+            spriteAtlas = null;
+            if (quality == BatteryQualityMonitor.QUALITY_MINIMAL) {
+                endTransition();
+            }
+            updateChargingAnim();
+            invalidateSelf();
+        }
+    }
+
+    /**
+     * 获取绘制质量等级
+     */
+    public int getQuality() {
+        return quality;
+    }
+
+    /**
+     * 设置绘制统计，null 表示使用 BatteryMetrics.setGlobal 设置的全局统计
+     */
+    public void setMetrics(@Nullable BatteryMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * 获取单独设置的绘制统计
+     */
+    @Nullable
+    public BatteryMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * 获取实际使用的统计，都没有设置时返回 null
+     */
+    @Nullable
+    BatteryMetrics getActiveMetrics() {
+        return BatteryMetrics.resolve(metrics);
+    }
+
+    /**
+     * 获取当前充电状态
+     */
+    public boolean isCharging() {
+        return isCharging;
+    }
+
+    public int getOrientation() {
+        return style.orientation;
+    }
+
+    public int getChargingAnimMode() {
+        return style.chargingAnimMode;
+    }
+
+    public int getMaxPower() {
+        return style.maxPower;
+    }
+
+    /**
+     * 获取电量等级数量，0 表示连续显示
+     */
+    public int getLevels() {
+        return style.levels.levels;
+    }
+
+    /**
+     * 获取当前显示的电量
+     */
+    public int getPower() {
+        return power;
+    }
+
+    /**
+     * 获取最后一次设置的真实电量，步进动画中 getPower 返回的是动画当前的电量
+     */
+    public int getRealPower() {
+        return realPower;
+    }
+
+    /**
+     * 恢复步进动画的进度，只在充电并且是步进模式时生效，不改变真实电量，也不做过渡
+     */
+    void setStepPower(int stepPower) {
+        if (isCharging && style.chargingAnimMode == BatteryView.STEP) {
+            int oldPower = power;
+            power = verifyPower(stepPower);
+            onPowerChanged(oldPower, false);
+        }
+    }
+
+    public float getHeadWidth() {
+        return style.headWidth;
+    }
+
+    public float getHeadHeight() {
+        return style.headHeight;
+    }
+
+    /**
+     * 设置方向，vertical：0，horizontal：1；默认尺寸和电池头宽高会互换
+     */
+    public void setOrientation(int orientation) {
+        if (orientation != getOrientation()) {
+            setBatteryStyle(style.toBuilder().setOrientation(orientation).build());
+        }
+    }
+
+    /**
+     * 设置默认宽度
+     */
+    public void setIntrinsicWidth(int intrinsicWidth) {
+        setBatteryStyle(style.toBuilder().setIntrinsicWidth(intrinsicWidth).build());
+    }
+
+    /**
+     * 设置默认高度
+     */
+    public void setIntrinsicHeight(int intrinsicHeight) {
+        setBatteryStyle(style.toBuilder().setIntrinsicHeight(intrinsicHeight).build());
+    }
+
+    /**
+     * 设置电池外框宽度
+     */
+    public void setBorderWidth(float borderWidth) {
+        setBatteryStyle(style.toBuilder().setBorderWidth(borderWidth).build());
+    }
+
+    /**
+     * 设置电池外框半径
+     */
+    public void setBorderRadius(float borderRadius) {
+        setBatteryStyle(style.toBuilder().setBorderRadius(borderRadius).build());
+    }
+
+    /**
+     * 设置电池外框颜色
+     */
+    public void setBorderColor(@ColorInt int borderColor) {
+        setBatteryStyle(style.toBuilder().setBorderColor(borderColor).build());
+    }
+
+    /**
+     * 设置电池头宽度
+     */
+    public void setHeadWidth(float headWidth) {
+        setBatteryStyle(style.toBuilder().setHeadWidth(headWidth).build());
+    }
+
+    /**
+     * 设置电池头高度
+     */
+    public void setHeadHeight(float headHeight) {
+        setBatteryStyle(style.toBuilder().setHeadHeight(headHeight).build());
+    }
+
+    /**
+     * 设置电池头距电池外框的距离
+     */
+    public void setHeadPadding(float headPadding) {
+        setBatteryStyle(style.toBuilder().setHeadPadding(headPadding).build());
+    }
+
+    /**
+     * 设置电池头颜色
+     */
+    public void setHeadColor(@ColorInt int headColor) {
+        setBatteryStyle(style.toBuilder().setHeadColor(headColor).build());
+    }
+
+    /**
+     * 设置电池内框距外框的距离
+     */
+    public void setInsidePadding(float insidePadding) {
+        setBatteryStyle(style.toBuilder().setInsidePadding(insidePadding).build());
+    }
+
+    /**
+     * 设置电池内框四角半径
+     */
+    public void setInsideRadius(float insideRadius) {
+        setBatteryStyle(style.toBuilder().setInsideRadius(insideRadius).build());
+    }
+
+    /**
+     * 设置低电量颜色
+     */
+    public void setLowPowerColor(@ColorInt int lowPowerColor) {
+        setBatteryStyle(style.toBuilder().setLowPowerColor(lowPowerColor).build());
+    }
+
+    /**
+     * 设置高电量颜色
+     */
+    public void setHighPowerColor(@ColorInt int highPowerColor) {
+        setBatteryStyle(style.toBuilder().setHighPowerColor(highPowerColor).build());
+    }
+
+    /**
+     * 设置充电中颜色
+     */
+    public void setChargingColor(@ColorInt int chargingColor) {
+        setBatteryStyle(style.toBuilder().setChargingColor(chargingColor).build());
+    }
+
+    /**
+     * 设置内部填充方式：FILL_SOLID 低电量和正常两种颜色，FILL_LEVEL 按电量插值的单色，FILL_GRADIENT 线性渐变
+     */
+    public void setFillMode(int fillMode) {
+        if (style.fillMode != fillMode) {
+            setBatteryStyle(style.toBuilder().setFillMode(fillMode).build());
+        }
+    }
+
+    /**
+     * 设置内部颜色节点，从空电到满电均匀分布；null 表示使用 lowPowerColor 到 highPowerColor
+     */
+    public void setFillColors(@Nullable @ColorInt int... fillColors) {
+        setBatteryStyle(style.toBuilder().setFillColors(fillColors).build());
+    }
+
+    /**
+     * 设置是否在电池内部显示电量百分比
+     */
+    public void setShowLabel(boolean showLabel) {
+        if (style.showLabel != showLabel) {
+            setBatteryStyle(style.toBuilder().setShowLabel(showLabel).build());
+        }
+    }
+
+    /**
+     * 设置代替百分比显示在电池内部的文字，例如预计剩余时间，null 时恢复按 showLabel 显示百分比
+     */
+    public void setLabelText(@Nullable String text) {
+        if (Objects.equals(labelText, text)) {
+            return;
+        }
+        labelText = text;
+        labelTextWidth = -1;
+        invalidateSelf();
+    }
+
+    /**
+     * 获取代替百分比显示的文字
+     */
+    @Nullable
+    public String getLabelText() {
+        return labelText;
+    }
+
+    /**
+     * 设置百分比文字大小，0 表示按内部区域自动计算
+     */
+    public void setLabelTextSize(float labelTextSize) {
+        setBatteryStyle(style.toBuilder().setLabelTextSize(labelTextSize).build());
+    }
+
+    /**
+     * 设置百分比文字颜色
+     */
+    public void setLabelColor(@ColorInt int labelColor) {
+        setBatteryStyle(style.toBuilder().setLabelColor(labelColor).build());
+    }
+
+    /**
+     * 设置百分比文字字体
+     */
+    public void setLabelTypeface(@Nullable Typeface labelTypeface) {
+        setBatteryStyle(style.toBuilder().setLabelTypeface(labelTypeface).build());
+    }
+
+    /**
+     * 设置电量历史曲线：HISTORY_NONE 不显示，HISTORY_INSIDE 画在电池内部
+     */
+    public void setHistoryMode(int historyMode) {
+        if (style.historyMode != historyMode) {
+            setBatteryStyle(style.toBuilder().setHistoryMode(historyMode).build());
+        }
+    }
+
+    /**
+     * 设置历史曲线的时间窗口，单位分钟
+     */
+    public void setHistoryWindow(int historyWindow) {
+        if (style.historyWindow != historyWindow) {
+            setBatteryStyle(style.toBuilder().setHistoryWindow(historyWindow).build());
+        }
+    }
+
+    /**
+     * 设置历史曲线颜色
+     */
+    public void setHistoryColor(@ColorInt int historyColor) {
+        setBatteryStyle(style.toBuilder().setHistoryColor(historyColor).build());
+    }
+
+    /**
+     * 设置电量变化的过渡动画时长，单位毫秒，0 表示不使用过渡动画
+     */
+    public void setTransitionDuration(int duration) {
+        if (style.transitionDuration != duration) {
+            setBatteryStyle(style.toBuilder().setTransitionDuration(duration).build());
+        }
+    }
+
+    /**
+     * 设置过渡动画的最大帧率，默认 30
+     */
+    public void setTransitionMaxFps(int maxFps) {
+        if (style.transitionMaxFps != maxFps) {
+            setBatteryStyle(style.toBuilder().setTransitionMaxFps(maxFps).build());
+        }
+    }
+
+    /**
+     * 是否正在过渡
+     */
+    public boolean isTransitioning() {
+        return isTransitioning;
+    }
+
+    /**
+     * 设置是否把外框和电池头缓存为位图，适合电量频繁变化但样式不变的场景
+     */
+    public void setChromeCache(boolean chromeCache) {
+        if (style.chromeCache != chromeCache) {
+            setBatteryStyle(style.toBuilder().setChromeCache(chromeCache).build());
+        }
+    }
+
+    /**
+     * 获取是否缓存外框和电池头
+     */
+    public boolean isChromeCache() {
+        return style.chromeCache;
+    }
+
+    /**
+     * 设置是否使用精灵图集：同一尺寸和样式的所有电量等级和状态只渲染一次，之后每次绘制只需要一次 drawBitmap，
+     * 适合列表中大量相同样式的电池
+     */
+    public void setSpriteAtlas(boolean spriteAtlas) {
+        if (style.spriteAtlas != spriteAtlas) {
+            setBatteryStyle(style.toBuilder().setSpriteAtlas(spriteAtlas).build());
+        }
+    }
+
+    /**
+     * 获取是否使用精灵图集
+     */
+    public boolean isSpriteAtlas() {
+        return style.spriteAtlas;
+    }
+
+    /**
+     * 设置所有精灵图集共用的缓存大小，单位字节，默认 8MB
+     */
+    public static void setSpriteAtlasCacheSize(int maxBytes) {
+        BatterySpriteAtlas.setCacheSize(maxBytes);
+    }
+
+    /**
+     * 内存紧张时清空共享的精灵图集缓存，可在 Application 的 onTrimMemory 中调用
+     */
+    public static void trimSharedMemory(int level) {
+        BatterySpriteAtlas.trimMemory(level);
+    }
+
+    /**
+     * 内存紧张时释放缓存，可在 Activity/Application 的 onTrimMemory 中调用
+     */
+    public void trimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            releaseChromeCache();
+        }
+    }
+
+    void releaseChromeCache() {
+        if (chromeCache != null) {
+            chromeCache.release();
+            chromeCache = null;
+        }
+    }
+
+    /**
+     * 设置最大电量
+     */
+    public void setMaxPower(int maxPower) {
+        if (style.maxPower != maxPower) {
+            setBatteryStyle(style.toBuilder().setMaxPower(maxPower).build());
+        }
+    }
+
+    /**
+     * 设置电量等级数量，默认 10 级，0 表示不分级、连续显示；注意和 Drawable 的 setLevel 不同
+     */
+    public void setLevels(int levelCount) {
+        if (style.levels.levels != levelCount) {
+            setBatteryStyle(style.toBuilder().setLevels(levelCount).build());
+        }
+    }
+
+    /**
+     * 设置电量
+     */
+    public void setPower(int power) {
+        int oldPower = this.power;
+        this.power = verifyPower(power);
+        realPower = this.power;
+        onPowerChanged(oldPower, true);
+        if (recordHistory()) {
+            // 曲线在整个内部区域，局部刷新不够
+            invalidateSelf();
+        }
+    }
+
+    /**
+     * 设置充电状态
+     */
+    public void setCharging(boolean charging) {
+        if (isCharging() != charging) {
+            float fromPower = isTransitioning ? displayPower : power;
+            int fromColor = displayedFillColor(power, isCharging);
+            isCharging = charging;
+            updateChargingAnim();
+            // 内部颜色过渡到新的状态
+            if (canTransition()) {
+                startTransition(fromPower, fromColor);
+            }
+            // 充电状态变化时颜色也会变化，整体刷新
+            invalidateSelf();
+        }
+    }
+
+    /**
+     * 设置充电状态模式
+     */
+    public void setChargingAnimMode(int chargingMode) {
+        if (getChargingAnimMode() != chargingMode) {
+            setBatteryStyle(style.toBuilder().setChargingAnimMode(chargingMode).build());
+        }
+    }
+
+}
@@ -0,0 +1,99 @@
+package com.zhumj.batteryview;
+
+import android.os.BatteryManager;
+
+import androidx.annotation.NonNull;
+
+/**
+ * @Description : 扩展电池信息快照，不可变，由 BatteryExtrasPoller 在后台线程读取
+ * 瞬时电流、电量计数来自 BatteryManager.getIntProperty，温度、电压来自电量广播；设备不支持的值为 UNKNOWN
+ */
+public final class BatteryExtras {
+
+    /**
+     * 设备不支持或者读取不到的值
+     */
+    public static final int UNKNOWN = Integer.MIN_VALUE;
+
+    private final int currentNow;//瞬时电流，单位微安，多数设备充电为正、放电为负
+    private final int chargeCounter;//剩余电量计数，单位微安时
+    private final int temperature;//温度，单位 0.1 摄氏度
+    private final int voltage;//电压，单位毫伏
+    private final int status;//电池状态，BatteryManager.BATTERY_STATUS_*
+    private final long elapsedRealtime;//读取时间，SystemClock.elapsedRealtime
+
+    public BatteryExtras(int currentNow, int chargeCounter, int temperature, int voltage, int status, long elapsedRealtime) {
+        this.currentNow = currentNow;
+        this.chargeCounter = chargeCounter;
+        this.temperature = temperature;
+        this.voltage = voltage;
+        this.status = status;
+        this.elapsedRealtime = elapsedRealtime;
+    }
+
+    public int getCurrentNow() {
+        return currentNow;
+    }
+
+    public int getChargeCounter() {
+        return chargeCounter;
+    }
+
+    public int getTemperature() {
+        return temperature;
+    }
+
+    public int getVoltage() {
+        return voltage;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public long getElapsedRealtime() {
+        return elapsedRealtime;
+    }
+
+    /**
+     * 是否处于充电状态，充满也算充电状态
+     */
+    public boolean isCharging() {
+        return status == BatteryManager.BATTERY_STATUS_CHARGING || status == BatteryManager.BATTERY_STATUS_FULL;
+    }
+
+    /**
+     * 读取时间以外的值都相同
+     */
+    boolean sameValues(@NonNull BatteryExtras other) {
+        return currentNow == other.currentNow && chargeCounter == other.chargeCounter
+                && temperature == other.temperature && voltage == other.voltage && status == other.status;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof BatteryExtras)) return false;
+        BatteryExtras that = (BatteryExtras) o;
+        return sameValues(that) && elapsedRealtime == that.elapsedRealtime;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = currentNow;
+        result = 31 * result + chargeCounter;
+        result = 31 * result + temperature;
+        result = 31 * result + voltage;
+        result = 31 * result + status;
+        result = 31 * result + (int) (elapsedRealtime ^ (elapsedRealtime >>> 32));
+        return result;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "BatteryExtras{currentNow=" + currentNow + ", chargeCounter=" + chargeCounter
+                + ", temperature=" + temperature + ", voltage=" + voltage + ", status=" + status
+                + ", elapsedRealtime=" + elapsedRealtime + '}';
+    }
+}
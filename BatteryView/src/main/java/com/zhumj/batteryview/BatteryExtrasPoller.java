@@ -0,0 +1,322 @@
+package com.zhumj.batteryview;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * @Description : 扩展电池信息轮询，读取瞬时电流、电量计数、温度和电压
+ * 所有监听者共用一个后台线程，第一个监听者加入时开始轮询，最后一个离开时停止。
+ * 充电中按 chargingInterval 轮询；没在充电时按 idleInterval 轮询，读数不变时间隔逐次翻倍，最长 maxInterval；
+ * 充电状态变化时立即读取一次。回调只保留最新的结果，上一次还没送达时直接覆盖。
+ */
+public final class BatteryExtrasPoller {
+
+    /**
+     * 默认充电中的轮询间隔，单位毫秒
+     */
+    public static final long DEFAULT_CHARGING_INTERVAL = 1000;
+    /**
+     * 默认没在充电时的轮询间隔，单位毫秒
+     */
+    public static final long DEFAULT_IDLE_INTERVAL = 10_000;
+    /**
+     * 默认读数不变时的最长轮询间隔，单位毫秒
+     */
+    public static final long DEFAULT_MAX_INTERVAL = 60_000;
+
+    /**
+     * 扩展电池信息的来源，在后台线程调用；测试时可以替换成假的实现
+     */
+    public interface Provider {
+        @Nullable
+        @WorkerThread
+        BatteryExtras read();
+    }
+
+    /**
+     * 扩展电池信息变化监听，在创建轮询时指定的线程回调，默认主线程
+     */
+    public interface Listener {
+        void onBatteryExtrasChanged(@NonNull BatteryExtras extras);
+    }
+
+    private static volatile BatteryExtrasPoller instance;
+
+    private final Provider provider;
+    //充电状态来源，状态变化时立即读取一次，可以为 null
+    private final BatteryStateSource stateSource;
+    private final Executor callbackExecutor;
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    //最近一次读取的结果
+    private volatile BatteryExtras extras;
+    //等待送达的结果，送达前的新结果直接覆盖
+    private final AtomicReference<BatteryExtras> pendingExtras = new AtomicReference<>();
+    private final Runnable dispatchTask = this::dispatch;
+
+    //以下字段由 this 保护
+    private ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> future;
+    private long chargingInterval = DEFAULT_CHARGING_INTERVAL;
+    private long idleInterval = DEFAULT_IDLE_INTERVAL;
+    private long maxInterval = DEFAULT_MAX_INTERVAL;
+    //当前的轮询间隔
+    private long interval;
+    private boolean lastCharging;
+
+    private final Runnable pollTask = this::poll;
+    private final BatteryStateSource.Listener stateListener = state -> {
+        synchronized (this) {
+            if (state.isCharging() != lastCharging) {
+                lastCharging = state.isCharging();
+                reschedule(0);
+            }
+        }
+    };
+
+    /**
+     * @param provider         扩展电池信息的来源
+     * @param stateSource      充电状态来源，状态变化时立即读取一次，null 表示只按间隔轮询
+     * @param callbackExecutor 回调所在的线程
+     */
+    public BatteryExtrasPoller(@NonNull Provider provider, @Nullable BatteryStateSource stateSource,
+                               @NonNull Executor callbackExecutor) {
+        this.provider = provider;
+        this.stateSource = stateSource;
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    /**
+     * 读取系统电池信息、在主线程回调的共享实例
+     */
+    @NonNull
+    public static BatteryExtrasPoller getInstance(@NonNull Context context) {
+        if (instance == null) {
+            synchronized (BatteryExtrasPoller.class) {
+                if (instance == null) {
+                    Handler handler = new Handler(Looper.getMainLooper());
+                    instance = new BatteryExtrasPoller(new SystemProvider(context), BatteryStateHub.getInstance(context),
+                            handler::post);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 设置轮询间隔，按毫秒计时，换算后不足 1 毫秒的间隔不允许
+     *
+     * @param chargingInterval 充电中的间隔
+     * @param idleInterval     没在充电时的间隔
+     * @param maxInterval      读数不变时的最长间隔
+     * @param unit             间隔的单位
+     */
+    @AnyThread
+    public synchronized void setIntervals(long chargingInterval, long idleInterval, long maxInterval, @NonNull TimeUnit unit) {
+        // 先换算再检查，否则微秒、纳秒的小间隔会变成 0，不停地读取
+        long chargingMillis = unit.toMillis(chargingInterval);
+        long idleMillis = unit.toMillis(idleInterval);
+        long maxMillis = unit.toMillis(maxInterval);
+        if (chargingMillis <= 0 || idleMillis <= 0 || maxMillis < idleMillis) {
+            throw new IllegalArgumentException("intervals must be at least 1ms and maxInterval >= idleInterval");
+        }
+        this.chargingInterval = chargingMillis;
+        this.idleInterval = idleMillis;
+        this.maxInterval = maxMillis;
+        if (scheduler != null) {
+            reschedule(0);
+        }
+    }
+
+    /**
+     * 添加监听，已有结果时立即回调一次
+     */
+    @AnyThread
+    public void addListener(@NonNull Listener listener) {
+        synchronized (this) {
+            if (!listeners.addIfAbsent(listener)) {
+                return;
+            }
+            if (listeners.size() == 1) {
+                start();
+            }
+        }
+        BatteryExtras current = extras;
+        if (current != null) {
+            listener.onBatteryExtrasChanged(current);
+        }
+    }
+
+    /**
+     * 移除监听，没有监听者时停止轮询
+     */
+    @AnyThread
+    public synchronized void removeListener(@NonNull Listener listener) {
+        if (listeners.remove(listener) && listeners.isEmpty()) {
+            stop();
+        }
+    }
+
+    /**
+     * 获取最近一次读取的结果，还没有读取过时返回 null
+     */
+    @Nullable
+    @AnyThread
+    public BatteryExtras getExtras() {
+        return extras;
+    }
+
+    /**
+     * 下一次轮询的间隔：充电中固定；没在充电时读数变化就回到 idleInterval，不变就翻倍
+     */
+    synchronized long nextInterval(long current, boolean charging, boolean changed) {
+        if (charging) {
+            return chargingInterval;
+        }
+        if (changed || current < idleInterval) {
+            return idleInterval;
+        }
+        return Math.min(current * 2, maxInterval);
+    }
+
+    /**
+     * 第一个监听者加入，创建轮询线程并立即读取一次，调用时持有 this
+     */
+    private void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "BatteryExtrasPoller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        interval = 0;
+        reschedule(0);
+        if (stateSource != null) {
+            stateSource.addListener(stateListener);
+        }
+    }
+
+    /**
+     * 最后一个监听者离开，停止轮询线程，调用时持有 this
+     */
+    private void stop() {
+        if (stateSource != null) {
+            stateSource.removeListener(stateListener);
+        }
+        if (future != null) {
+            future.cancel(false);
+            future = null;
+        }
+        scheduler.shutdown();
+        scheduler = null;
+    }
+
+    private void reschedule(long delay) {
+        if (scheduler == null) {
+            return;
+        }
+        if (future != null) {
+            future.cancel(false);
+        }
+        future = scheduler.schedule(pollTask, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 在轮询线程读取一次，读数变化时送达，并安排下一次
+     */
+    @WorkerThread
+    private void poll() {
+        BatteryExtras next = provider.read();
+        BatteryExtras previous = extras;
+        boolean changed = next != null && (previous == null || !next.sameValues(previous));
+        if (next != null) {
+            extras = next;
+        }
+        if (changed) {
+            deliver(next);
+        }
+        synchronized (this) {
+            if (scheduler == null) {
+                return;
+            }
+            boolean charging = next != null ? next.isCharging() : lastCharging;
+            lastCharging = charging;
+            interval = nextInterval(interval, charging, changed);
+            // 期间充电状态变化安排的读取已经不需要了，保证只有一个待执行的读取
+            reschedule(interval);
+        }
+    }
+
+    /**
+     * 上一次的结果还没送达时只替换结果，不再安排回调
+     */
+    void deliver(@NonNull BatteryExtras next) {
+        if (pendingExtras.getAndSet(next) == null) {
+            callbackExecutor.execute(dispatchTask);
+        }
+    }
+
+    private void dispatch() {
+        BatteryExtras next = pendingExtras.getAndSet(null);
+        if (next == null) {
+            return;
+        }
+        for (Listener listener : listeners) {
+            listener.onBatteryExtrasChanged(next);
+        }
+    }
+
+    /**
+     * 从 BatteryManager 和粘性电量广播读取
+     */
+    private static final class SystemProvider implements Provider {
+        private final Context appContext;
+        private final BatteryManager batteryManager;
+
+        SystemProvider(Context context) {
+            this.appContext = context.getApplicationContext() != null ? context.getApplicationContext() : context;
+            this.batteryManager = (BatteryManager) appContext.getSystemService(Context.BATTERY_SERVICE);
+        }
+
+        @Nullable
+        @Override
+        public BatteryExtras read() {
+            Intent intent = appContext.registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+            if (intent == null) {
+                return null;
+            }
+            return new BatteryExtras(
+                    readProperty(BatteryManager.BATTERY_PROPERTY_CURRENT_NOW),
+                    readProperty(BatteryManager.BATTERY_PROPERTY_CHARGE_COUNTER),
+                    intent.getIntExtra(BatteryManager.EXTRA_TEMPERATURE, BatteryExtras.UNKNOWN),
+                    intent.getIntExtra(BatteryManager.EXTRA_VOLTAGE, BatteryExtras.UNKNOWN),
+                    intent.getIntExtra(BatteryManager.EXTRA_STATUS, BatteryManager.BATTERY_STATUS_UNKNOWN),
+                    SystemClock.elapsedRealtime()
+            );
+        }
+
+        /**
+         * 不支持的属性返回 0 或 Integer.MIN_VALUE（即 UNKNOWN），取决于系统版本
+         */
+        private int readProperty(int id) {
+            return batteryManager != null ? batteryManager.getIntProperty(id) : BatteryExtras.UNKNOWN;
+        }
+    }
+}
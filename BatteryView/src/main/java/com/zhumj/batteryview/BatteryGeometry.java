@@ -0,0 +1,153 @@
+package com.zhumj.batteryview;
+
+import android.graphics.Path;
+import android.graphics.RectF;
+
+/**
+ * @Description : 电池的几何信息缓存
+ * 外框、电池头、内框和闪电只跟尺寸、方向以及各项尺寸属性有关，尺寸变化时计算一次，绘制时直接复用，不再分配对象
+ */
+final class BatteryGeometry {
+
+    final RectF borderRectF = new RectF();//外框
+    final RectF headRectF = new RectF();//电池头
+    float headRadius;//电池头四角半径
+    final RectF insideRectF = new RectF();//满电时的内部区域
+    final RectF fillRectF = new RectF();//当前电量对应的内部区域
+    float fillRadius;//当前电量对应的内部区域四角半径
+    final Path lightningPath = new Path();//闪电
+
+    private int orientation;
+
+    /**
+     * 重新计算外框、电池头、内框和闪电
+     */
+    void update(int width, int height, int orientation, float borderWidth,
+                float headWidth, float headHeight, float headPadding,
+                float insidePadding) {
+        this.orientation = orientation;
+        if (orientation == BatteryView.VERTICAL) {
+            borderRectF.set(
+                    borderWidth /2,
+                    borderWidth /2 + headHeight + headPadding,
+                    width - borderWidth /2,
+                    height - borderWidth /2
+            );
+            headRectF.set(
+                    (width - headWidth) / 2,
+                    0,
+                    (width + headWidth) / 2,
+                    headHeight
+            );
+            headRadius = headHeight/2;
+
+            float insideHeight = height - headHeight - headPadding - borderWidth*2 - insidePadding*2;
+            insideRectF.set(
+                    borderWidth + insidePadding,
+                    height - borderWidth - insidePadding - insideHeight,
+                    width - borderWidth - insidePadding,
+                    height - borderWidth - insidePadding
+            );
+        } else {
+            borderRectF.set(
+                    borderWidth /2,
+                    borderWidth /2,
+                    width - borderWidth /2 - headWidth - headPadding,
+                    height - borderWidth /2
+            );
+            headRectF.set(
+                    width - headWidth,
+                    (height - headHeight) / 2f,
+                    width,
+                    (height + headHeight) / 2f
+            );
+            headRadius = headWidth/2;
+
+            float insideWidth = width - headWidth - headPadding - borderWidth*2 - insidePadding*2;
+            insideRectF.set(
+                    borderWidth + insidePadding,
+                    borderWidth + insidePadding,
+                    borderWidth + insidePadding + insideWidth,
+                    height - borderWidth - insidePadding
+            );
+        }
+        updateLightningPath();
+    }
+
+    /**
+     * 根据电量计算内部区域，结果保存在 fillRectF 和 fillRadius；圆角半径不超过内部区域当前的长度
+     */
+    void updateFill(float power, int maxPower, float insideRadius) {
+        fillRadius = insideRadius;
+        if (orientation == BatteryView.VERTICAL) {
+            float insideTop = insideRectF.height() * power / maxPower;
+            if (insideTop < fillRadius) {
+                fillRadius = insideTop;
+            }
+            fillRectF.set(insideRectF.left, insideRectF.bottom - insideTop, insideRectF.right, insideRectF.bottom);
+        } else {
+            float insideRight = insideRectF.width() * power / maxPower;
+            if (insideRight < fillRadius) {
+                fillRadius = insideRight;
+            }
+            fillRectF.set(insideRectF.left, insideRectF.top, insideRectF.left + insideRight, insideRectF.bottom);
+        }
+    }
+
+    /**
+     * 计算电量从 oldPower 变为 newPower 时需要重绘的最小区域
+     * 只有内部区域的一条边在移动，另外加上圆角半径覆盖旧的圆角
+     */
+    void getFillDirtyRect(float oldPower, float newPower, int maxPower, float insideRadius, RectF out) {
+        if (orientation == BatteryView.VERTICAL) {
+            float insideHeight = insideRectF.height();
+            float oldTop = insideRectF.bottom - insideHeight * oldPower / maxPower;
+            float newTop = insideRectF.bottom - insideHeight * newPower / maxPower;
+            out.set(
+                    insideRectF.left,
+                    Math.min(oldTop, newTop),
+                    insideRectF.right,
+                    Math.min(Math.max(oldTop, newTop) + insideRadius, insideRectF.bottom)
+            );
+        } else {
+            float insideWidth = insideRectF.width();
+            float oldRight = insideRectF.left + insideWidth * oldPower / maxPower;
+            float newRight = insideRectF.left + insideWidth * newPower / maxPower;
+            out.set(
+                    Math.max(Math.min(oldRight, newRight) - insideRadius, insideRectF.left),
+                    insideRectF.top,
+                    Math.max(oldRight, newRight),
+                    insideRectF.bottom
+            );
+        }
+    }
+
+    private void updateLightningPath() {
+        Path path = lightningPath;
+        path.rewind();
+        float lightningPaddingH = insideRectF.width()/10;
+        float lightningWidth = insideRectF.width() - lightningPaddingH*2;
+        float lightningPaddingV = insideRectF.height()/10;
+        float lightningHeight = insideRectF.height() - lightningPaddingV*2;
+        float startX = insideRectF.left + lightningPaddingH;
+        float startY = insideRectF.top + lightningPaddingV;
+        if (orientation == BatteryView.VERTICAL) {
+            path.moveTo(startX + lightningWidth*2/3, startY);
+            path.lineTo(startX + lightningWidth*2/3, startY + lightningHeight*2/5);
+            path.lineTo(startX + lightningWidth, startY + lightningHeight*2/5);
+            path.lineTo(startX + lightningWidth/3, startY + lightningHeight);
+            path.lineTo(startX + lightningWidth/3, startY + lightningHeight*3/5);
+            path.lineTo(startX, startY + lightningHeight*3/5);
+            path.lineTo(startX + lightningWidth*2/3, startY);
+        } else {
+            path.moveTo(startX, startY + lightningHeight/3);
+            path.lineTo(startX + lightningWidth*2/5, startY + lightningHeight/3);
+            path.lineTo(startX + lightningWidth*2/5, startY);
+            path.lineTo(startX + lightningWidth, startY + lightningHeight*2/3);
+            path.lineTo(startX + lightningWidth*3/5, startY + lightningHeight*2/3);
+            path.lineTo(startX + lightningWidth*3/5, startY + lightningHeight);
+            path.lineTo(startX, startY + lightningHeight/3);
+        }
+        path.close();
+    }
+}
@@ -0,0 +1,447 @@
+package com.zhumj.batteryview;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.util.AttributeSet;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * @Description : 电池网格View，在一个 View 里画多个电池，适合同时显示大量设备电量的监控页面
+ * 所有格子共用一个 BatteryDrawable（同一套画笔和几何信息），只在 onDraw 中平移画布逐个绘制；
+ * 电量和充电状态用 int[] 和 BitSet 保存，批量更新时只刷新发生变化的格子，没有变化时不触发重绘。
+ */
+public class BatteryGridView extends View {
+
+    //所有格子共用的样式和绘制逻辑
+    private final BatteryDrawable cellDrawable = new BatteryDrawable();
+
+    private int columnCount;//列数，0：按宽度自动计算
+    private int cellSpacing;//格子之间的间距
+    private int columns = 1;//测量后实际的列数
+
+    private int cellCount;
+    //每个格子设置的原始电量，等级数量或最大电量变化后从它重新分级
+    private int[] rawPowers = new int[0];
+    //每个格子分级后的电量
+    private int[] powers = new int[0];
+    //每个格子是否处于充电状态
+    private final BitSet charging = new BitSet();
+    //充电步进动画中每个格子当前显示的电量
+    private int[] stepPowers = new int[0];
+
+    private final Rect clipBounds = new Rect();
+    //一次批量更新或者一次动画步进中发生变化的格子区域
+    private final Rect dirtyRect = new Rect();
+    //powers 分级时使用的最大电量和等级数量，样式变化后重新分级
+    private int quantizedMaxPower;
+    private int quantizedLevels;
+
+    //步进动画是否已加入动画时钟
+    private boolean isAnimating;
+
+    /**
+     * 充电步进动画，所有充电中的格子共用一个时钟
+     */
+    private final BatteryAnimationClock.OnTickListener chargingTask = frameTimeNanos -> {
+        for (int i = charging.nextSetBit(0); i >= 0 && i < cellCount; i = charging.nextSetBit(i + 1)) {
+            int next = cellDrawable.nextStepPower(stepPowers[i]);
+            if (next != stepPowers[i]) {
+                stepPowers[i] = next;
+                addDirtyCell(i);
+            }
+        }
+        invalidateDirtyCells();
+    };
+
+    public BatteryGridView(Context context) { this(context, null); }
+
+    public BatteryGridView(Context context, @Nullable AttributeSet attrs) { this(context, attrs, 0); }
+
+    public BatteryGridView(Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+
+        cellDrawable.setBatteryStyle(BatteryStyleCache.obtain(context, attrs).style);
+        quantizedMaxPower = cellDrawable.getMaxPower();
+        quantizedLevels = cellDrawable.getLevels();
+        TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.BatteryGridView);
+        columnCount = a.getInt(R.styleable.BatteryGridView_columnCount, 0);
+        cellSpacing = a.getDimensionPixelSize(R.styleable.BatteryGridView_cellSpacing, 0);
+        setCellCount(a.getInt(R.styleable.BatteryGridView_cellCount, 0));
+        a.recycle();
+
+        cellDrawable.setCallback(this);
+        // 共用的 Drawable 不运行自己的动画，充电步进由网格统一驱动
+        cellDrawable.setVisible(false, false);
+        updateCellBounds();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int cellWidth = cellDrawable.getIntrinsicWidth();
+        int cellHeight = cellDrawable.getIntrinsicHeight();
+        int horizontalPadding = getPaddingLeft() + getPaddingRight();
+        int verticalPadding = getPaddingTop() + getPaddingBottom();
+
+        int widthMode = MeasureSpec.getMode(widthMeasureSpec);
+        if (columnCount > 0) {
+            columns = columnCount;
+        } else if (widthMode == MeasureSpec.UNSPECIFIED) {
+            columns = Math.max(1, cellCount);
+        } else {
+            int available = MeasureSpec.getSize(widthMeasureSpec) - horizontalPadding;
+            columns = Math.max(1, (available + cellSpacing) / (cellWidth + cellSpacing));
+        }
+        int rows = (cellCount + columns - 1) / columns;
+        int usedColumns = Math.min(columns, Math.max(1, cellCount));
+
+        int width = horizontalPadding + usedColumns * cellWidth + (usedColumns - 1) * cellSpacing;
+        int height = verticalPadding + rows * cellHeight + Math.max(0, rows - 1) * cellSpacing;
+        setMeasuredDimension(resolveSize(width, widthMeasureSpec), resolveSize(height, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        if (cellCount == 0) {
+            return;
+        }
+        int cellWidth = cellDrawable.getIntrinsicWidth();
+        int cellHeight = cellDrawable.getIntrinsicHeight();
+        // 只画和刷新区域相交的格子
+        if (!canvas.getClipBounds(clipBounds)) {
+            return;
+        }
+        int mode = cellDrawable.getChargingAnimMode();
+        for (int i = 0; i < cellCount; i++) {
+            int left = getCellLeft(i);
+            int top = getCellTop(i);
+            if (!clipBounds.intersects(left, top, left + cellWidth, top + cellHeight)) {
+                continue;
+            }
+            boolean isCharging = charging.get(i);
+            int power = isCharging && mode == BatteryView.STEP ? stepPowers[i] : powers[i];
+            int saveCount = canvas.save();
+            canvas.translate(left, top);
+            cellDrawable.drawStatic(canvas, power, isCharging, mode);
+            canvas.restoreToCount(saveCount);
+        }
+    }
+
+    private int getCellLeft(int index) {
+        return getPaddingLeft() + (index % columns) * (cellDrawable.getIntrinsicWidth() + cellSpacing);
+    }
+
+    private int getCellTop(int index) {
+        return getPaddingTop() + (index / columns) * (cellDrawable.getIntrinsicHeight() + cellSpacing);
+    }
+
+    /**
+     * 把一个格子加入刷新区域
+     */
+    private void addDirtyCell(int index) {
+        int left = getCellLeft(index);
+        int top = getCellTop(index);
+        dirtyRect.union(left, top, left + cellDrawable.getIntrinsicWidth(), top + cellDrawable.getIntrinsicHeight());
+    }
+
+    /**
+     * 只刷新发生变化的格子，一次批量更新或者一次动画步进最多刷新一次
+     */
+    @SuppressWarnings("deprecation")
+    private void invalidateDirtyCells() {
+        if (!dirtyRect.isEmpty()) {
+            // 开启硬件加速时整个 View 都会重画，但仍然只会重新录制一次；软件绘制时只重画这个区域
+            invalidate(dirtyRect);
+            dirtyRect.setEmpty();
+        }
+    }
+
+    /**
+     * 所有格子大小相同，共用 Drawable 的边界就是一个格子
+     */
+    private void updateCellBounds() {
+        cellDrawable.setBounds(0, 0, cellDrawable.getIntrinsicWidth(), cellDrawable.getIntrinsicHeight());
+    }
+
+    @Override
+    protected boolean verifyDrawable(@NonNull Drawable who) {
+        return who == cellDrawable || super.verifyDrawable(who);
+    }
+
+    /**
+     * 样式变化时所有格子都要重画
+     */
+    @Override
+    public void invalidateDrawable(@NonNull Drawable drawable) {
+        if (drawable == cellDrawable) {
+            // 方向变化时默认尺寸会互换
+            Rect bounds = cellDrawable.getBounds();
+            if (bounds.width() != cellDrawable.getIntrinsicWidth() || bounds.height() != cellDrawable.getIntrinsicHeight()) {
+                updateCellBounds();
+                requestLayout();
+            }
+            requantize();
+            updateChargingAnim();
+            invalidate();
+        } else {
+            super.invalidateDrawable(drawable);
+        }
+    }
+
+    /**
+     * 最大电量或等级数量变化后从原始电量按新的等级表重新分级，最大电量变化时原始电量先按比例换算
+     */
+    private void requantize() {
+        int maxPower = cellDrawable.getMaxPower();
+        int levels = cellDrawable.getLevels();
+        if (maxPower == quantizedMaxPower && levels == quantizedLevels) {
+            return;
+        }
+        int oldMaxPower = quantizedMaxPower;
+        quantizedMaxPower = maxPower;
+        quantizedLevels = levels;
+        for (int i = 0; i < cellCount; i++) {
+            rawPowers[i] = rescale(rawPowers[i], oldMaxPower, maxPower);
+            powers[i] = cellDrawable.verifyPower(rawPowers[i]);
+            stepPowers[i] = cellDrawable.verifyPower(rescale(stepPowers[i], oldMaxPower, maxPower));
+        }
+    }
+
+    private static int rescale(int power, int oldMaxPower, int maxPower) {
+        return oldMaxPower > 0 && oldMaxPower != maxPower ? (int) ((long) power * maxPower / oldMaxPower) : power;
+    }
+
+    /**
+     * 获取所有格子共用的 BatteryDrawable，通过它的 setter 设置方向、颜色、尺寸、最大电量、等级数量等
+     * 修改格子尺寸请使用 setCellSize
+     */
+    @NonNull
+    public BatteryDrawable getDrawable() {
+        return cellDrawable;
+    }
+
+    /**
+     * 设置格子尺寸
+     */
+    public void setCellSize(int width, int height) {
+        cellDrawable.setIntrinsicWidth(width);
+        cellDrawable.setIntrinsicHeight(height);
+        updateCellBounds();
+        requestLayout();
+        invalidate();
+    }
+
+    /**
+     * 设置列数，0 表示按宽度自动计算
+     */
+    public void setColumnCount(int columnCount) {
+        if (this.columnCount != columnCount) {
+            this.columnCount = columnCount;
+            requestLayout();
+            invalidate();
+        }
+    }
+
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    /**
+     * 设置格子之间的间距
+     */
+    public void setCellSpacing(int cellSpacing) {
+        if (this.cellSpacing != cellSpacing) {
+            this.cellSpacing = cellSpacing;
+            requestLayout();
+            invalidate();
+        }
+    }
+
+    public int getCellSpacing() {
+        return cellSpacing;
+    }
+
+    /**
+     * 设置格子数量，新增的格子为满电、未充电
+     */
+    public void setCellCount(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count must be >= 0");
+        }
+        if (cellCount != count) {
+            int old = cellCount;
+            rawPowers = Arrays.copyOf(rawPowers, count);
+            powers = Arrays.copyOf(powers, count);
+            stepPowers = Arrays.copyOf(stepPowers, count);
+            for (int i = old; i < count; i++) {
+                rawPowers[i] = cellDrawable.getMaxPower();
+                powers[i] = cellDrawable.getMaxPower();
+            }
+            if (count < old) {
+                charging.clear(count, old);
+            }
+            cellCount = count;
+            updateChargingAnim();
+            requestLayout();
+            invalidate();
+        }
+    }
+
+    public int getCellCount() {
+        return cellCount;
+    }
+
+    /**
+     * 获取格子当前的电量（分级后）
+     */
+    public int getPower(int index) {
+        checkIndex(index);
+        return powers[index];
+    }
+
+    /**
+     * 获取格子是否处于充电状态
+     */
+    public boolean isCharging(int index) {
+        checkIndex(index);
+        return charging.get(index);
+    }
+
+    /**
+     * 设置一个格子的电量和充电状态
+     */
+    public void setCell(int index, int power, boolean isCharging) {
+        checkIndex(index);
+        if (updateCell(index, power, isCharging)) {
+            updateChargingAnim();
+        }
+        invalidateDirtyCells();
+    }
+
+    /**
+     * 批量设置电量，下标超过格子数量的部分忽略，没有变化时不重绘
+     */
+    public void setPowers(@NonNull int[] powers) {
+        int count = Math.min(powers.length, cellCount);
+        for (int i = 0; i < count; i++) {
+            updateCell(i, powers[i], charging.get(i));
+        }
+        invalidateDirtyCells();
+    }
+
+    /**
+     * 批量设置充电状态，没有变化时不重绘
+     */
+    public void setCharging(@NonNull BitSet charging) {
+        boolean changed = false;
+        for (int i = 0; i < cellCount; i++) {
+            changed |= updateCell(i, rawPowers[i], charging.get(i));
+        }
+        if (changed) {
+            updateChargingAnim();
+        }
+        invalidateDirtyCells();
+    }
+
+    /**
+     * 批量设置电量和充电状态，没有变化时不重绘
+     */
+    public void update(@NonNull int[] powers, @NonNull BitSet charging) {
+        boolean changed = false;
+        int count = Math.min(powers.length, cellCount);
+        for (int i = 0; i < count; i++) {
+            changed |= updateCell(i, powers[i], charging.get(i));
+        }
+        if (changed) {
+            updateChargingAnim();
+        }
+        invalidateDirtyCells();
+    }
+
+    /**
+     * 更新一个格子，显示发生变化时加入刷新区域；返回充电状态是否变化
+     */
+    private boolean updateCell(int index, int power, boolean isCharging) {
+        rawPowers[index] = Math.max(0, Math.min(power, cellDrawable.getMaxPower()));
+        int newPower = cellDrawable.verifyPower(power);
+        boolean chargingChanged = charging.get(index) != isCharging;
+        if (newPower == powers[index] && !chargingChanged) {
+            return false;
+        }
+        powers[index] = newPower;
+        if (chargingChanged) {
+            charging.set(index, isCharging);
+            // 步进动画从当前电量开始
+            stepPowers[index] = newPower;
+        }
+        // 充电步进动画中电量由动画控制，只有充电状态变化时需要重画
+        if (chargingChanged || !isCharging || cellDrawable.getChargingAnimMode() != BatteryView.STEP) {
+            addDirtyCell(index);
+        }
+        return chargingChanged;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= cellCount) {
+            throw new IndexOutOfBoundsException("index " + index + ", cellCount " + cellCount);
+        }
+    }
+
+    /**
+     * 步进动画只在有格子充电、步进模式并且可见时运行
+     */
+    private void updateChargingAnim() {
+        // 父类构造方法中也可能回调可见性变化，此时还没有初始化
+        if (cellDrawable == null) {
+            return;
+        }
+        boolean animating = cellDrawable.getChargingAnimMode() == BatteryView.STEP
+                && charging.nextSetBit(0) >= 0
+                && isAttachedToWindow() && getWindowVisibility() == VISIBLE && isShown();
+        if (animating != isAnimating) {
+            isAnimating = animating;
+            if (animating) {
+                BatteryAnimationClock.getInstance().add(chargingTask);
+            } else {
+                BatteryAnimationClock.getInstance().remove(chargingTask);
+            }
+        }
+    }
+
+    @Override
+    protected void onVisibilityChanged(@NonNull View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        updateChargingAnim();
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        updateChargingAnim();
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        updateChargingAnim();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        if (isAnimating) {
+            isAnimating = false;
+            BatteryAnimationClock.getInstance().remove(chargingTask);
+        }
+        cellDrawable.releaseChromeCache();
+        super.onDetachedFromWindow();
+    }
+}
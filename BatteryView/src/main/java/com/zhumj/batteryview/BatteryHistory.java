@@ -0,0 +1,166 @@
+package com.zhumj.batteryview;
+
+/**
+ * @Description : 固定容量的电量历史，环形缓冲区，时间用 long[]、电量用 short[] 保存，不装箱
+ * 时间窗口按容量平均分成若干段，同一段内的多个采样只保留最后一个；容量取曲线的像素宽度时就是每个像素一个采样，
+ * 不管运行多久，内存和绘制开销都不变。满了之后新的采样覆盖最旧的。
+ */
+public final class BatteryHistory {
+
+    /**
+     * 电量的保存精度，0~MAX_LEVEL 对应 0~100%
+     */
+    public static final int MAX_LEVEL = 10000;
+
+    //put 的结果
+    static final int UNCHANGED = 0;//比最后一个采样还早，忽略
+    static final int APPENDED = 1;//追加了一个采样
+    static final int REPLACED = 2;//和最后一个采样在同一段内，替换了最后一个采样
+
+    private final long[] times;
+    private final short[] levels;
+    private final long windowMillis;
+    private final long bucketMillis;
+    //最旧的采样所在的位置和采样数量
+    private int start;
+    private int size;
+
+    /**
+     * @param capacity     最多保存的采样数量
+     * @param windowMillis 时间窗口，单位毫秒，每 windowMillis / capacity 毫秒保留一个采样
+     */
+    public BatteryHistory(int capacity, long windowMillis) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be > 0");
+        }
+        if (windowMillis <= 0) {
+            throw new IllegalArgumentException("windowMillis must be > 0");
+        }
+        this.times = new long[capacity];
+        this.levels = new short[capacity];
+        this.windowMillis = windowMillis;
+        this.bucketMillis = Math.max(1, windowMillis / capacity);
+    }
+
+    /**
+     * 添加一个采样，返回是否发生了变化
+     *
+     * @param time  采样时间，单位毫秒，通常是 SystemClock.elapsedRealtime()，比最后一个采样还早时忽略
+     * @param level 电量
+     * @param scale 电量最大值
+     */
+    public boolean add(long time, int level, int scale) {
+        return put(time, level, scale) != UNCHANGED;
+    }
+
+    int put(long time, int level, int scale) {
+        int normalized = scale > 0 ? (int) ((long) Math.max(0, Math.min(level, scale)) * MAX_LEVEL / scale) : 0;
+        return putNormalized(time, normalized);
+    }
+
+    private int putNormalized(long time, int level) {
+        if (size > 0) {
+            int last = slotOf(size - 1);
+            if (time < times[last]) {
+                return UNCHANGED;
+            }
+            long lastBucket = times[last] / bucketMillis;
+            long bucket = time / bucketMillis;
+            if (bucket == lastBucket) {
+                if (levels[last] == level && times[last] == time) {
+                    return UNCHANGED;
+                }
+                times[last] = time;
+                levels[last] = (short) level;
+                return REPLACED;
+            }
+        }
+        int slot;
+        if (size < times.length) {
+            slot = slotOf(size);
+            size++;
+        } else {
+            slot = start;
+            start = (start + 1) % times.length;
+        }
+        times[slot] = time;
+        levels[slot] = (short) level;
+        return APPENDED;
+    }
+
+    /**
+     * 按时间顺序复制另一个历史的采样，用于修改容量或时间窗口
+     */
+    void addAll(BatteryHistory other) {
+        for (int i = 0; i < other.size; i++) {
+            int slot = other.slotOf(i);
+            putNormalized(other.times[slot], other.levels[slot]);
+        }
+    }
+
+    /**
+     * 第 index 个采样（0 是最旧的）在数组中的位置，没满时从 0 开始连续保存
+     */
+    int slotOf(int index) {
+        int slot = start + index;
+        return slot < times.length ? slot : slot - times.length;
+    }
+
+    /**
+     * 清空所有采样
+     */
+    public void clear() {
+        start = 0;
+        size = 0;
+    }
+
+    /**
+     * 获取采样数量
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 获取容量
+     */
+    public int getCapacity() {
+        return times.length;
+    }
+
+    /**
+     * 获取时间窗口，单位毫秒
+     */
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    /**
+     * 获取每个采样代表的时长，单位毫秒
+     */
+    public long getBucketMillis() {
+        return bucketMillis;
+    }
+
+    /**
+     * 获取第 index 个采样的时间，0 是最旧的
+     */
+    public long getTime(int index) {
+        checkIndex(index);
+        return times[slotOf(index)];
+    }
+
+    /**
+     * 获取第 index 个采样的电量，0~MAX_LEVEL，0 是最旧的
+     */
+    public int getLevel(int index) {
+        checkIndex(index);
+        return levels[slotOf(index)];
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+        }
+    }
+}
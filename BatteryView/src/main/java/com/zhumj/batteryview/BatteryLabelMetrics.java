@@ -0,0 +1,96 @@
+package com.zhumj.batteryview;
+
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.util.LruCache;
+
+import androidx.annotation.MainThread;
+
+/**
+ * @Description : 电量百分比文字的预先测量结果
+ * "0%" ~ "100%" 的字符串只创建一次，每个字号和字体的文字宽度、基线偏移只测量一次并缓存，
+ * 绘制时只查数组，不调用 measureText，也不创建字符串。
+ */
+final class BatteryLabelMetrics {
+
+    /**
+     * 百分比取值数量，0 ~ 100
+     */
+    static final int COUNT = 101;
+
+    private static final String[] TEXTS = new String[COUNT];
+
+    static {
+        for (int i = 0; i < COUNT; i++) {
+            TEXTS[i] = i + "%";
+        }
+    }
+
+    private static final LruCache<Key, BatteryLabelMetrics> CACHE = new LruCache<>(16);
+
+    final float textSize;
+    //每个百分比文字的宽度
+    private final float[] widths = new float[COUNT];
+    //文字垂直居中时基线相对中心的偏移
+    final float baselineOffset;
+
+    private BatteryLabelMetrics(Paint paint) {
+        textSize = paint.getTextSize();
+        for (int i = 0; i < COUNT; i++) {
+            widths[i] = paint.measureText(TEXTS[i]);
+        }
+        baselineOffset = -(paint.ascent() + paint.descent()) / 2;
+    }
+
+    /**
+     * 获取画笔当前字号和字体的测量结果，没有缓存时测量一次
+     */
+    @MainThread
+    static BatteryLabelMetrics obtain(Paint paint) {
+        Key key = new Key(paint.getTextSize(), paint.getTypeface());
+        BatteryLabelMetrics metrics = CACHE.get(key);
+        if (metrics == null) {
+            metrics = new BatteryLabelMetrics(paint);
+            CACHE.put(key, metrics);
+        }
+        return metrics;
+    }
+
+    static String textAt(int percent) {
+        return TEXTS[percent];
+    }
+
+    float widthAt(int percent) {
+        return widths[percent];
+    }
+
+    /**
+     * 最宽的文字的宽度，用来确定字号
+     */
+    static float measureWidest(Paint paint) {
+        return paint.measureText(TEXTS[COUNT - 1]);
+    }
+
+    private static final class Key {
+        private final float textSize;
+        private final Typeface typeface;
+
+        Key(float textSize, Typeface typeface) {
+            this.textSize = textSize;
+            this.typeface = typeface;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return Float.compare(textSize, key.textSize) == 0 && typeface == key.typeface;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Float.floatToIntBits(textSize) + System.identityHashCode(typeface);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.zhumj.batteryview;
+
+import java.util.Arrays;
+
+/**
+ * @Description : 电量分级查找表
+ * 把 0~maxPower 分成 levels 个等级，原始电量向上取到所在等级的值；levels 为 0 时不分级，连续显示。
+ * 查找表只在 maxPower 或 levels 变化时创建一次，之后分级和步进动画都只是一次数组访问。
+ */
+final class BatteryLevels {
+
+    /**
+     * 默认等级数量
+     */
+    static final int DEFAULT_LEVELS = 10;
+    /**
+     * 不分级，连续显示
+     */
+    static final int CONTINUOUS = 0;
+    /**
+     * 步进动画的步数
+     */
+    static final int STEP_COUNT = 5;
+    /**
+     * maxPower 超过这个值时不建表，直接计算，避免占用过多内存
+     */
+    private static final int MAX_TABLE_SIZE = 10000;
+
+    final int maxPower;
+    final int levels;
+    //每个等级的电量值，values[0] = 0，values[levels] = maxPower
+    private final int[] values;
+    //原始电量 -> 分级后的电量
+    private final int[] powerTable;
+    //步进动画的目标电量，升序
+    private final int[] stepValues;
+    //当前电量 -> 步进动画的下一个电量
+    private final int[] stepTable;
+
+    BatteryLevels(int maxPower, int levels) {
+        this.maxPower = Math.max(0, maxPower);
+        this.levels = Math.max(0, levels);
+
+        int valueCount = this.levels == CONTINUOUS ? 0 : this.levels + 1;
+        values = new int[valueCount];
+        for (int k = 0; k < valueCount; k++) {
+            values[k] = (int) ((long) this.maxPower * k / this.levels);
+        }
+
+        // 步进动画每次前进 levels/5 个等级，满了之后从第一步重新开始；连续模式按 1/5 前进
+        int stride = Math.max(1, this.levels / STEP_COUNT);
+        int stepCount = this.levels == CONTINUOUS ? STEP_COUNT : (this.levels + stride - 1) / stride;
+        stepValues = new int[stepCount];
+        for (int j = 0; j < stepCount; j++) {
+            stepValues[j] = this.levels == CONTINUOUS
+                    ? (int) ((long) this.maxPower * (j + 1) / STEP_COUNT)
+                    : values[Math.min(this.levels, (j + 1) * stride)];
+        }
+
+        if (this.maxPower <= MAX_TABLE_SIZE) {
+            powerTable = new int[this.maxPower + 1];
+            stepTable = new int[this.maxPower + 1];
+            for (int p = 0; p <= this.maxPower; p++) {
+                powerTable[p] = computePower(p);
+                stepTable[p] = computeNextStep(p);
+            }
+        } else {
+            powerTable = null;
+            stepTable = null;
+        }
+    }
+
+    /**
+     * 分级后的电量
+     */
+    int quantize(int power) {
+        if (power <= 0) {
+            return 0;
+        }
+        if (power >= maxPower) {
+            return maxPower;
+        }
+        return powerTable != null ? powerTable[power] : computePower(power);
+    }
+
+    /**
+     * 步进动画的下一个电量
+     */
+    int nextStep(int power) {
+        if (power <= 0) {
+            power = 0;
+        } else if (power >= maxPower) {
+            return stepValues.length > 0 ? stepValues[0] : maxPower;
+        }
+        return stepTable != null ? stepTable[power] : computeNextStep(power);
+    }
+
+    /**
+     * 电量所在的等级下标，电量不是等级值或者连续模式时返回 -1
+     */
+    int indexOf(int power) {
+        if (values.length == 0) {
+            return -1;
+        }
+        int index = Arrays.binarySearch(values, power);
+        return index >= 0 ? index : -1;
+    }
+
+    /**
+     * 等级下标对应的电量
+     */
+    int valueAt(int index) {
+        return values[index];
+    }
+
+    /**
+     * 等级值的数量，连续模式为 0
+     */
+    int getValueCount() {
+        return values.length;
+    }
+
+    /**
+     * 向上取到所在等级的值
+     */
+    private int computePower(int power) {
+        if (power <= 0) {
+            return 0;
+        }
+        if (levels == CONTINUOUS) {
+            return Math.min(power, maxPower);
+        }
+        for (int k = 1; k < levels; k++) {
+            if (power <= values[k]) {
+                return values[k];
+            }
+        }
+        return maxPower;
+    }
+
+    /**
+     * 刚好在某一步上时前进到下一步，否则向上取到最近的一步
+     */
+    private int computeNextStep(int power) {
+        if (power >= maxPower) {
+            return stepValues[0];
+        }
+        for (int value : stepValues) {
+            if (value > power) {
+                return value;
+            }
+        }
+        return maxPower;
+    }
+}
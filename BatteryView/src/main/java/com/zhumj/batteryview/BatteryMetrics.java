@@ -0,0 +1,261 @@
+package com.zhumj.batteryview;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * @Description : 绘制和更新统计，默认关闭
+ * 可以通过 BatteryView.setMetrics 单独设置给某个 View，也可以通过 setGlobal 设置给所有 View，单独设置的优先。
+ * 没有设置时只多一次判空，不计时也不计数。统计值都是基本类型计数，记录时不分配对象；
+ * 除了电池状态回调次数以外都在主线程记录，需要上报时调用 snapshot 拿一份快照。
+ */
+public final class BatteryMetrics {
+
+    /**
+     * 绘制耗时直方图的桶数，第 i 个桶统计耗时小于 getBucketUpperBound(i) 纳秒的绘制，最后一个桶统计其余所有
+     */
+    public static final int BUCKET_COUNT = 16;
+    //第一个桶的上限 2^11 纳秒，约 2 微秒，之后每个桶翻倍，倒数第二个桶的上限约 33 毫秒
+    private static final int FIRST_BUCKET_SHIFT = 11;
+
+    private static final AtomicLongFieldUpdater<BatteryMetrics> RECEIVER_EVENTS =
+            AtomicLongFieldUpdater.newUpdater(BatteryMetrics.class, "receiverEvents");
+
+    private static volatile BatteryMetrics global;
+
+    //绘制次数、总耗时、最大耗时，单位纳秒
+    private long drawCount;
+    private long drawTimeNanos;
+    private long maxDrawTimeNanos;
+    private final long[] drawHistogram = new long[BUCKET_COUNT];
+    //Drawable 请求刷新的次数，和请求之后真正绘制的次数；View 不在屏幕上时请求不会带来绘制
+    private long invalidationsRequested;
+    private long invalidationsPerformed;
+    //收到电池状态的次数，可能在任意线程记录
+    private volatile long receiverEvents;
+    //充电步进动画前进的次数，和上一次前进之后一直没有绘制过的次数
+    private long animationTicks;
+    private long offscreenAnimationTicks;
+
+    /**
+     * 设置所有没有单独设置统计的 View 和 Drawable 使用的统计，null 表示关闭
+     */
+    @AnyThread
+    public static void setGlobal(@Nullable BatteryMetrics metrics) {
+        global = metrics;
+    }
+
+    /**
+     * 获取全局统计，没有设置时返回 null
+     */
+    @Nullable
+    @AnyThread
+    public static BatteryMetrics getGlobal() {
+        return global;
+    }
+
+    /**
+     * 单独设置的统计优先，否则使用全局统计
+     */
+    @Nullable
+    static BatteryMetrics resolve(@Nullable BatteryMetrics metrics) {
+        return metrics != null ? metrics : global;
+    }
+
+    /**
+     * 耗时所在的桶
+     */
+    static int bucketOf(long nanos) {
+        int bit = 63 - Long.numberOfLeadingZeros(nanos);
+        return Math.max(0, Math.min(bit - FIRST_BUCKET_SHIFT + 1, BUCKET_COUNT - 1));
+    }
+
+    /**
+     * 获取第 index 个桶的上限，单位纳秒，最后一个桶没有上限，返回 Long.MAX_VALUE
+     */
+    public static long getBucketUpperBound(int index) {
+        return index >= BUCKET_COUNT - 1 ? Long.MAX_VALUE : 1L << (FIRST_BUCKET_SHIFT + index);
+    }
+
+    @MainThread
+    void recordDraw(long nanos) {
+        drawCount++;
+        drawTimeNanos += nanos;
+        if (nanos > maxDrawTimeNanos) {
+            maxDrawTimeNanos = nanos;
+        }
+        drawHistogram[bucketOf(nanos)]++;
+    }
+
+    @MainThread
+    void recordInvalidationRequested() {
+        invalidationsRequested++;
+    }
+
+    @MainThread
+    void recordInvalidationPerformed() {
+        invalidationsPerformed++;
+    }
+
+    @AnyThread
+    void recordReceiverEvent() {
+        RECEIVER_EVENTS.incrementAndGet(this);
+    }
+
+    /**
+     * 记录一次步进，offscreen 表示上一次步进之后没有绘制过
+     */
+    @MainThread
+    void recordAnimationTick(boolean offscreen) {
+        animationTicks++;
+        if (offscreen) {
+            offscreenAnimationTicks++;
+        }
+    }
+
+    /**
+     * 清零所有统计
+     */
+    @MainThread
+    public void reset() {
+        drawCount = 0;
+        drawTimeNanos = 0;
+        maxDrawTimeNanos = 0;
+        Arrays.fill(drawHistogram, 0);
+        invalidationsRequested = 0;
+        invalidationsPerformed = 0;
+        receiverEvents = 0;
+        animationTicks = 0;
+        offscreenAnimationTicks = 0;
+    }
+
+    /**
+     * 复制一份当前的统计，用于上报
+     */
+    @NonNull
+    @MainThread
+    public Snapshot snapshot() {
+        return new Snapshot(this);
+    }
+
+    /**
+     * 某一时刻的统计快照，不可变
+     */
+    public static final class Snapshot {
+        private final long drawCount;
+        private final long drawTimeNanos;
+        private final long maxDrawTimeNanos;
+        private final long[] drawHistogram;
+        private final long invalidationsRequested;
+        private final long invalidationsPerformed;
+        private final long receiverEvents;
+        private final long animationTicks;
+        private final long offscreenAnimationTicks;
+
+        Snapshot(BatteryMetrics metrics) {
+            drawCount = metrics.drawCount;
+            drawTimeNanos = metrics.drawTimeNanos;
+            maxDrawTimeNanos = metrics.maxDrawTimeNanos;
+            drawHistogram = metrics.drawHistogram.clone();
+            invalidationsRequested = metrics.invalidationsRequested;
+            invalidationsPerformed = metrics.invalidationsPerformed;
+            receiverEvents = metrics.receiverEvents;
+            animationTicks = metrics.animationTicks;
+            offscreenAnimationTicks = metrics.offscreenAnimationTicks;
+        }
+
+        /**
+         * 获取绘制次数
+         */
+        public long getDrawCount() {
+            return drawCount;
+        }
+
+        /**
+         * 获取绘制总耗时，单位纳秒
+         */
+        public long getDrawTimeNanos() {
+            return drawTimeNanos;
+        }
+
+        /**
+         * 获取单次绘制的最大耗时，单位纳秒
+         */
+        public long getMaxDrawTimeNanos() {
+            return maxDrawTimeNanos;
+        }
+
+        /**
+         * 获取第 index 个桶的绘制次数，桶的范围见 getBucketUpperBound
+         */
+        public long getDrawHistogram(int index) {
+            return drawHistogram[index];
+        }
+
+        /**
+         * 获取请求刷新的次数
+         */
+        public long getInvalidationsRequested() {
+            return invalidationsRequested;
+        }
+
+        /**
+         * 获取请求刷新后真正绘制的次数
+         */
+        public long getInvalidationsPerformed() {
+            return invalidationsPerformed;
+        }
+
+        /**
+         * 获取收到电池状态的次数
+         */
+        public long getReceiverEvents() {
+            return receiverEvents;
+        }
+
+        /**
+         * 获取充电步进动画前进的次数
+         */
+        public long getAnimationTicks() {
+            return animationTicks;
+        }
+
+        /**
+         * 获取不在屏幕上时步进动画前进的次数
+         */
+        public long getOffscreenAnimationTicks() {
+            return offscreenAnimationTicks;
+        }
+
+        /**
+         * JSON 格式，方便直接上报
+         */
+        @NonNull
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(256);
+            sb.append("{\"drawCount\":").append(drawCount)
+                    .append(",\"drawTimeNanos\":").append(drawTimeNanos)
+                    .append(",\"maxDrawTimeNanos\":").append(maxDrawTimeNanos)
+                    .append(",\"drawHistogram\":[");
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                sb.append(drawHistogram[i]);
+            }
+            sb.append("],\"invalidationsRequested\":").append(invalidationsRequested)
+                    .append(",\"invalidationsPerformed\":").append(invalidationsPerformed)
+                    .append(",\"receiverEvents\":").append(receiverEvents)
+                    .append(",\"animationTicks\":").append(animationTicks)
+                    .append(",\"offscreenAnimationTicks\":").append(offscreenAnimationTicks)
+                    .append('}');
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.zhumj.batteryview;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Build;
+import android.os.PowerManager;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.RequiresApi;
+
+import java.util.ArrayList;
+
+/**
+ * @Description : 进程内共享的绘制质量监听
+ * 根据省电模式和设备温度状态（Android 10+）给出绘制质量等级，开启自适应质量的 BatteryView 按等级降低动画频率、关闭抗锯齿。
+ * 第一个监听者加入时注册省电模式广播和温度监听，最后一个监听者离开时注销。只能在主线程使用。
+ */
+public final class BatteryQualityMonitor {
+
+    /**
+     * 完整质量
+     */
+    public static final int QUALITY_FULL = 0;
+    /**
+     * 降低质量：步进动画减半，关闭抗锯齿
+     */
+    public static final int QUALITY_REDUCED = 1;
+    /**
+     * 最低质量：停止步进动画、显示真实电量，关闭抗锯齿
+     */
+    public static final int QUALITY_MINIMAL = 2;
+
+    /**
+     * 质量等级变化监听
+     */
+    public interface OnQualityChangeListener {
+        void onQualityChanged(int quality);
+    }
+
+    private static BatteryQualityMonitor instance;
+
+    private final PowerManager powerManager;
+    private final Context appContext;
+    private final ArrayList<OnQualityChangeListener> listeners = new ArrayList<>();
+    //分发时使用的副本，避免回调里增删监听者导致异常
+    private OnQualityChangeListener[] dispatchBuffer = new OnQualityChangeListener[4];
+    private int quality = QUALITY_FULL;
+
+    private final BroadcastReceiver powerSaveReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            if (PowerManager.ACTION_POWER_SAVE_MODE_CHANGED.equals(intent.getAction())) {
+                update();
+            }
+        }
+    };
+
+    //温度监听只在 Android 10+ 使用，用 Object 保存避免低版本加载接口类
+    private Object thermalListener;
+
+    private BatteryQualityMonitor(Context context) {
+        this.appContext = context.getApplicationContext() != null ? context.getApplicationContext() : context;
+        this.powerManager = (PowerManager) appContext.getSystemService(Context.POWER_SERVICE);
+    }
+
+    @MainThread
+    public static BatteryQualityMonitor getInstance(@NonNull Context context) {
+        if (instance == null) {
+            instance = new BatteryQualityMonitor(context);
+        }
+        return instance;
+    }
+
+    /**
+     * 省电模式和温度状态对应的质量等级
+     */
+    static int computeQuality(boolean powerSave, int thermalStatus) {
+        if (powerSave || thermalStatus >= PowerManager.THERMAL_STATUS_SEVERE) {
+            return QUALITY_MINIMAL;
+        }
+        if (thermalStatus >= PowerManager.THERMAL_STATUS_MODERATE) {
+            return QUALITY_REDUCED;
+        }
+        return QUALITY_FULL;
+    }
+
+    /**
+     * 添加监听，加入时立即回调一次当前等级
+     */
+    @MainThread
+    public void addListener(@NonNull OnQualityChangeListener listener) {
+        if (listeners.contains(listener)) {
+            return;
+        }
+        listeners.add(listener);
+        if (listeners.size() == 1) {
+            register();
+        }
+        listener.onQualityChanged(quality);
+    }
+
+    /**
+     * 移除监听，没有监听者时注销广播和温度监听
+     */
+    @MainThread
+    public void removeListener(@NonNull OnQualityChangeListener listener) {
+        if (listeners.remove(listener) && listeners.isEmpty()) {
+            unregister();
+        }
+    }
+
+    /**
+     * 获取当前质量等级，没有监听者时直接查询一次
+     */
+    @MainThread
+    public int getQuality() {
+        return listeners.isEmpty() ? readQuality() : quality;
+    }
+
+    private void register() {
+        appContext.registerReceiver(powerSaveReceiver, new IntentFilter(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED));
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && powerManager != null) {
+            addThermalListener();
+        }
+        quality = readQuality();
+    }
+
+    private void unregister() {
+        appContext.unregisterReceiver(powerSaveReceiver);
+        if (thermalListener != null) {
+            removeThermalListener();
+        }
+    }
+
+    @RequiresApi(Build.VERSION_CODES.Q)
+    private void addThermalListener() {
+        PowerManager.OnThermalStatusChangedListener listener = status -> update();
+        thermalListener = listener;
+        powerManager.addThermalStatusListener(listener);
+    }
+
+    @RequiresApi(Build.VERSION_CODES.Q)
+    private void removeThermalListener() {
+        powerManager.removeThermalStatusListener((PowerManager.OnThermalStatusChangedListener) thermalListener);
+        thermalListener = null;
+    }
+
+    private int readQuality() {
+        if (powerManager == null) {
+            return QUALITY_FULL;
+        }
+        int thermalStatus = Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q
+                ? powerManager.getCurrentThermalStatus() : PowerManager.THERMAL_STATUS_NONE;
+        return computeQuality(powerManager.isPowerSaveMode(), thermalStatus);
+    }
+
+    /**
+     * 省电模式或温度状态变化，等级变化时通知所有监听者
+     */
+    private void update() {
+        int newQuality = readQuality();
+        if (newQuality == quality) {
+            return;
+        }
+        quality = newQuality;
+        int size = listeners.size();
+        if (dispatchBuffer.length < size) {
+            dispatchBuffer = new OnQualityChangeListener[Math.max(size, dispatchBuffer.length * 2)];
+        }
+        OnQualityChangeListener[] buffer = listeners.toArray(dispatchBuffer);
+        for (int i = 0; i < size; i++) {
+            OnQualityChangeListener listener = buffer[i];
+            buffer[i] = null;
+            listener.onQualityChanged(newQuality);
+        }
+    }
+}
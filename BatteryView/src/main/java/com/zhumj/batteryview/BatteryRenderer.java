@@ -0,0 +1,100 @@
+package com.zhumj.batteryview;
+
+import android.content.ComponentCallbacks2;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.util.LruCache;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+
+/**
+ * @Description : 离屏电池渲染器，不需要 View，直接生成 Bitmap，适用于通知栏、桌面小部件（RemoteViews）等场景
+ * 绘制和 BatteryView 使用同一个 BatteryDrawable 的代码，结果逐像素一致；
+ * 渲染结果按（尺寸、电量等级、充电状态、充电动画、样式）缓存在 LRU 中，按字节数限制大小。
+ * 渲染和修改样式共用同一个 BatteryDrawable，没有加锁，只能在主线程使用。
+ */
+public class BatteryRenderer {
+
+    /**
+     * 默认缓存大小，单位字节
+     */
+    public static final int DEFAULT_CACHE_SIZE = 4 * 1024 * 1024;
+
+    //只用来离屏渲染，不要设置给 View
+    private final BatteryDrawable drawable = new BatteryDrawable();
+
+    private final LruCache<BatteryCacheKey, Bitmap> cache;
+
+    public BatteryRenderer() {
+        this(DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @param maxCacheBytes 缓存大小，单位字节
+     */
+    public BatteryRenderer(int maxCacheBytes) {
+        cache = new LruCache<BatteryCacheKey, Bitmap>(maxCacheBytes) {
+            @Override
+            protected int sizeOf(BatteryCacheKey key, Bitmap value) {
+                return value.getByteCount();
+            }
+        };
+    }
+
+    /**
+     * 获取渲染使用的 BatteryDrawable，通过它的 setter 设置方向、颜色、尺寸等，修改后旧的缓存自然失效
+     */
+    @MainThread
+    @NonNull
+    public BatteryDrawable getDrawable() {
+        return drawable;
+    }
+
+    /**
+     * 渲染电池位图，相同参数会直接返回缓存的位图，调用方不要修改或回收它
+     *
+     * @param width        宽度，单位像素
+     * @param height       高度，单位像素
+     * @param power        电量，会按 BatteryView 的规则分级
+     * @param charging     是否处于充电状态
+     * @param chargingMode 充电状态动画，BatteryView.LIGHTNING 或 BatteryView.STEP
+     */
+    @MainThread
+    @NonNull
+    public Bitmap render(int width, int height, int power, boolean charging, int chargingMode) {
+        int level = drawable.verifyPower(power);
+        BatteryCacheKey key = drawable.getCacheKey(width, height, level, charging ? 1 : 0, charging ? chargingMode : 0);
+        Bitmap bitmap = cache.get(key);
+        if (bitmap == null) {
+            bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            drawable.setBounds(0, 0, width, height);
+            drawable.drawStatic(new Canvas(bitmap), level, charging, chargingMode);
+            cache.put(key, bitmap);
+        }
+        return bitmap;
+    }
+
+    /**
+     * 设置缓存大小，单位字节
+     */
+    public void setCacheSize(int maxBytes) {
+        cache.resize(maxBytes);
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void evictAll() {
+        cache.evictAll();
+    }
+
+    /**
+     * 内存紧张时清空缓存，可在 Application 的 onTrimMemory 中调用
+     */
+    public void trimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            cache.evictAll();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.zhumj.batteryview;
+
+import android.graphics.LinearGradient;
+import android.graphics.RectF;
+import android.graphics.Shader;
+import android.util.LruCache;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.MainThread;
+
+/**
+ * @Description : 内部渐变填充的 Shader 缓存
+ * 渐变覆盖整个内部区域，从空电一端到满电一端，电量变化时只改变填充的长度，不需要新的 Shader。
+ * 相同尺寸、方向和颜色节点的电池共用一个 Shader，只在尺寸或样式变化时查找。
+ */
+final class BatteryShaderCache {
+
+    private static final LruCache<BatteryCacheKey, Shader> CACHE = new LruCache<>(32);
+
+    private BatteryShaderCache() {
+    }
+
+    @MainThread
+    static Shader obtain(RectF insideRect, int orientation, @ColorInt int[] stops) {
+        int[] values = new int[5 + stops.length];
+        values[0] = orientation;
+        values[1] = Float.floatToIntBits(insideRect.left);
+        values[2] = Float.floatToIntBits(insideRect.top);
+        values[3] = Float.floatToIntBits(insideRect.right);
+        values[4] = Float.floatToIntBits(insideRect.bottom);
+        System.arraycopy(stops, 0, values, 5, stops.length);
+        BatteryCacheKey key = new BatteryCacheKey(values);
+        Shader shader = CACHE.get(key);
+        if (shader == null) {
+            shader = create(insideRect, orientation, stops);
+            CACHE.put(key, shader);
+        }
+        return shader;
+    }
+
+    private static Shader create(RectF insideRect, int orientation, int[] stops) {
+        int[] colors = stops.length == 1 ? new int[]{stops[0], stops[0]} : stops.clone();
+        if (orientation == BatteryView.VERTICAL) {
+            // 竖向从底部（空电）到顶部（满电）
+            return new LinearGradient(insideRect.left, insideRect.bottom, insideRect.left, insideRect.top,
+                    colors, null, Shader.TileMode.CLAMP);
+        }
+        return new LinearGradient(insideRect.left, insideRect.top, insideRect.right, insideRect.top,
+                colors, null, Shader.TileMode.CLAMP);
+    }
+}
@@ -0,0 +1,111 @@
+package com.zhumj.batteryview;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
+/**
+ * @Description : 电量历史曲线
+ * 第 i 个采样和前一个采样之间的线段保存在和采样相同的位置上，线段之间互不依赖，用 drawLines 一次画完，顺序无关。
+ * 新采样只写一条线段，最旧的采样被覆盖时它的线段也一起被覆盖，不需要重建整条曲线；
+ * x 坐标相对一个固定的基准段，绘制时整体平移，让最新的采样落在最右边。
+ */
+final class BatterySparkline {
+
+    //x 坐标离基准太远时重建，避免 float 精度不够
+    private static final long REBASE_BUCKETS = 1 << 20;
+
+    private final BatteryHistory history;
+    //每条线段 4 个值：x0, y0, x1, y1
+    private final float[] lines;
+    private float width;
+    private float height;
+    //每段的像素宽度
+    private float step;
+    //x 坐标为 0 的段
+    private long baseBucket;
+
+    BatterySparkline(BatteryHistory history) {
+        this.history = history;
+        this.lines = new float[history.getCapacity() * 4];
+    }
+
+    BatteryHistory getHistory() {
+        return history;
+    }
+
+    /**
+     * 设置曲线区域的大小，重建所有线段
+     */
+    void setSize(float width, float height) {
+        if (this.width == width && this.height == height) {
+            return;
+        }
+        this.width = width;
+        this.height = height;
+        int capacity = history.getCapacity();
+        step = capacity > 1 ? width / (capacity - 1) : 0;
+        rebuild();
+    }
+
+    /**
+     * 添加一个采样，只更新这个采样的线段，返回是否发生了变化
+     */
+    boolean add(long time, int level, int scale) {
+        int result = history.put(time, level, scale);
+        if (result == BatteryHistory.UNCHANGED) {
+            return false;
+        }
+        int last = history.size() - 1;
+        if (bucketOf(last) - baseBucket > REBASE_BUCKETS) {
+            rebuild();
+        } else {
+            writeLine(last);
+        }
+        return true;
+    }
+
+    /**
+     * 以 (left, top) 为左上角画曲线，超出区域的部分裁掉
+     */
+    void draw(Canvas canvas, float left, float top, Paint paint) {
+        int size = history.size();
+        if (size == 0) {
+            return;
+        }
+        int saveCount = canvas.save();
+        canvas.clipRect(left, top, left + width, top + height);
+        canvas.translate(left + width - (bucketOf(size - 1) - baseBucket) * step, top);
+        canvas.drawLines(lines, 0, size * 4, paint);
+        canvas.restoreToCount(saveCount);
+    }
+
+    private long bucketOf(int index) {
+        return history.getTime(index) / history.getBucketMillis();
+    }
+
+    private void rebuild() {
+        int size = history.size();
+        baseBucket = size > 0 ? bucketOf(0) : 0;
+        for (int i = 0; i < size; i++) {
+            writeLine(i);
+        }
+    }
+
+    /**
+     * 写第 index 个采样和前一个采样之间的线段，最旧的采样没有前一个，写成长度为 0 的线段
+     */
+    private void writeLine(int index) {
+        int offset = history.slotOf(index) * 4;
+        float x = (bucketOf(index) - baseBucket) * step;
+        float y = height * (1 - history.getLevel(index) / (float) BatteryHistory.MAX_LEVEL);
+        if (index == 0) {
+            lines[offset] = x;
+            lines[offset + 1] = y;
+        } else {
+            lines[offset] = (bucketOf(index - 1) - baseBucket) * step;
+            lines[offset + 1] = height * (1 - history.getLevel(index - 1) / (float) BatteryHistory.MAX_LEVEL);
+        }
+        lines[offset + 2] = x;
+        lines[offset + 3] = y;
+    }
+}
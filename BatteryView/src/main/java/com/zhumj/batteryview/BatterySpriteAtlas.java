@@ -0,0 +1,118 @@
+package com.zhumj.batteryview;
+
+import android.content.ComponentCallbacks2;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.util.LruCache;
+
+import androidx.annotation.Nullable;
+
+/**
+ * @Description : 电池精灵图集
+ * 电量只有有限个等级（默认 11 个），显示状态只有正常（含低电量）、充电闪电、充电步进三种，
+ * 同一尺寸和样式下所有可能的图像是有限的。把它们一次性画到一张共享位图里，之后每次绘制只需要一次 drawBitmap。
+ * 图集按尺寸和样式缓存在 LRU 中，按字节数限制总大小，单个图集超过总大小时不使用图集。
+ */
+final class BatterySpriteAtlas {
+
+    /**
+     * 图集最多支持的电量等级数量，等级更多（或连续显示）时不使用图集
+     */
+    static final int MAX_BUCKET_COUNT = 21;
+    /**
+     * 显示状态：正常（低电量颜色由等级决定）
+     */
+    static final int STATE_NORMAL = 0;
+    /**
+     * 显示状态：充电中，闪电
+     */
+    static final int STATE_LIGHTNING = 1;
+    /**
+     * 显示状态：充电中，步进动画
+     */
+    static final int STATE_STEP = 2;
+    static final int STATE_COUNT = 3;
+
+    /**
+     * 默认缓存大小，单位字节
+     */
+    static final int DEFAULT_CACHE_SIZE = 8 * 1024 * 1024;
+
+    private static final LruCache<BatteryCacheKey, BatterySpriteAtlas> CACHE = new LruCache<BatteryCacheKey, BatterySpriteAtlas>(DEFAULT_CACHE_SIZE) {
+        @Override
+        protected int sizeOf(BatteryCacheKey key, BatterySpriteAtlas value) {
+            return value.bitmap.getByteCount();
+        }
+    };
+
+    final Bitmap bitmap;
+    private final int cellWidth;
+    private final int cellHeight;
+    private final Rect srcRect = new Rect();
+
+    private BatterySpriteAtlas(int bucketCount, int cellWidth, int cellHeight) {
+        this.cellWidth = cellWidth;
+        this.cellHeight = cellHeight;
+        this.bitmap = Bitmap.createBitmap(cellWidth * bucketCount, cellHeight * STATE_COUNT, Bitmap.Config.ARGB_8888);
+    }
+
+    /**
+     * 获取图集，缓存中没有时用 renderer 渲染所有等级和状态；
+     * 图集的字节数超过缓存大小时不创建，返回 null，由调用方按矢量方式绘制
+     */
+    @Nullable
+    static BatterySpriteAtlas obtain(BatteryCacheKey key, BatteryDrawable renderer, int bucketCount, int cellWidth, int cellHeight) {
+        if (!fitsCache(bucketCount, cellWidth, cellHeight)) {
+            return null;
+        }
+        BatterySpriteAtlas atlas = CACHE.get(key);
+        if (atlas == null) {
+            atlas = new BatterySpriteAtlas(bucketCount, cellWidth, cellHeight);
+            Canvas canvas = new Canvas(atlas.bitmap);
+            for (int state = 0; state < STATE_COUNT; state++) {
+                for (int bucket = 0; bucket < bucketCount; bucket++) {
+                    int saveCount = canvas.save();
+                    canvas.translate(bucket * cellWidth, state * cellHeight);
+                    renderer.drawCell(canvas, bucket, state);
+                    canvas.restoreToCount(saveCount);
+                }
+            }
+            CACHE.put(key, atlas);
+        }
+        return atlas;
+    }
+
+    /**
+     * 图集位图的字节数是否不超过缓存大小，用 long 计算避免大尺寸时溢出
+     */
+    static boolean fitsCache(int bucketCount, int cellWidth, int cellHeight) {
+        long byteCount = (long) cellWidth * bucketCount * cellHeight * STATE_COUNT * 4;
+        return byteCount <= CACHE.maxSize();
+    }
+
+    /**
+     * 从图集中画出一个格子
+     */
+    void draw(Canvas canvas, int bucket, int state, Rect dst, Paint paint) {
+        srcRect.set(bucket * cellWidth, state * cellHeight, (bucket + 1) * cellWidth, (state + 1) * cellHeight);
+        canvas.drawBitmap(bitmap, srcRect, dst, paint);
+    }
+
+    /**
+     * 设置缓存大小，单位字节
+     */
+    static void setCacheSize(int maxBytes) {
+        CACHE.resize(maxBytes);
+    }
+
+    /**
+     * 内存紧张时清空缓存
+     */
+    static void trimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            CACHE.evictAll();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.zhumj.batteryview;
+
+import android.content.Intent;
+import android.os.BatteryManager;
+
+import androidx.annotation.NonNull;
+
+/**
+ * @Description : 电池状态快照，不可变，由 ACTION_BATTERY_CHANGED 广播解析一次后共享给所有 View
+ */
+public final class BatteryState {
+
+    private final int level;//当前电量
+    private final int scale;//电量最大值
+    private final int status;//电池状态，BatteryManager.BATTERY_STATUS_*
+
+    public BatteryState(int level, int scale, int status) {
+        this.level = level;
+        this.scale = scale;
+        this.status = status;
+    }
+
+    /**
+     * 解析电量广播
+     */
+    @NonNull
+    public static BatteryState fromIntent(@NonNull Intent intent) {
+        return new BatteryState(
+                intent.getIntExtra(BatteryManager.EXTRA_LEVEL, 0),
+                intent.getIntExtra(BatteryManager.EXTRA_SCALE, 100),
+                intent.getIntExtra(BatteryManager.EXTRA_STATUS, BatteryManager.BATTERY_STATUS_UNKNOWN)
+        );
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public int getScale() {
+        return scale;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * 是否处于充电状态，充满也算充电状态
+     */
+    public boolean isCharging() {
+        return status == BatteryManager.BATTERY_STATUS_CHARGING || status == BatteryManager.BATTERY_STATUS_FULL;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof BatteryState)) return false;
+        BatteryState that = (BatteryState) o;
+        return level == that.level && scale == that.scale && status == that.status;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = level;
+        result = 31 * result + scale;
+        result = 31 * result + status;
+        return result;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "BatteryState{level=" + level + ", scale=" + scale + ", status=" + status + '}';
+    }
+}
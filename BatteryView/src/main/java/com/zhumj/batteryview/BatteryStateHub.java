@@ -0,0 +1,121 @@
+package com.zhumj.batteryview;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * @Description : 进程内共享的系统电量来源
+ * 所有 BatteryView 共用一个 ACTION_BATTERY_CHANGED 接收器，广播只解析一次，再分发给各个监听者。
+ * 第一个监听者加入时注册广播，最后一个监听者离开时注销广播。
+ */
+public final class BatteryStateHub extends BaseBatteryStateSource {
+
+    private static volatile BatteryStateHub instance;
+
+    private final Context appContext;
+    private volatile boolean isRegistered;
+    //收到的广播次数和实际分发的次数
+    private int receivedCount;
+    private int dispatchedCount;
+
+    private final BroadcastReceiver batteryReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            if (Intent.ACTION_BATTERY_CHANGED.equals(intent.getAction())) {
+                receivedCount++;
+                // 温度、电压变化也会发送这个广播，电量、最大电量和充电状态都没变时不分发
+                dispatch(BatteryState.fromIntent(intent));
+            }
+        }
+    };
+
+    private BatteryStateHub(Context context) {
+        this.appContext = context.getApplicationContext() != null ? context.getApplicationContext() : context;
+    }
+
+    public static BatteryStateHub getInstance(@NonNull Context context) {
+        if (instance == null) {
+            synchronized (BatteryStateHub.class) {
+                if (instance == null) {
+                    instance = new BatteryStateHub(context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 第一个监听者加入时注册广播，并用粘性广播作为初始状态
+     */
+    @Override
+    protected void onActive() {
+        isRegistered = true;
+        Intent sticky = appContext.registerReceiver(batteryReceiver, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        if (sticky != null) {
+            setState(BatteryState.fromIntent(sticky));
+        }
+    }
+
+    /**
+     * 最后一个监听者离开时注销广播
+     */
+    @Override
+    protected void onInactive() {
+        isRegistered = false;
+        appContext.unregisterReceiver(batteryReceiver);
+    }
+
+    /**
+     * 获取当前电池状态，未注册广播时读取一次粘性广播
+     */
+    @Nullable
+    @Override
+    public BatteryState getState() {
+        BatteryState current = super.getState();
+        if (current == null || !isRegistered) {
+            Intent sticky = appContext.registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+            if (sticky != null) {
+                current = BatteryState.fromIntent(sticky);
+                setState(current);
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 获取进程内最近一次知道的电池状态，不读取粘性广播，没有时返回 null
+     * 注销广播后也会保留，新创建的 View 可以直接用它画第一帧
+     */
+    @Nullable
+    public BatteryState getLastKnownState() {
+        return super.getState();
+    }
+
+    /**
+     * 获取收到的电量广播次数
+     */
+    public int getReceivedCount() {
+        return receivedCount;
+    }
+
+    /**
+     * 获取实际分发给监听者的次数，和收到的次数之差就是因为状态没变化而被过滤掉的广播
+     */
+    public int getDispatchedCount() {
+        return dispatchedCount;
+    }
+
+    /**
+     * 分发新的电池状态，和上一次相同时不分发
+     */
+    void dispatch(BatteryState newState) {
+        if (publishIfChanged(newState)) {
+            dispatchedCount++;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.zhumj.batteryview;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * @Description : 电池状态来源
+ * 系统电量（BatteryStateHub）、手动设置（ManualBatteryStateSource）、脚本模拟（SimulatedBatteryStateSource），
+ * 也可以自己实现，例如蓝牙外设、远程设备的电量。
+ * 回调可能发生在任意线程，BatteryView 收到后会合并到下一帧统一处理，同一帧内只保留最后一次。
+ */
+public interface BatteryStateSource {
+
+    /**
+     * 电池状态变化监听，可能在任意线程回调
+     */
+    interface Listener {
+        void onBatteryStateChanged(@NonNull BatteryState state);
+    }
+
+    /**
+     * 添加监听，已有状态时立即回调一次
+     */
+    @AnyThread
+    void addListener(@NonNull Listener listener);
+
+    /**
+     * 移除监听
+     */
+    @AnyThread
+    void removeListener(@NonNull Listener listener);
+
+    /**
+     * 获取当前状态，还没有状态时返回 null
+     */
+    @Nullable
+    @AnyThread
+    BatteryState getState();
+}
@@ -0,0 +1,776 @@
+package com.zhumj.batteryview;
+
+import android.content.res.TypedArray;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.util.LruCache;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * @Description : 电池样式，不可变，可以被任意多个 BatteryView、BatteryDrawable 共享
+ * 保存所有尺寸、颜色，以及按显示状态（正常、低电量、充电）配置好的画笔，绘制时只选择画笔，不再修改画笔；
+ * 同一个主题和样式资源只解析一次，单个 View 修改某个属性时复制一份新的样式（写时复制）。
+ * 相同内容的样式通过 Builder.build() 共用同一个实例。
+ */
+public final class BatteryStyle {
+
+    //相同内容的样式共用一个实例，以构建器的属性为键，命中时不创建画笔和查找表
+    private static final LruCache<Builder, BatteryStyle> INTERNED = new LruCache<>(64);
+
+    /**
+     * 过渡动画默认的最大帧率
+     */
+    public static final int DEFAULT_TRANSITION_MAX_FPS = 30;
+    /**
+     * 历史曲线默认的时间窗口，单位分钟
+     */
+    public static final int DEFAULT_HISTORY_WINDOW = 24 * 60;
+
+    /**
+     * 默认样式
+     */
+    public static final BatteryStyle DEFAULT = new Builder().build();
+
+    final int orientation;
+    final int intrinsicWidth;
+    final int intrinsicHeight;
+    final int maxPower;
+    final float borderWidth;
+    final float borderRadius;
+    final @ColorInt int borderColor;
+    final float headWidth;
+    final float headHeight;
+    final float headPadding;
+    final @ColorInt int headColor;
+    final float insidePadding;
+    final float insideRadius;
+    final int chargingAnimMode;
+    final @ColorInt int lowPowerColor;
+    final @ColorInt int highPowerColor;
+    final @ColorInt int chargingColor;
+    final boolean chromeCache;
+    final boolean spriteAtlas;
+    final int transitionDuration;
+    final int transitionMaxFps;
+    final int fillMode;
+    //内部颜色节点，没有设置时为 null，使用 lowPowerColor 到 highPowerColor
+    final @ColorInt int[] fillColors;
+    final boolean showLabel;
+    final float labelTextSize;
+    final @ColorInt int labelColor;
+    final Typeface labelTypeface;
+    final int historyMode;
+    //历史曲线的时间窗口，单位分钟
+    final int historyWindow;
+    final @ColorInt int historyColor;
+
+    //电量分级查找表
+    final BatteryLevels levels;
+    //实际使用的颜色节点
+    final @ColorInt int[] fillStops;
+    //按电量插值的颜色查找表，只在 FILL_LEVEL 模式下创建
+    final BatteryColorTable colorTable;
+
+    //按显示状态配置好的画笔，创建后不再修改
+    final Paint borderPaint;//正常状态外框
+    final Paint lowBorderPaint;//低电量外框
+    final Paint chargingBorderPaint;//充电外框
+    final Paint headPaint;//正常状态电池头
+    final Paint insidePaint;//正常状态内部
+    final Paint lowFillPaint;//低电量电池头和内部
+    final Paint chargingFillPaint;//充电电池头、步进动画内部、闪电
+    final Paint chargingDimFillPaint;//闪电模式下半透明的内部
+    final Paint historyPaint;//历史曲线
+
+    //创建时属性的副本，用作缓存的键和比较内容，创建后不再修改
+    private final Builder key;
+    private final int hashCode;
+
+    private BatteryStyle(Builder b) {
+        orientation = b.orientation;
+        intrinsicWidth = b.intrinsicWidth;
+        intrinsicHeight = b.intrinsicHeight;
+        maxPower = b.maxPower;
+        borderWidth = b.borderWidth;
+        borderRadius = b.borderRadius;
+        borderColor = b.borderColor;
+        headWidth = b.headWidth;
+        headHeight = b.headHeight;
+        headPadding = b.headPadding;
+        headColor = b.headColor;
+        insidePadding = b.insidePadding;
+        insideRadius = b.insideRadius;
+        chargingAnimMode = b.chargingAnimMode;
+        lowPowerColor = b.lowPowerColor;
+        highPowerColor = b.highPowerColor;
+        chargingColor = b.chargingColor;
+        chromeCache = b.chromeCache;
+        spriteAtlas = b.spriteAtlas;
+        transitionDuration = b.transitionDuration;
+        transitionMaxFps = b.transitionMaxFps;
+        fillMode = b.fillMode;
+        fillColors = b.fillColors;
+        showLabel = b.showLabel;
+        labelTextSize = b.labelTextSize;
+        labelColor = b.labelColor;
+        labelTypeface = b.labelTypeface;
+        historyMode = b.historyMode;
+        historyWindow = b.historyWindow;
+        historyColor = b.historyColor;
+        levels = new BatteryLevels(b.maxPower, b.levels);
+        fillStops = fillColors != null ? fillColors : new int[]{lowPowerColor, highPowerColor};
+        colorTable = fillMode == BatteryView.FILL_LEVEL ? new BatteryColorTable(levels, fillStops) : null;
+
+        borderPaint = strokePaint(borderColor, borderWidth);
+        lowBorderPaint = strokePaint(lowPowerColor, borderWidth);
+        chargingBorderPaint = strokePaint(chargingColor, borderWidth);
+        headPaint = fillPaint(headColor);
+        insidePaint = fillPaint(highPowerColor);
+        lowFillPaint = fillPaint(lowPowerColor);
+        chargingFillPaint = fillPaint(chargingColor);
+        chargingDimFillPaint = fillPaint(chargingColor);
+        chargingDimFillPaint.setAlpha(72);
+        historyPaint = strokePaint(historyColor, Math.max(1, borderWidth / 2));
+
+        key = new Builder(this);
+        hashCode = key.hashCode();
+    }
+
+    private static Paint strokePaint(@ColorInt int color, float width) {
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setStyle(Paint.Style.STROKE);
+        paint.setStrokeWidth(width);
+        paint.setColor(color);
+        return paint;
+    }
+
+    private static Paint fillPaint(@ColorInt int color) {
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setStyle(Paint.Style.FILL);
+        paint.setColor(color);
+        return paint;
+    }
+
+    /**
+     * 从 BatteryView 的样式属性解析，没有设置的属性使用默认值
+     */
+    @NonNull
+    static BatteryStyle fromAttributes(@NonNull TypedArray a) {
+        Builder b = new Builder();
+        // 横向时默认尺寸和电池头宽高会互换
+        b.setOrientation(a.getInt(R.styleable.BatteryView_orientation, BatteryView.VERTICAL));
+
+        b.setIntrinsicWidth((int) a.getDimension(R.styleable.BatteryView_minWidth, b.intrinsicWidth));
+        b.setIntrinsicHeight((int) a.getDimension(R.styleable.BatteryView_minHeight, b.intrinsicHeight));
+        b.setMaxPower(a.getInt(R.styleable.BatteryView_maxPower, 100));
+        b.setLevels(a.getInt(R.styleable.BatteryView_levels, BatteryLevels.DEFAULT_LEVELS));
+
+        b.setBorderWidth(a.getDimension(R.styleable.BatteryView_border_width, 6));
+        b.setBorderRadius(a.getDimension(R.styleable.BatteryView_border_radius, 6));
+        b.setBorderColor(a.getColor(R.styleable.BatteryView_border_color, Color.BLACK));
+
+        b.setHeadWidth(a.getDimension(R.styleable.BatteryView_head_width, b.headWidth));
+        b.setHeadHeight(a.getDimension(R.styleable.BatteryView_head_height, b.headHeight));
+        b.setHeadPadding(a.getDimension(R.styleable.BatteryView_head_padding, 4));
+        b.setHeadColor(a.getColor(R.styleable.BatteryView_head_color, Color.BLACK));
+
+        b.setInsidePadding(a.getDimension(R.styleable.BatteryView_inside_padding, 4));
+        b.setInsideRadius(a.getDimension(R.styleable.BatteryView_inside_radius, 4));
+
+        b.setChargingAnimMode(a.getInt(R.styleable.BatteryView_chargingMode, BatteryView.LIGHTNING));
+
+        b.setLowPowerColor(a.getColor(R.styleable.BatteryView_lowPowerColor, Color.RED));
+        b.setHighPowerColor(a.getColor(R.styleable.BatteryView_highPowerColor, Color.BLACK));
+        b.setChargingColor(a.getColor(R.styleable.BatteryView_chargingColor, Color.GREEN));
+        b.setChromeCache(a.getBoolean(R.styleable.BatteryView_chromeCache, false));
+        b.setSpriteAtlas(a.getBoolean(R.styleable.BatteryView_spriteAtlas, false));
+        b.setTransitionDuration(a.getInt(R.styleable.BatteryView_transitionDuration, 0));
+        b.setTransitionMaxFps(a.getInt(R.styleable.BatteryView_transitionMaxFps, DEFAULT_TRANSITION_MAX_FPS));
+        b.setFillMode(a.getInt(R.styleable.BatteryView_fillMode, BatteryView.FILL_SOLID));
+        int fillColorsId = a.getResourceId(R.styleable.BatteryView_fillColors, 0);
+        if (fillColorsId != 0) {
+            b.setFillColors(a.getResources().getIntArray(fillColorsId));
+        }
+        b.setShowLabel(a.getBoolean(R.styleable.BatteryView_showLabel, false));
+        b.setLabelTextSize(a.getDimension(R.styleable.BatteryView_labelTextSize, 0));
+        b.setLabelColor(a.getColor(R.styleable.BatteryView_labelColor, Color.GRAY));
+        b.setHistoryMode(a.getInt(R.styleable.BatteryView_historyMode, BatteryView.HISTORY_NONE));
+        b.setHistoryWindow(a.getInt(R.styleable.BatteryView_historyWindow, DEFAULT_HISTORY_WINDOW));
+        b.setHistoryColor(a.getColor(R.styleable.BatteryView_historyColor, Color.GRAY));
+        return b.build();
+    }
+
+    /**
+     * 复制当前样式的所有属性，用来修改个别属性
+     */
+    @NonNull
+    public Builder toBuilder() {
+        return new Builder(this);
+    }
+
+    public int getOrientation() {
+        return orientation;
+    }
+
+    public int getIntrinsicWidth() {
+        return intrinsicWidth;
+    }
+
+    public int getIntrinsicHeight() {
+        return intrinsicHeight;
+    }
+
+    public int getMaxPower() {
+        return maxPower;
+    }
+
+    public int getLevels() {
+        return levels.levels;
+    }
+
+    public float getBorderWidth() {
+        return borderWidth;
+    }
+
+    public float getBorderRadius() {
+        return borderRadius;
+    }
+
+    public int getBorderColor() {
+        return borderColor;
+    }
+
+    public float getHeadWidth() {
+        return headWidth;
+    }
+
+    public float getHeadHeight() {
+        return headHeight;
+    }
+
+    public float getHeadPadding() {
+        return headPadding;
+    }
+
+    public int getHeadColor() {
+        return headColor;
+    }
+
+    public float getInsidePadding() {
+        return insidePadding;
+    }
+
+    public float getInsideRadius() {
+        return insideRadius;
+    }
+
+    public int getChargingAnimMode() {
+        return chargingAnimMode;
+    }
+
+    public int getLowPowerColor() {
+        return lowPowerColor;
+    }
+
+    public int getHighPowerColor() {
+        return highPowerColor;
+    }
+
+    public int getChargingColor() {
+        return chargingColor;
+    }
+
+    public boolean isChromeCache() {
+        return chromeCache;
+    }
+
+    public boolean isSpriteAtlas() {
+        return spriteAtlas;
+    }
+
+    public int getTransitionDuration() {
+        return transitionDuration;
+    }
+
+    public int getTransitionMaxFps() {
+        return transitionMaxFps;
+    }
+
+    public int getFillMode() {
+        return fillMode;
+    }
+
+    /**
+     * 获取内部颜色节点，没有设置时返回 null
+     */
+    @Nullable
+    public int[] getFillColors() {
+        return fillColors != null ? fillColors.clone() : null;
+    }
+
+    public boolean isShowLabel() {
+        return showLabel;
+    }
+
+    public float getLabelTextSize() {
+        return labelTextSize;
+    }
+
+    public int getLabelColor() {
+        return labelColor;
+    }
+
+    @Nullable
+    public Typeface getLabelTypeface() {
+        return labelTypeface;
+    }
+
+    public int getHistoryMode() {
+        return historyMode;
+    }
+
+    public int getHistoryWindow() {
+        return historyWindow;
+    }
+
+    public int getHistoryColor() {
+        return historyColor;
+    }
+
+    /**
+     * 尺寸相关的属性是否相同，相同时几何信息不需要重新计算
+     */
+    boolean sameGeometry(BatteryStyle other) {
+        return orientation == other.orientation
+                && Float.compare(borderWidth, other.borderWidth) == 0
+                && Float.compare(headWidth, other.headWidth) == 0
+                && Float.compare(headHeight, other.headHeight) == 0
+                && Float.compare(headPadding, other.headPadding) == 0
+                && Float.compare(insidePadding, other.insidePadding) == 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof BatteryStyle)) return false;
+        BatteryStyle s = (BatteryStyle) o;
+        return hashCode == s.hashCode && key.equals(s.key);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    /**
+     * 样式构建器
+     */
+    public static final class Builder {
+        private int orientation = BatteryView.VERTICAL;
+        private int intrinsicWidth = 72;
+        private int intrinsicHeight = 135;
+        private int maxPower = 100;
+        private int levels = BatteryLevels.DEFAULT_LEVELS;
+        private float borderWidth = 6;
+        private float borderRadius = 6;
+        private @ColorInt int borderColor = Color.BLACK;
+        private float headWidth = 36;
+        private float headHeight = 8;
+        private float headPadding = 4;
+        private @ColorInt int headColor = Color.BLACK;
+        private float insidePadding = 4;
+        private float insideRadius = 4;
+        private int chargingAnimMode = BatteryView.LIGHTNING;
+        private @ColorInt int lowPowerColor = Color.RED;
+        private @ColorInt int highPowerColor = Color.BLACK;
+        private @ColorInt int chargingColor = Color.GREEN;
+        private boolean chromeCache;
+        private boolean spriteAtlas;
+        private int transitionDuration;
+        private int transitionMaxFps = DEFAULT_TRANSITION_MAX_FPS;
+        private int fillMode = BatteryView.FILL_SOLID;
+        private @ColorInt int[] fillColors;
+        private boolean showLabel;
+        private float labelTextSize;
+        private @ColorInt int labelColor = Color.GRAY;
+        private Typeface labelTypeface;
+        private int historyMode = BatteryView.HISTORY_NONE;
+        private int historyWindow = DEFAULT_HISTORY_WINDOW;
+        private @ColorInt int historyColor = Color.GRAY;
+
+        public Builder() {
+        }
+
+        private Builder(BatteryStyle s) {
+            orientation = s.orientation;
+            intrinsicWidth = s.intrinsicWidth;
+            intrinsicHeight = s.intrinsicHeight;
+            maxPower = s.maxPower;
+            levels = s.levels.levels;
+            borderWidth = s.borderWidth;
+            borderRadius = s.borderRadius;
+            borderColor = s.borderColor;
+            headWidth = s.headWidth;
+            headHeight = s.headHeight;
+            headPadding = s.headPadding;
+            headColor = s.headColor;
+            insidePadding = s.insidePadding;
+            insideRadius = s.insideRadius;
+            chargingAnimMode = s.chargingAnimMode;
+            lowPowerColor = s.lowPowerColor;
+            highPowerColor = s.highPowerColor;
+            chargingColor = s.chargingColor;
+            chromeCache = s.chromeCache;
+            spriteAtlas = s.spriteAtlas;
+            transitionDuration = s.transitionDuration;
+            transitionMaxFps = s.transitionMaxFps;
+            fillMode = s.fillMode;
+            fillColors = s.fillColors;
+            showLabel = s.showLabel;
+            labelTextSize = s.labelTextSize;
+            labelColor = s.labelColor;
+            labelTypeface = s.labelTypeface;
+            historyMode = s.historyMode;
+            historyWindow = s.historyWindow;
+            historyColor = s.historyColor;
+        }
+
+        /**
+         * 设置方向，vertical：0，horizontal：1；方向变化时默认尺寸和电池头宽高会互换
+         */
+        @NonNull
+        public Builder setOrientation(int orientation) {
+            if (this.orientation != orientation) {
+                int width = intrinsicWidth;
+                intrinsicWidth = intrinsicHeight;
+                intrinsicHeight = width;
+
+                float head = headWidth;
+                headWidth = headHeight;
+                headHeight = head;
+
+                this.orientation = orientation;
+            }
+            return this;
+        }
+
+        @NonNull
+        public Builder setIntrinsicWidth(int intrinsicWidth) {
+            this.intrinsicWidth = intrinsicWidth;
+            return this;
+        }
+
+        @NonNull
+        public Builder setIntrinsicHeight(int intrinsicHeight) {
+            this.intrinsicHeight = intrinsicHeight;
+            return this;
+        }
+
+        @NonNull
+        public Builder setMaxPower(int maxPower) {
+            this.maxPower = maxPower;
+            return this;
+        }
+
+        /**
+         * 设置电量等级数量，0 表示连续显示
+         */
+        @NonNull
+        public Builder setLevels(int levels) {
+            if (levels < 0) {
+                throw new IllegalArgumentException("levels must be >= 0");
+            }
+            this.levels = levels;
+            return this;
+        }
+
+        @NonNull
+        public Builder setBorderWidth(float borderWidth) {
+            this.borderWidth = borderWidth;
+            return this;
+        }
+
+        @NonNull
+        public Builder setBorderRadius(float borderRadius) {
+            this.borderRadius = borderRadius;
+            return this;
+        }
+
+        @NonNull
+        public Builder setBorderColor(@ColorInt int borderColor) {
+            this.borderColor = borderColor;
+            return this;
+        }
+
+        @NonNull
+        public Builder setHeadWidth(float headWidth) {
+            this.headWidth = headWidth;
+            return this;
+        }
+
+        @NonNull
+        public Builder setHeadHeight(float headHeight) {
+            this.headHeight = headHeight;
+            return this;
+        }
+
+        @NonNull
+        public Builder setHeadPadding(float headPadding) {
+            this.headPadding = headPadding;
+            return this;
+        }
+
+        @NonNull
+        public Builder setHeadColor(@ColorInt int headColor) {
+            this.headColor = headColor;
+            return this;
+        }
+
+        @NonNull
+        public Builder setInsidePadding(float insidePadding) {
+            this.insidePadding = insidePadding;
+            return this;
+        }
+
+        @NonNull
+        public Builder setInsideRadius(float insideRadius) {
+            this.insideRadius = insideRadius;
+            return this;
+        }
+
+        @NonNull
+        public Builder setChargingAnimMode(int chargingAnimMode) {
+            this.chargingAnimMode = chargingAnimMode;
+            return this;
+        }
+
+        @NonNull
+        public Builder setLowPowerColor(@ColorInt int lowPowerColor) {
+            this.lowPowerColor = lowPowerColor;
+            return this;
+        }
+
+        @NonNull
+        public Builder setHighPowerColor(@ColorInt int highPowerColor) {
+            this.highPowerColor = highPowerColor;
+            return this;
+        }
+
+        @NonNull
+        public Builder setChargingColor(@ColorInt int chargingColor) {
+            this.chargingColor = chargingColor;
+            return this;
+        }
+
+        @NonNull
+        public Builder setChromeCache(boolean chromeCache) {
+            this.chromeCache = chromeCache;
+            return this;
+        }
+
+        @NonNull
+        public Builder setSpriteAtlas(boolean spriteAtlas) {
+            this.spriteAtlas = spriteAtlas;
+            return this;
+        }
+
+        /**
+         * 设置电量变化的过渡动画时长，单位毫秒，0 表示不使用过渡动画
+         */
+        @NonNull
+        public Builder setTransitionDuration(int transitionDuration) {
+            if (transitionDuration < 0) {
+                throw new IllegalArgumentException("transitionDuration must be >= 0");
+            }
+            this.transitionDuration = transitionDuration;
+            return this;
+        }
+
+        /**
+         * 设置过渡动画的最大帧率
+         */
+        @NonNull
+        public Builder setTransitionMaxFps(int transitionMaxFps) {
+            if (transitionMaxFps <= 0) {
+                throw new IllegalArgumentException("transitionMaxFps must be > 0");
+            }
+            this.transitionMaxFps = transitionMaxFps;
+            return this;
+        }
+
+        /**
+         * 设置内部填充方式：FILL_SOLID 低电量和正常两种颜色，FILL_LEVEL 按电量插值的单色，FILL_GRADIENT 线性渐变
+         */
+        @NonNull
+        public Builder setFillMode(int fillMode) {
+            this.fillMode = fillMode;
+            return this;
+        }
+
+        /**
+         * 设置内部颜色节点，从空电到满电均匀分布；null 表示使用 lowPowerColor 到 highPowerColor
+         */
+        @NonNull
+        public Builder setFillColors(@Nullable @ColorInt int... fillColors) {
+            if (fillColors != null && fillColors.length == 0) {
+                throw new IllegalArgumentException("fillColors must not be empty");
+            }
+            this.fillColors = fillColors != null ? fillColors.clone() : null;
+            return this;
+        }
+
+        /**
+         * 设置是否在电池内部显示电量百分比
+         */
+        @NonNull
+        public Builder setShowLabel(boolean showLabel) {
+            this.showLabel = showLabel;
+            return this;
+        }
+
+        /**
+         * 设置百分比文字大小，0 表示按内部区域自动计算；放不下时会自动缩小
+         */
+        @NonNull
+        public Builder setLabelTextSize(float labelTextSize) {
+            this.labelTextSize = labelTextSize;
+            return this;
+        }
+
+        @NonNull
+        public Builder setLabelColor(@ColorInt int labelColor) {
+            this.labelColor = labelColor;
+            return this;
+        }
+
+        @NonNull
+        public Builder setLabelTypeface(@Nullable Typeface labelTypeface) {
+            this.labelTypeface = labelTypeface;
+            return this;
+        }
+
+        /**
+         * 设置历史曲线显示方式：HISTORY_NONE 不显示，HISTORY_INSIDE 画在电池内部
+         */
+        @NonNull
+        public Builder setHistoryMode(int historyMode) {
+            this.historyMode = historyMode;
+            return this;
+        }
+
+        /**
+         * 设置历史曲线的时间窗口，单位分钟，默认 24 小时
+         */
+        @NonNull
+        public Builder setHistoryWindow(int historyWindow) {
+            if (historyWindow <= 0) {
+                throw new IllegalArgumentException("historyWindow must be > 0");
+            }
+            this.historyWindow = historyWindow;
+            return this;
+        }
+
+        @NonNull
+        public Builder setHistoryColor(@ColorInt int historyColor) {
+            this.historyColor = historyColor;
+            return this;
+        }
+
+        /**
+         * 按所有属性比较，用作样式缓存的键
+         */
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Builder)) return false;
+            Builder b = (Builder) o;
+            return orientation == b.orientation
+                    && intrinsicWidth == b.intrinsicWidth
+                    && intrinsicHeight == b.intrinsicHeight
+                    && maxPower == b.maxPower
+                    && levels == b.levels
+                    && Float.compare(borderWidth, b.borderWidth) == 0
+                    && Float.compare(borderRadius, b.borderRadius) == 0
+                    && borderColor == b.borderColor
+                    && Float.compare(headWidth, b.headWidth) == 0
+                    && Float.compare(headHeight, b.headHeight) == 0
+                    && Float.compare(headPadding, b.headPadding) == 0
+                    && headColor == b.headColor
+                    && Float.compare(insidePadding, b.insidePadding) == 0
+                    && Float.compare(insideRadius, b.insideRadius) == 0
+                    && chargingAnimMode == b.chargingAnimMode
+                    && lowPowerColor == b.lowPowerColor
+                    && highPowerColor == b.highPowerColor
+                    && chargingColor == b.chargingColor
+                    && chromeCache == b.chromeCache
+                    && spriteAtlas == b.spriteAtlas
+                    && transitionDuration == b.transitionDuration
+                    && transitionMaxFps == b.transitionMaxFps
+                    && fillMode == b.fillMode
+                    && Arrays.equals(fillColors, b.fillColors)
+                    && showLabel == b.showLabel
+                    && Float.compare(labelTextSize, b.labelTextSize) == 0
+                    && labelColor == b.labelColor
+                    && labelTypeface == b.labelTypeface
+                    && historyMode == b.historyMode
+                    && historyWindow == b.historyWindow
+                    && historyColor == b.historyColor;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = orientation;
+            result = 31 * result + intrinsicWidth;
+            result = 31 * result + intrinsicHeight;
+            result = 31 * result + maxPower;
+            result = 31 * result + levels;
+            result = 31 * result + Float.floatToIntBits(borderWidth);
+            result = 31 * result + Float.floatToIntBits(borderRadius);
+            result = 31 * result + borderColor;
+            result = 31 * result + Float.floatToIntBits(headWidth);
+            result = 31 * result + Float.floatToIntBits(headHeight);
+            result = 31 * result + Float.floatToIntBits(headPadding);
+            result = 31 * result + headColor;
+            result = 31 * result + Float.floatToIntBits(insidePadding);
+            result = 31 * result + Float.floatToIntBits(insideRadius);
+            result = 31 * result + chargingAnimMode;
+            result = 31 * result + lowPowerColor;
+            result = 31 * result + highPowerColor;
+            result = 31 * result + chargingColor;
+            result = 31 * result + (chromeCache ? 1 : 0);
+            result = 31 * result + (spriteAtlas ? 1 : 0);
+            result = 31 * result + transitionDuration;
+            result = 31 * result + transitionMaxFps;
+            result = 31 * result + fillMode;
+            result = 31 * result + Arrays.hashCode(fillColors);
+            result = 31 * result + (showLabel ? 1 : 0);
+            result = 31 * result + Float.floatToIntBits(labelTextSize);
+            result = 31 * result + labelColor;
+            result = 31 * result + System.identityHashCode(labelTypeface);
+            result = 31 * result + historyMode;
+            result = 31 * result + historyWindow;
+            result = 31 * result + historyColor;
+            return result;
+        }
+
+        /**
+         * 创建样式，已有相同内容的样式时直接返回已有的实例，不再创建画笔和查找表
+         */
+        @NonNull
+        public BatteryStyle build() {
+            BatteryStyle interned = INTERNED.get(this);
+            if (interned != null) {
+                return interned;
+            }
+            BatteryStyle style = new BatteryStyle(this);
+            INTERNED.put(style.key, style);
+            return style;
+        }
+    }
+}
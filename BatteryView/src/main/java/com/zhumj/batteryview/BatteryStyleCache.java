@@ -0,0 +1,100 @@
+package com.zhumj.batteryview;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.util.AttributeSet;
+import android.util.SparseArray;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.WeakHashMap;
+
+/**
+ * @Description : 按 (主题, style 资源) 缓存解析好的 BatteryStyle
+ * 布局里只引用 style 的 BatteryView 只在第一次解析 TypedArray，之后直接共用同一个 BatteryStyle；
+ * 在布局里直接写了 BatteryView 属性的不缓存，每次单独解析。主题被回收后缓存一起释放。
+ */
+final class BatteryStyleCache {
+
+    /**
+     * 解析结果
+     */
+    static final class Entry {
+        final BatteryStyle style;
+        final boolean autoDetect;
+        final boolean adaptiveQuality;
+
+        Entry(BatteryStyle style, boolean autoDetect, boolean adaptiveQuality) {
+            this.style = style;
+            this.autoDetect = autoDetect;
+            this.adaptiveQuality = adaptiveQuality;
+        }
+    }
+
+    private static final WeakHashMap<Resources.Theme, SparseArray<Entry>> CACHE = new WeakHashMap<>();
+
+    private BatteryStyleCache() {
+    }
+
+    /**
+     * 获取 attrs 对应的样式，可以缓存时从缓存中取
+     */
+    @MainThread
+    @NonNull
+    static Entry obtain(@NonNull Context context, @Nullable AttributeSet attrs) {
+        Resources.Theme theme = context.getTheme();
+        if (theme == null || hasInlineAttrs(attrs)) {
+            return resolve(context, attrs);
+        }
+        int styleRes = attrs != null ? attrs.getStyleAttribute() : 0;
+        SparseArray<Entry> styles = CACHE.get(theme);
+        if (styles == null) {
+            styles = new SparseArray<>();
+            CACHE.put(theme, styles);
+        }
+        Entry entry = styles.get(styleRes);
+        if (entry == null) {
+            entry = resolve(context, attrs);
+            styles.put(styleRes, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * 清空缓存，主题属性在运行时被修改后调用
+     */
+    @MainThread
+    static void clear() {
+        CACHE.clear();
+    }
+
+    private static Entry resolve(Context context, @Nullable AttributeSet attrs) {
+        TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.BatteryView);
+        try {
+            return new Entry(BatteryStyle.fromAttributes(a),
+                    a.getBoolean(R.styleable.BatteryView_isAutoDetect, true),
+                    a.getBoolean(R.styleable.BatteryView_adaptiveQuality, false));
+        } finally {
+            a.recycle();
+        }
+    }
+
+    /**
+     * 布局里是否直接写了 BatteryView 的属性，R.styleable 中的属性 id 是升序的
+     */
+    private static boolean hasInlineAttrs(@Nullable AttributeSet attrs) {
+        if (attrs == null) {
+            return false;
+        }
+        for (int i = 0, count = attrs.getAttributeCount(); i < count; i++) {
+            if (Arrays.binarySearch(R.styleable.BatteryView, attrs.getAttributeNameResource(i)) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,191 @@
+package com.zhumj.batteryview;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * @Description : 预计充满、用完时间
+ * 每次电量变化时用这一格用掉的时间算出瞬时速率，再按时间做指数加权平均，半衰期为 halfLife；
+ * 只保存上一次电量变化的时间和电量，不保存历史采样，每个采样 O(1)、不分配对象。
+ * 充放电切换时速率清零，之后第一次电量变化只作为起点（不知道切换时在一格中的位置），第二次变化开始估算；
+ * 电量最大值变化时保留速率（按比例计算，和最大值无关），重新找起点。
+ * 不是线程安全的，需要在同一个线程中调用。
+ */
+public final class BatteryTimeEstimator {
+
+    /**
+     * 还无法估算
+     */
+    public static final long UNKNOWN = -1;
+    /**
+     * 默认半衰期，单位毫秒
+     */
+    public static final long DEFAULT_HALF_LIFE = 10 * 60_000L;
+
+    /**
+     * 估算结果变化监听
+     */
+    public interface OnEstimateChangeListener {
+        /**
+         * @param timeToFull  预计充满时间，单位毫秒，没在充电或者无法估算时为 UNKNOWN
+         * @param timeToEmpty 预计用完时间，单位毫秒，充电中或者无法估算时为 UNKNOWN
+         */
+        void onEstimateChanged(long timeToFull, long timeToEmpty);
+    }
+
+    private final long halfLife;
+    private OnEstimateChangeListener listener;
+
+    //最近一次采样
+    private boolean hasSample;
+    private boolean isCharging;
+    private int level;
+    private int scale;
+    private long lastTime;
+    //上一次电量变化的时间和电量，充放电切换、最大值变化之后要等到下一次电量变化才有
+    private boolean hasAnchor;
+    private long anchorTime;
+    private int anchorLevel;
+    //电量变化速率，单位：满电的比例 / 毫秒，0 表示未知
+    private double rate;
+
+    private long timeToFull = UNKNOWN;
+    private long timeToEmpty = UNKNOWN;
+
+    public BatteryTimeEstimator() {
+        this(DEFAULT_HALF_LIFE);
+    }
+
+    /**
+     * @param halfLife 半衰期，单位毫秒，越小越跟随最近的变化
+     */
+    public BatteryTimeEstimator(long halfLife) {
+        if (halfLife <= 0) {
+            throw new IllegalArgumentException("halfLife must be > 0");
+        }
+        this.halfLife = halfLife;
+    }
+
+    /**
+     * 设置估算结果变化的回调，在调用 onSample 的线程回调
+     */
+    public void setOnEstimateChangeListener(@Nullable OnEstimateChangeListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 输入一个电池状态
+     *
+     * @param time 采样时间，单位毫秒，通常是 SystemClock.elapsedRealtime()
+     */
+    public void onSample(long time, @NonNull BatteryState state) {
+        onSample(time, state.getLevel(), state.getScale(), state.isCharging());
+    }
+
+    /**
+     * 输入一个采样，时间必须递增
+     *
+     * @param time     采样时间，单位毫秒，通常是 SystemClock.elapsedRealtime()
+     * @param level    电量
+     * @param scale    电量最大值
+     * @param charging 是否充电
+     */
+    public void onSample(long time, int level, int scale, boolean charging) {
+        if (scale <= 0 || (hasSample && time < lastTime)) {
+            return;
+        }
+        if (!hasSample || charging != isCharging) {
+            // 方向变了，之前的速率没有意义
+            rate = 0;
+            hasAnchor = false;
+        } else if (scale != this.scale) {
+            hasAnchor = false;
+        } else if (level != this.level) {
+            if (hasAnchor && time > anchorTime && (charging ? level > anchorLevel : level < anchorLevel)) {
+                long elapsed = time - anchorTime;
+                double instant = Math.abs(level - anchorLevel) / (double) scale / elapsed;
+                // 间隔越长，这一次的权重越大
+                double weight = rate == 0 ? 1 : 1 - Math.pow(0.5, elapsed / (double) halfLife);
+                rate += weight * (instant - rate);
+            }
+            hasAnchor = true;
+            anchorTime = time;
+            anchorLevel = level;
+        }
+        hasSample = true;
+        isCharging = charging;
+        this.level = level;
+        this.scale = scale;
+        lastTime = time;
+        updateEstimate();
+    }
+
+    /**
+     * 清空所有状态
+     */
+    public void reset() {
+        hasSample = false;
+        hasAnchor = false;
+        rate = 0;
+        updateEstimate();
+    }
+
+    private void updateEstimate() {
+        long toFull = UNKNOWN;
+        long toEmpty = UNKNOWN;
+        if (hasSample) {
+            double effective = rate;
+            // 已经等了比一格更久还没变化，说明变慢了，速率最多按一格 / 已等待的时间算
+            long waited = lastTime - anchorTime;
+            if (hasAnchor && waited > 0) {
+                effective = Math.min(effective, 1.0 / scale / waited);
+            }
+            if (isCharging && level >= scale) {
+                toFull = 0;
+            } else if (effective > 0) {
+                double remaining = isCharging ? (scale - level) / (double) scale : level / (double) scale;
+                long millis = (long) (remaining / effective);
+                if (isCharging) {
+                    toFull = millis;
+                } else {
+                    toEmpty = millis;
+                }
+            }
+        }
+        if (toFull != timeToFull || toEmpty != timeToEmpty) {
+            timeToFull = toFull;
+            timeToEmpty = toEmpty;
+            if (listener != null) {
+                listener.onEstimateChanged(toFull, toEmpty);
+            }
+        }
+    }
+
+    /**
+     * 获取预计充满时间，单位毫秒，没在充电或者无法估算时返回 UNKNOWN，已经充满返回 0
+     */
+    public long getTimeToFull() {
+        return timeToFull;
+    }
+
+    /**
+     * 获取预计用完时间，单位毫秒，充电中或者无法估算时返回 UNKNOWN
+     */
+    public long getTimeToEmpty() {
+        return timeToEmpty;
+    }
+
+    /**
+     * 获取平均速率，单位：百分比 / 小时，无法估算时返回 0
+     */
+    public float getPercentPerHour() {
+        return (float) (rate * 100 * 3_600_000);
+    }
+
+    /**
+     * 获取最近一次采样是否在充电
+     */
+    public boolean isCharging() {
+        return isCharging;
+    }
+}
@@ -1,27 +1,36 @@
 package com.zhumj.batteryview;
 
-import android.content.BroadcastReceiver;
 import android.content.Context;
-import android.content.Intent;
-import android.content.IntentFilter;
-import android.content.res.TypedArray;
 import android.graphics.Canvas;
-import android.graphics.Color;
-import android.graphics.Paint;
-import android.graphics.Path;
-import android.graphics.RectF;
-import android.os.BatteryManager;
-import android.os.Handler;
+import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
+import android.os.Looper;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.os.SystemClock;
 import android.util.AttributeSet;
 import android.view.View;
 
+import androidx.annotation.AnyThread;
 import androidx.annotation.ColorInt;
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.ViewTreeLifecycleOwner;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * @Author Created by zhumj
  * @Date 2022/5/11 9:06
  * @Description : 电池电量View
+ * 绘制交给 BatteryDrawable，View 只负责测量、属性解析、系统电量监听和可见性管理
  */
 public class BatteryView extends View {
 
@@ -41,94 +50,103 @@ public class BatteryView extends View {
      * 充电状态动画：步进动画
      */
     public static final int STEP = 1;
+    /**
+     * 内部填充：低电量和正常两种颜色
+     */
+    public static final int FILL_SOLID = 0;
+    /**
+     * 内部填充：按电量在颜色节点之间插值的单色
+     */
+    public static final int FILL_LEVEL = 1;
+    /**
+     * 内部填充：从空电到满电的线性渐变
+     */
+    public static final int FILL_GRADIENT = 2;
+    /**
+     * 电量历史曲线：不显示
+     */
+    public static final int HISTORY_NONE = 0;
+    /**
+     * 电量历史曲线：画在电池内部
+     */
+    public static final int HISTORY_INSIDE = 1;
 
     private boolean isAutoDetect;//是否自动检测系统电量
-    private int orientation;//方向，vertical：0，horizontal：1
-
-    private int minWidth;//最小宽度
-    private int minHeight;//最大宽度
-
-    private Paint borderPaint;//电池外框的画笔
-    private float borderWidth;//电池外框宽度
-    private float borderRadius;//电池外框半径
-    private @ColorInt int borderColor;//电池外框颜色
 
-    private Paint headPaint; //电池头画笔
-    private float headWidth;//电池头宽度
-    private float headHeight;//电池头高度
-    private float headPadding;//电池头距电池外框的距离
-    private @ColorInt int headColor;// 电池头颜色
-
-    private Paint insidePaint; // 电池内部画笔
-    private float insidePadding; // 电池内框距外框的距离
-    private float insideRadius; // 电池内框四角半径
-
-    private Paint lightningPaint; // 电池内部画笔
-    private int chargingAnimMode;//充电状态动画，LIGHTNING = 0：闪电，STEP = 1：步进动画
-
-    private @ColorInt int lowPowerColor; // 低电量颜色
-    private @ColorInt int highPowerColor; // 高电量颜色
-    private @ColorInt int chargingColor; // 充电中颜色
-
-    //是否处于充电状态
-    private boolean isCharging;
-    //电量最大值
-    private int maxPower;
-    //电量
-    private int power;
-
-    private final Handler batteryHandler = new Handler();
-    /**
-     * 充电步进动画
-     */
-    private final Runnable chargingTask = () -> {
-        if (power >= maxPower) {
-            power = maxPower/5;
-        } else {
-            if (power == maxPower/5 || power == maxPower*2/5 || power == maxPower*3/5 || power == maxPower*4/5) {
-                power += maxPower/5;
-            } else {
-                if (power <= maxPower/5) {
-                    power = maxPower/5;
-                }
-                else if (power <= maxPower*2/5) {
-                    power = maxPower*2/5;
-                }
-                else if (power <= maxPower*3/5) {
-                    power = maxPower*3/5;
-                }
-                else if (power <= maxPower*4/5) {
-                    power = maxPower*4/5;
-                } else {
-                    power = maxPower;
-                }
-            }
+    //负责绘制的 Drawable
+    private final BatteryDrawable batteryDrawable = new BatteryDrawable();
+
+    //电池状态来源，null 时使用系统电量
+    private BatteryStateSource batteryStateSource;
+    //是否已订阅电池状态来源
+    private boolean isSubscribed;
+
+    //是否根据省电模式和设备温度自动降低绘制质量
+    private boolean isAdaptiveQuality;
+    //是否已订阅绘制质量监听
+    private boolean isQualitySubscribed;
+    private BatteryQualityMonitor.OnQualityChangeListener onQualityChangeListener;
+    private final BatteryQualityMonitor.OnQualityChangeListener qualityListener = this::applyQuality;
+
+    //扩展电池信息回调，设置之后才会轮询，只在 View 显示时轮询
+    private BatteryExtrasPoller.Listener onBatteryExtrasChangeListener;
+    private boolean isExtrasSubscribed;
+    private BatteryExtras batteryExtras;
+    private final BatteryExtrasPoller.Listener extrasListener = extras -> {
+        batteryExtras = extras;
+        if (onBatteryExtrasChangeListener != null) {
+            onBatteryExtrasChangeListener.onBatteryExtrasChanged(extras);
         }
-
-        invalidate();
     };
 
+    //预计充满、用完时间，由收到的电池状态驱动
+    private final BatteryTimeEstimator timeEstimator = new BatteryTimeEstimator();
+    //是否在电池内部显示预计时间，以及正在显示的分钟数，分钟数变化时才重新生成文字
+    private boolean isShowEstimate;
+    private long shownEstimateMinutes = BatteryTimeEstimator.UNKNOWN;
+
+    //手动设置的 LifecycleOwner，null 时使用 ViewTreeLifecycleOwner
+    private LifecycleOwner lifecycleOwner;
+    //当前正在观察的 LifecycleOwner
+    private LifecycleOwner observedLifecycleOwner;
+    private final LifecycleEventObserver lifecycleObserver = (source, event) -> onActiveChanged();
+    //等待下一帧应用的电池状态，同一帧内的多次更新只保留最后一次
+    private final AtomicReference<BatteryState> pendingState = new AtomicReference<>();
+    //电量更新统计
+    private final AtomicInteger receivedUpdateCount = new AtomicInteger();//收到的电池状态次数
+    private final AtomicInteger coalescedUpdateCount = new AtomicInteger();//同一帧内被合并掉的次数
+    private int skippedUpdateCount;//没有可见变化、不需要重绘的次数
+    //Drawable 请求了刷新、还没有绘制，用于统计请求和实际绘制的次数
+    private boolean isInvalidationPending;
+
+    private final Runnable applyStateTask = this::applyPendingState;
+
+    //setPower、setCharging、setMaxPower 设置的状态，打包成一个 long 原子更新，可以在任意线程设置
+    //低 30 位：电量，30~59 位：最大电量，60 位：是否充电
+    private static final int MAX_POWER_SHIFT = 30;
+    private static final long STATE_MASK = (1L << MAX_POWER_SHIFT) - 1;
+    private static final long CHARGING_BIT = 1L << 60;
+    private final AtomicLong requestedState = new AtomicLong();
+    //已经应用到 Drawable 的状态，只在主线程访问
+    private long appliedState;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final Runnable flushTask = this::flushState;
+
     /**
-     * 电量、充电状态监听
+     * 电量、充电状态监听，可能在任意线程回调；只记录状态，下一帧再统一处理
      */
-    private final BroadcastReceiver batteryReceiver = new BroadcastReceiver() {
-        @Override
-        public void onReceive(Context context, Intent intent) {
-            if (Intent.ACTION_BATTERY_CHANGED.equals(intent.getAction())) {
-                setMaxPower(intent.getIntExtra(BatteryManager.EXTRA_SCALE, 100));
-                int currentPower = intent.getIntExtra(BatteryManager.EXTRA_LEVEL, 0);
-                int status = intent.getIntExtra(BatteryManager.EXTRA_STATUS, BatteryManager.BATTERY_STATUS_UNKNOWN);
-                boolean currentCharging = status == BatteryManager.BATTERY_STATUS_CHARGING || status == BatteryManager.BATTERY_STATUS_FULL;
-                if (isCharging() != currentCharging) {
-                    setCharging(currentCharging);
-                } else {
-                    if (currentCharging && chargingAnimMode == STEP) {
-                        return;
-                    }
-                    setPower(currentPower);
-                }
-            }
+    private final BatteryStateSource.Listener batteryListener = state -> {
+        receivedUpdateCount.incrementAndGet();
+        BatteryMetrics metrics = batteryDrawable.getActiveMetrics();
+        if (metrics != null) {
+            metrics.recordReceiverEvent();
+        }
+        if (pendingState.getAndSet(state) != null) {
+            // 已经安排了下一帧处理，直接覆盖
+            coalescedUpdateCount.incrementAndGet();
+            return;
         }
+        postOnAnimation(applyStateTask);
     };
 
     public BatteryView(Context context) { this(context, null); }
@@ -139,88 +157,110 @@ public class BatteryView extends View {
         super(context, attrs, defStyleAttr);
 
         initAttrs(attrs);
-        initPaint();
-
-        if (isAutoDetect()) {
-            registerReceiver();
-        }
+        appliedState = packState(batteryDrawable.getPower(), batteryDrawable.getMaxPower(), batteryDrawable.isCharging());
+        requestedState.set(appliedState);
+        batteryDrawable.setCallback(this);
+        // 附着到窗口前不运行动画
+        batteryDrawable.setVisible(false, false);
+        updateDrawableBounds();
     }
 
     private void initAttrs(AttributeSet attrs) {
-        TypedArray a = getContext().obtainStyledAttributes(attrs, R.styleable.BatteryView);
-        isAutoDetect = a.getBoolean(R.styleable.BatteryView_isAutoDetect, true);
-        orientation = a.getInt(R.styleable.BatteryView_orientation, VERTICAL);
-
-        int defMinWidth = 72;
-        int defHeight = 135;
-        int defHeadWidth = 36;
-        int defHeadHeight = 8;
-        if (orientation == 1) {
-            defMinWidth = 135;
-            defHeight = 72;
-            defHeadWidth = 8;
-            defHeadHeight = 36;
+        // 同一主题、同一 style 的 BatteryView 共用解析好的样式
+        BatteryStyleCache.Entry entry = BatteryStyleCache.obtain(getContext(), attrs);
+        isAutoDetect = entry.autoDetect;
+        isAdaptiveQuality = entry.adaptiveQuality;
+        batteryDrawable.setBatteryStyle(entry.style);
+        batteryDrawable.setPower(entry.style.maxPower);
+        if (isAutoDetect) {
+            // 进程内已经有电池状态时直接使用，第一帧就是正确的电量，不需要等广播或者读取粘性广播
+            BatteryState state = BatteryStateHub.getInstance(getContext()).getLastKnownState();
+            if (state != null) {
+                batteryDrawable.setMaxPower(state.getScale());
+                batteryDrawable.setPower(state.getLevel());
+                batteryDrawable.setCharging(state.isCharging());
+            }
         }
+    }
 
-        minWidth = (int) a.getDimension(R.styleable.BatteryView_minWidth, defMinWidth);
-        minHeight = (int) a.getDimension(R.styleable.BatteryView_minHeight, defHeight);
-        maxPower = a.getInt(R.styleable.BatteryView_maxPower, 100);
-        power = maxPower;
-
-        borderWidth = a.getDimension(R.styleable.BatteryView_border_width, 6);
-        borderRadius = a.getDimension(R.styleable.BatteryView_border_radius, 6);
-        borderColor = a.getColor(R.styleable.BatteryView_border_color, Color.BLACK);
-
-        headWidth = a.getDimension(R.styleable.BatteryView_head_width, defHeadWidth);
-        headHeight = a.getDimension(R.styleable.BatteryView_head_height, defHeadHeight);
-        headPadding = a.getDimension(R.styleable.BatteryView_head_padding, 4);
-        headColor = a.getColor(R.styleable.BatteryView_head_color, Color.BLACK);
-
-        insidePadding = a.getDimension(R.styleable.BatteryView_inside_padding, 4);
-        insideRadius = a.getDimension(R.styleable.BatteryView_inside_radius, 4);
-
-        chargingAnimMode = a.getInt(R.styleable.BatteryView_chargingMode, LIGHTNING);
+    @Nullable
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        SavedState ss = new SavedState(super.onSaveInstanceState());
+        ss.power = batteryDrawable.getRealPower();
+        ss.maxPower = batteryDrawable.getMaxPower();
+        ss.isCharging = batteryDrawable.isCharging();
+        ss.stepPower = batteryDrawable.getPower();
+        return ss;
+    }
 
-        lowPowerColor = a.getColor(R.styleable.BatteryView_lowPowerColor, Color.RED);
-        highPowerColor = a.getColor(R.styleable.BatteryView_highPowerColor, Color.BLACK);
-        chargingColor = a.getColor(R.styleable.BatteryView_chargingColor, Color.GREEN);
-        a.recycle();
+    /**
+     * 恢复电量、充电状态和步进动画的进度；订阅电池状态时状态没变化就不会再重绘
+     */
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+        SavedState ss = (SavedState) state;
+        super.onRestoreInstanceState(ss.getSuperState());
+        batteryDrawable.setMaxPower(ss.maxPower);
+        batteryDrawable.setPower(ss.power);
+        batteryDrawable.setCharging(ss.isCharging);
+        batteryDrawable.setStepPower(ss.stepPower);
+        appliedState = packState(ss.power, ss.maxPower, ss.isCharging);
+        requestedState.set(appliedState);
     }
 
-    private void initPaint() {
-        //外框
-        borderPaint = new Paint();
-        borderPaint.setAntiAlias(true);
-        borderPaint.setStyle(Paint.Style.STROKE);
-        borderPaint.setStrokeWidth(borderWidth);
+    /**
+     * 保存的状态：真实电量、最大电量、充电状态和步进动画当前的电量
+     */
+    static class SavedState extends BaseSavedState {
+        int power;
+        int maxPower;
+        boolean isCharging;
+        int stepPower;
+
+        SavedState(Parcelable superState) {
+            super(superState);
+        }
 
-        //电池头
-        headPaint = new Paint();
-        headPaint.setAntiAlias(true);
-        headPaint.setStyle(Paint.Style.FILL);
+        private SavedState(Parcel in) {
+            super(in);
+            power = in.readInt();
+            maxPower = in.readInt();
+            isCharging = in.readInt() != 0;
+            stepPower = in.readInt();
+        }
 
-        //内部
-        insidePaint = new Paint();
-        insidePaint.setAntiAlias(true);
-        insidePaint.setStyle(Paint.Style.FILL);
+        @Override
+        public void writeToParcel(Parcel out, int flags) {
+            super.writeToParcel(out, flags);
+            out.writeInt(power);
+            out.writeInt(maxPower);
+            out.writeInt(isCharging ? 1 : 0);
+            out.writeInt(stepPower);
+        }
 
-        //闪电
-        lightningPaint = new Paint();
-        lightningPaint.setAntiAlias(true);
-        lightningPaint.setStyle(Paint.Style.FILL);
-    }
+        public static final Parcelable.Creator<SavedState> CREATOR = new Parcelable.Creator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(Parcel in) {
+                return new SavedState(in);
+            }
 
-    private void registerReceiver() {
-        IntentFilter filter = new IntentFilter();
-        filter.addAction(Intent.ACTION_BATTERY_CHANGED);//电量变化
-        getContext().registerReceiver(batteryReceiver, filter);
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
     }
 
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
         super.onMeasure(widthMeasureSpec, heightMeasureSpec);
-        int mMeasureWidth = measureSize(widthMeasureSpec, minWidth);
-        int mMeasureHeight = measureSize(heightMeasureSpec, minHeight);
+        int mMeasureWidth = measureSize(widthMeasureSpec, batteryDrawable.getIntrinsicWidth());
+        int mMeasureHeight = measureSize(heightMeasureSpec, batteryDrawable.getIntrinsicHeight());
         setMeasuredDimension(mMeasureWidth, mMeasureHeight);
     }
 
@@ -238,206 +278,159 @@ public class BatteryView extends View {
     }
 
     @Override
-    protected void onDraw(Canvas canvas) {
-        super.onDraw(canvas);
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        updateDrawableBounds();
+    }
 
-        insidePaint.setAlpha(255);
-        if (isCharging) {
-            borderPaint.setColor(chargingColor);
-            headPaint.setColor(chargingColor);
-            insidePaint.setColor(chargingColor);
+    @Override
+    public void setPadding(int left, int top, int right, int bottom) {
+        super.setPadding(left, top, right, bottom);
+        updateDrawableBounds();
+    }
 
-            if (chargingAnimMode == LIGHTNING) {
-                insidePaint.setAlpha(72);
-                lightningPaint.setColor(chargingColor);
-            }
-        } else {
-            if (power <= maxPower/10) {
-                borderPaint.setColor(lowPowerColor);
-                headPaint.setColor(lowPowerColor);
-                insidePaint.setColor(lowPowerColor);
-            } else {
-                borderPaint.setColor(borderColor);
-                headPaint.setColor(headColor);
-                insidePaint.setColor(highPowerColor);
-            }
-        }
+    @Override
+    public void setPaddingRelative(int start, int top, int end, int bottom) {
+        super.setPaddingRelative(start, top, end, bottom);
+        updateDrawableBounds();
+    }
 
-        if (orientation == VERTICAL) {
-            drawVertical(canvas);
-        } else {
-            drawHorizontal(canvas);
+    /**
+     * Drawable 绘制在去掉内边距后的区域
+     */
+    private void updateDrawableBounds() {
+        // 父类构造方法中也可能调用 setPadding，此时 Drawable 还没有创建
+        if (batteryDrawable == null) {
+            return;
         }
+        batteryDrawable.setBounds(getPaddingLeft(), getPaddingTop(),
+                getWidth() - getPaddingRight(), getHeight() - getPaddingBottom());
+    }
 
-        batteryHandler.removeCallbacks(chargingTask);
-        if (isCharging) {
-            if (chargingAnimMode == LIGHTNING) {
-                canvas.drawPath(getLightningPath(), lightningPaint);
-            } else {
-                batteryHandler.postDelayed(chargingTask, 1000);
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        if (isInvalidationPending) {
+            isInvalidationPending = false;
+            BatteryMetrics metrics = batteryDrawable.getActiveMetrics();
+            if (metrics != null) {
+                metrics.recordInvalidationPerformed();
             }
         }
+        batteryDrawable.draw(canvas);
     }
 
-    /**
-     * 画竖向电池
-     */
-    private void drawVertical(Canvas canvas) {
-        // 画外框
-        RectF borderRectF = new RectF(
-                borderWidth /2 + getPaddingLeft(),
-                borderWidth /2 + getPaddingTop() + headHeight + headPadding,
-                getWidth() - borderWidth /2 - getPaddingRight(),
-                getHeight() - borderWidth /2 - getPaddingBottom()
-        );
-        canvas.drawRoundRect(borderRectF, borderRadius, borderRadius, borderPaint);
-
-        // 画头部
-        RectF headRectF = new RectF(
-                (getWidth() - headWidth) / 2,
-                getPaddingTop(),
-                (getWidth() + headWidth) / 2,
-                getPaddingTop() + headHeight
-        );
-        canvas.drawRoundRect(headRectF, headHeight/2, headHeight/2, headPaint);
-
-        // 画内部
-        float insideHeight = getHeight() - getPaddingTop() - getPaddingBottom() - headHeight - headPadding - borderWidth*2 - insidePadding*2;
-        float insideTop = insideHeight * power / maxPower;
-        float mInsideRadius = insideRadius;
-        if (insideTop < mInsideRadius) {
-            mInsideRadius = insideTop;
-        }
-
-        RectF insideRectF = new RectF(
-                getPaddingLeft() + borderWidth + insidePadding,
-                getHeight() - getPaddingBottom() - borderWidth - insidePadding - insideTop,
-                getWidth() - getPaddingRight() - borderWidth - insidePadding,
-                getHeight() - getPaddingBottom() - borderWidth - insidePadding
-        );
-        canvas.drawRoundRect(insideRectF, mInsideRadius, mInsideRadius, insidePaint);
-    }
-
-    /**
-     * 画横向电池
-     */
-    private void drawHorizontal(Canvas canvas) {
-        // 画外框
-        RectF borderRectF = new RectF(
-                borderWidth /2 + getPaddingLeft(),
-                borderWidth /2 + getPaddingTop(),
-                getWidth() - borderWidth /2 - getPaddingRight() - headWidth - headPadding,
-                getHeight() - borderWidth /2 - getPaddingBottom()
-        );
-        canvas.drawRoundRect(borderRectF, borderRadius, borderRadius, borderPaint);
-
-        // 画头部
-        RectF headRectF = new RectF(
-                getWidth() - getPaddingRight() - headWidth,
-                (getHeight() - headHeight) / 2f,
-                getWidth() - getPaddingRight(),
-                (getHeight() + headHeight) / 2f
-        );
-        canvas.drawRoundRect(headRectF, headWidth/2, headWidth/2, headPaint);
-
-        // 画内部
-        float insideWidth = getWidth() - getPaddingLeft() - getPaddingRight() - headWidth - headPadding - borderWidth*2 - insidePadding*2;
-        float insideRight = insideWidth * power / maxPower;
-        float mInsideRadius = insideRadius;
-        if (insideWidth < mInsideRadius) {
-            mInsideRadius = insideRight;
-        }
-        RectF insideRectF = new RectF(
-                getPaddingLeft() + borderWidth + insidePadding,
-                getPaddingTop() + borderWidth + insidePadding,
-                getPaddingLeft() + borderWidth + insidePadding + insideRight,
-                getHeight() - getPaddingBottom() - borderWidth - insidePadding
-        );
-        canvas.drawRoundRect(insideRectF, mInsideRadius, mInsideRadius, insidePaint);
-    }
-
-    private Path getLightningPath() {
-        Path path = new Path();
-        if (orientation == VERTICAL) {
-            float lightningWidth = getWidth() - getPaddingLeft() - getPaddingRight() - borderWidth*2 - insidePadding*2;
-            float lightningPaddingH = lightningWidth/10;
-            lightningWidth = lightningWidth - lightningPaddingH*2;
-
-            float lightningHeight = getHeight() - getPaddingTop() - getPaddingBottom() - headHeight - headPadding - borderWidth*2 - insidePadding*2;
-            float lightningPaddingV = lightningHeight/10;
-            lightningHeight = lightningHeight - lightningPaddingV*2;
-
-            float startX = getPaddingLeft() + borderWidth + insidePadding + lightningPaddingH;
-            float startY = getPaddingTop() + headHeight + headPadding + borderWidth + insidePadding + lightningPaddingV;
-            path.moveTo(startX + lightningWidth*2/3, startY);
-            path.lineTo(startX + lightningWidth*2/3, startY + lightningHeight*2/5);
-            path.lineTo(startX + lightningWidth, startY + lightningHeight*2/5);
-            path.lineTo(startX + lightningWidth/3, startY + lightningHeight);
-            path.lineTo(startX + lightningWidth/3, startY + lightningHeight*3/5);
-            path.lineTo(startX, startY + lightningHeight*3/5);
-            path.lineTo(startX + lightningWidth*2/3, startY);
-        } else {
-            float lightningWidth = getWidth() - getPaddingLeft() - getPaddingRight() - headWidth - headPadding - borderWidth*2 - insidePadding*2;
-            float lightningPaddingH = lightningWidth/10;
-            lightningWidth = lightningWidth - lightningPaddingH*2;
+    @Override
+    public void invalidateDrawable(@NonNull Drawable drawable) {
+        if (drawable == batteryDrawable) {
+            BatteryMetrics metrics = batteryDrawable.getActiveMetrics();
+            if (metrics != null) {
+                metrics.recordInvalidationRequested();
+                isInvalidationPending = true;
+            }
+        }
+        super.invalidateDrawable(drawable);
+    }
 
-            float lightningHeight = getHeight() - getPaddingTop() - getPaddingBottom() - borderWidth*2 - insidePadding*2;
-            float lightningPaddingV = lightningHeight/10;
-            lightningHeight = lightningHeight - lightningPaddingV*2;
+    @Override
+    protected boolean verifyDrawable(@NonNull Drawable who) {
+        return who == batteryDrawable || super.verifyDrawable(who);
+    }
 
-            float startX = getPaddingLeft() + borderWidth + insidePadding + lightningPaddingH;
-            float startY = getPaddingTop() + borderWidth + insidePadding + lightningPaddingV;
-            path.moveTo(startX, startY + lightningHeight/3);
-            path.lineTo(startX + lightningWidth*2/5, startY + lightningHeight/3);
-            path.lineTo(startX + lightningWidth*2/5, startY);
-            path.lineTo(startX + lightningWidth, startY + lightningHeight*2/3);
-            path.lineTo(startX + lightningWidth*3/5, startY + lightningHeight*2/3);
-            path.lineTo(startX + lightningWidth*3/5, startY + lightningHeight);
-            path.lineTo(startX, startY + lightningHeight/3);
-        }
-        path.close();
-        return path;
+    /**
+     * 获取负责绘制的 Drawable
+     */
+    @NonNull
+    public BatteryDrawable getBatteryDrawable() {
+        return batteryDrawable;
     }
 
     /**
      * 获取当前电量
      */
     private int getCurrentPower() {
-        Intent batteryStatus = getContext().registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        BatteryState state = getBatteryStateSource().getState();
         //当前剩余电量
-        int level = batteryStatus.getIntExtra(BatteryManager.EXTRA_LEVEL, 0);
-        return verifyPower(level);
-    }
-
-    /**
-     * 验证数值，把电量分成 10 个等级
-     */
-    private int verifyPower(int power) {
-        int p;
-        if (power <= 0) {
-            p = 0;
-        } else if (power <= maxPower/10) {
-            p = maxPower/10;
-        } else if (power <= maxPower*2/10) {
-            p = maxPower/5;
-        } else if (power <= maxPower*3/10) {
-            p = maxPower*3/10;
-        } else if (power <= maxPower*4/10) {
-            p = maxPower*4/10;
-        } else if (power <= maxPower*5/10) {
-            p = maxPower*5/10;
-        } else if (power <= maxPower*6/10) {
-            p = maxPower*6/10;
-        } else if (power <= maxPower*7/10) {
-            p = maxPower*7/10;
-        } else if (power <= maxPower*8/10) {
-            p = maxPower*8/10;
-        } else if (power <= maxPower*9/10) {
-            p = maxPower*9/10;
+        return state != null ? state.getLevel() : 0;
+    }
+
+    /**
+     * 应用等待中的电池状态，电量等级、充电状态和最大电量都没变化时不重绘
+     */
+    private void applyPendingState() {
+        BatteryState state = pendingState.getAndSet(null);
+        if (state == null) {
+            return;
+        }
+        timeEstimator.onSample(SystemClock.elapsedRealtime(), state);
+        if (isShowEstimate) {
+            updateEstimateLabel();
+        }
+        boolean currentCharging = state.isCharging();
+        boolean chargingChanged = isChargingRequested() != currentCharging;
+        boolean scaleChanged = batteryDrawable.getMaxPower() != state.getScale();
+        if (!chargingChanged && !scaleChanged) {
+            // 充电步进动画中电量由动画控制；其余情况比较分级后的电量
+            if ((currentCharging && getChargingAnimMode() == STEP)
+                    || batteryDrawable.verifyPower(state.getLevel()) == batteryDrawable.getPower()) {
+                skippedUpdateCount++;
+                return;
+            }
+        }
+        setMaxPower(state.getScale());
+        if (chargingChanged) {
+            setCharging(currentCharging);
         } else {
-            p = maxPower;
+            if (currentCharging && getChargingAnimMode() == STEP) {
+                return;
+            }
+            setPower(state.getLevel());
         }
-        return p;
+    }
+
+    /**
+     * 获取收到的电池状态次数
+     */
+    public int getReceivedUpdateCount() {
+        return receivedUpdateCount.get();
+    }
+
+    /**
+     * 获取同一帧内被合并掉的电池状态次数
+     */
+    public int getCoalescedUpdateCount() {
+        return coalescedUpdateCount.get();
+    }
+
+    /**
+     * 获取没有可见变化、跳过重绘的电池状态次数
+     */
+    public int getSkippedUpdateCount() {
+        return skippedUpdateCount;
+    }
+
+    /**
+     * 清零电量更新统计
+     */
+    public void resetUpdateCounts() {
+        receivedUpdateCount.set(0);
+        coalescedUpdateCount.set(0);
+        skippedUpdateCount = 0;
+    }
+
+    /**
+     * 设置绘制和更新统计，null 表示使用 BatteryMetrics.setGlobal 设置的全局统计；都没有设置时不统计
+     */
+    public void setMetrics(@Nullable BatteryMetrics metrics) {
+        batteryDrawable.setMetrics(metrics);
+    }
+
+    /**
+     * 获取单独设置的统计
+     */
+    @Nullable
+    public BatteryMetrics getMetrics() {
+        return batteryDrawable.getMetrics();
     }
 
     /**
@@ -448,18 +441,27 @@ public class BatteryView extends View {
     }
 
     /**
-     * 获取当前充电状态
+     * 获取界面上当前显示的充电状态，其它线程设置的状态在下一帧生效后才会反映出来
      */
+    @MainThread
     public boolean isCharging() {
-        return isCharging;
+        return batteryDrawable.isCharging();
+    }
+
+    /**
+     * 获取最近一次设置的充电状态，包括其它线程设置、还没在界面上生效的状态
+     */
+    @AnyThread
+    public boolean isChargingRequested() {
+        return (requestedState.get() & CHARGING_BIT) != 0;
     }
 
     public int getOrientation() {
-        return orientation;
+        return batteryDrawable.getOrientation();
     }
 
     public int getChargingAnimMode() {
-        return chargingAnimMode;
+        return batteryDrawable.getChargingAnimMode();
     }
 
     /**
@@ -468,30 +470,263 @@ public class BatteryView extends View {
     public void setAutoDetect(boolean autoDetect) {
         if (isAutoDetect() != autoDetect) {
             isAutoDetect = autoDetect;
-            if (autoDetect) {
-                registerReceiver();
+            updateSubscription();
+        }
+    }
+
+    /**
+     * 设置电池状态来源，例如外设、远程设备的电量；null 表示使用系统电量
+     * 只有 isAutoDetect 为 true 时才会订阅
+     */
+    public void setBatteryStateSource(@Nullable BatteryStateSource source) {
+        if (batteryStateSource != source) {
+            boolean subscribed = isSubscribed;
+            if (subscribed) {
+                unsubscribe();
+            }
+            batteryStateSource = source;
+            timeEstimator.reset();
+            if (subscribed) {
+                subscribe();
+            }
+        }
+    }
+
+    /**
+     * 获取当前的电池状态来源，没有设置时返回系统电量
+     */
+    @NonNull
+    public BatteryStateSource getBatteryStateSource() {
+        return batteryStateSource != null ? batteryStateSource : BatteryStateHub.getInstance(getContext());
+    }
+
+    /**
+     * 设置控制暂停和恢复的 LifecycleOwner，null 表示使用 ViewTreeLifecycleOwner 找到的（通常是所在的 Activity 或 Fragment）
+     * 生命周期低于 STARTED 时停止接收电量更新和步进动画，恢复时重新订阅并立即刷新一次
+     */
+    public void setLifecycleOwner(@Nullable LifecycleOwner owner) {
+        if (lifecycleOwner != owner) {
+            lifecycleOwner = owner;
+            if (isAttachedToWindow()) {
+                observeLifecycle(owner != null ? owner : ViewTreeLifecycleOwner.get(this));
+            }
+        }
+    }
+
+    /**
+     * 切换观察的生命周期，addObserver 会立即回调到当前状态
+     */
+    private void observeLifecycle(@Nullable LifecycleOwner owner) {
+        if (observedLifecycleOwner == owner) {
+            return;
+        }
+        if (observedLifecycleOwner != null) {
+            observedLifecycleOwner.getLifecycle().removeObserver(lifecycleObserver);
+        }
+        observedLifecycleOwner = owner;
+        if (owner != null) {
+            owner.getLifecycle().addObserver(lifecycleObserver);
+        }
+        onActiveChanged();
+    }
+
+    /**
+     * 没有 LifecycleOwner 时只看是否附着到窗口
+     */
+    private boolean isLifecycleStarted() {
+        return observedLifecycleOwner == null
+                || observedLifecycleOwner.getLifecycle().getCurrentState().isAtLeast(Lifecycle.State.STARTED);
+    }
+
+    private void onActiveChanged() {
+        updateSubscription();
+        updateQualitySubscription();
+        updateDrawableVisible();
+    }
+
+    /**
+     * 只有自动检测、附着到窗口并且生命周期至少 STARTED 时订阅电池状态来源
+     */
+    private void updateSubscription() {
+        boolean subscribe = isAutoDetect() && isAttachedToWindow() && isLifecycleStarted();
+        if (isSubscribed != subscribe) {
+            if (subscribe) {
+                subscribe();
+            } else {
+                unsubscribe();
+            }
+        }
+    }
+
+    /**
+     * 订阅电池状态来源，订阅时收到的当前状态立即应用，保证第一帧就是正确的电量
+     */
+    private void subscribe() {
+        isSubscribed = true;
+        getBatteryStateSource().addListener(batteryListener);
+        applyPendingState();
+    }
+
+    private void unsubscribe() {
+        isSubscribed = false;
+        getBatteryStateSource().removeListener(batteryListener);
+        pendingState.set(null);
+    }
+
+    /**
+     * 设置是否根据省电模式和设备温度自动降低绘制质量，关闭时恢复完整绘制
+     */
+    public void setAdaptiveQuality(boolean adaptiveQuality) {
+        if (isAdaptiveQuality != adaptiveQuality) {
+            isAdaptiveQuality = adaptiveQuality;
+            updateQualitySubscription();
+            if (!adaptiveQuality) {
+                applyQuality(BatteryQualityMonitor.QUALITY_FULL);
+            }
+        }
+    }
+
+    /**
+     * 获取是否自动降低绘制质量
+     */
+    public boolean isAdaptiveQuality() {
+        return isAdaptiveQuality;
+    }
+
+    /**
+     * 获取当前绘制质量等级
+     */
+    public int getQuality() {
+        return batteryDrawable.getQuality();
+    }
+
+    /**
+     * 设置绘制质量等级变化的回调
+     */
+    public void setOnQualityChangeListener(@Nullable BatteryQualityMonitor.OnQualityChangeListener listener) {
+        onQualityChangeListener = listener;
+    }
+
+    /**
+     * 只有开启自适应质量、附着到窗口并且生命周期至少 STARTED 时监听绘制质量
+     */
+    private void updateQualitySubscription() {
+        boolean subscribe = isAdaptiveQuality && isAttachedToWindow() && isLifecycleStarted();
+        if (isQualitySubscribed != subscribe) {
+            isQualitySubscribed = subscribe;
+            if (subscribe) {
+                BatteryQualityMonitor.getInstance(getContext()).addListener(qualityListener);
+            } else {
+                BatteryQualityMonitor.getInstance(getContext()).removeListener(qualityListener);
+            }
+        }
+    }
+
+    private void applyQuality(int quality) {
+        if (getQuality() != quality) {
+            batteryDrawable.setQuality(quality);
+            if (onQualityChangeListener != null) {
+                onQualityChangeListener.onQualityChanged(quality);
+            }
+        }
+    }
+
+    /**
+     * 设置扩展电池信息（瞬时电流、电量计数、温度、电压）的回调，在主线程回调；null 表示不再轮询
+     * 由共享的 BatteryExtrasPoller 在后台线程读取，只在 View 显示时轮询
+     */
+    public void setOnBatteryExtrasChangeListener(@Nullable BatteryExtrasPoller.Listener listener) {
+        onBatteryExtrasChangeListener = listener;
+        updateExtrasSubscription();
+    }
+
+    /**
+     * 获取最近一次收到的扩展电池信息，没有设置回调或者还没读取过时返回 null
+     */
+    @Nullable
+    public BatteryExtras getBatteryExtras() {
+        return batteryExtras;
+    }
+
+    /**
+     * 只有设置了回调、附着到窗口、可见并且生命周期至少 STARTED 时轮询扩展电池信息
+     */
+    private void updateExtrasSubscription() {
+        boolean subscribe = onBatteryExtrasChangeListener != null && isAttachedToWindow()
+                && getWindowVisibility() == VISIBLE && isShown() && isLifecycleStarted();
+        if (isExtrasSubscribed != subscribe) {
+            isExtrasSubscribed = subscribe;
+            if (subscribe) {
+                BatteryExtrasPoller.getInstance(getContext()).addListener(extrasListener);
             } else {
-                getContext().unregisterReceiver(batteryReceiver);
+                BatteryExtrasPoller.getInstance(getContext()).removeListener(extrasListener);
+            }
+        }
+    }
+
+    /**
+     * 获取预计充满、用完时间，由电池状态来源驱动，只在订阅期间（isAutoDetect 且显示中）更新
+     */
+    @NonNull
+    public BatteryTimeEstimator getTimeEstimator() {
+        return timeEstimator;
+    }
+
+    /**
+     * 设置预计充满、用完时间变化的回调，在主线程回调
+     */
+    public void setOnEstimateChangeListener(@Nullable BatteryTimeEstimator.OnEstimateChangeListener listener) {
+        timeEstimator.setOnEstimateChangeListener(listener);
+    }
+
+    /**
+     * 设置是否在电池内部显示预计时间：充电时显示预计充满时间，否则显示预计用完时间；
+     * 无法估算时按 showLabel 显示百分比
+     */
+    public void setShowEstimate(boolean showEstimate) {
+        if (isShowEstimate != showEstimate) {
+            isShowEstimate = showEstimate;
+            shownEstimateMinutes = BatteryTimeEstimator.UNKNOWN;
+            batteryDrawable.setLabelText(null);
+            if (showEstimate) {
+                updateEstimateLabel();
             }
         }
     }
 
+    /**
+     * 是否在电池内部显示预计时间
+     */
+    public boolean isShowEstimate() {
+        return isShowEstimate;
+    }
+
+    /**
+     * 按分钟向上取整显示预计时间，例如 "1h05m"、"45m"；已充满或无法估算时不显示
+     */
+    private void updateEstimateLabel() {
+        long millis = timeEstimator.isCharging() ? timeEstimator.getTimeToFull() : timeEstimator.getTimeToEmpty();
+        long minutes = millis > 0 ? (millis + 59_999) / 60_000 : BatteryTimeEstimator.UNKNOWN;
+        if (minutes == shownEstimateMinutes) {
+            return;
+        }
+        shownEstimateMinutes = minutes;
+        String text = null;
+        if (minutes >= 60) {
+            long remainder = minutes % 60;
+            text = (minutes / 60) + (remainder < 10 ? "h0" : "h") + remainder + "m";
+        } else if (minutes > 0) {
+            text = minutes + "m";
+        }
+        batteryDrawable.setLabelText(text);
+    }
+
     /**
      * 设置方向，vertical：0，horizontal：1
      */
     public void setOrientation(int orientation) {
         if (orientation != getOrientation()) {
-            // 使用异或方法交换数值
-            minWidth = minWidth^minHeight;
-            minHeight = minWidth^minHeight;
-            minWidth = minWidth^minHeight;
-
-            // float 用不了异或方法，那就使用加减
-            float totalHead = headWidth + headHeight;
-            headWidth = totalHead - headWidth;
-            headHeight = totalHead - headHeight;
-
-            this.orientation = orientation;
+            batteryDrawable.setOrientation(orientation);
             requestLayout();
         }
     }
@@ -500,7 +735,7 @@ public class BatteryView extends View {
      * 设置最小宽度
      */
     public void setMinWidth(int minWidth) {
-        this.minWidth = minWidth;
+        batteryDrawable.setIntrinsicWidth(minWidth);
         requestLayout();
     }
 
@@ -508,56 +743,398 @@ public class BatteryView extends View {
      * 设置最小高度
      */
     public void setMinHeight(int minHeight) {
-        this.minHeight = minHeight;
+        batteryDrawable.setIntrinsicHeight(minHeight);
         requestLayout();
     }
 
     /**
-     * 设置最大电量
+     * 设置电池外框宽度
+     */
+    public void setBorderWidth(float borderWidth) {
+        batteryDrawable.setBorderWidth(borderWidth);
+    }
+
+    /**
+     * 设置电池外框半径
+     */
+    public void setBorderRadius(float borderRadius) {
+        batteryDrawable.setBorderRadius(borderRadius);
+    }
+
+    /**
+     * 设置电池外框颜色
+     */
+    public void setBorderColor(@ColorInt int borderColor) {
+        batteryDrawable.setBorderColor(borderColor);
+    }
+
+    /**
+     * 设置电池头宽度
+     */
+    public void setHeadWidth(float headWidth) {
+        batteryDrawable.setHeadWidth(headWidth);
+    }
+
+    /**
+     * 设置电池头高度
+     */
+    public void setHeadHeight(float headHeight) {
+        batteryDrawable.setHeadHeight(headHeight);
+    }
+
+    /**
+     * 设置电池头距电池外框的距离
+     */
+    public void setHeadPadding(float headPadding) {
+        batteryDrawable.setHeadPadding(headPadding);
+    }
+
+    /**
+     * 设置电池头颜色
+     */
+    public void setHeadColor(@ColorInt int headColor) {
+        batteryDrawable.setHeadColor(headColor);
+    }
+
+    /**
+     * 设置电池内框距外框的距离
+     */
+    public void setInsidePadding(float insidePadding) {
+        batteryDrawable.setInsidePadding(insidePadding);
+    }
+
+    /**
+     * 设置电池内框四角半径
+     */
+    public void setInsideRadius(float insideRadius) {
+        batteryDrawable.setInsideRadius(insideRadius);
+    }
+
+    /**
+     * 设置低电量颜色
+     */
+    public void setLowPowerColor(@ColorInt int lowPowerColor) {
+        batteryDrawable.setLowPowerColor(lowPowerColor);
+    }
+
+    /**
+     * 设置高电量颜色
+     */
+    public void setHighPowerColor(@ColorInt int highPowerColor) {
+        batteryDrawable.setHighPowerColor(highPowerColor);
+    }
+
+    /**
+     * 设置充电中颜色
+     */
+    public void setChargingColor(@ColorInt int chargingColor) {
+        batteryDrawable.setChargingColor(chargingColor);
+    }
+
+    /**
+     * 设置是否把外框和电池头缓存为位图，适合电量频繁变化但样式不变的场景
+     */
+    public void setChromeCache(boolean chromeCache) {
+        batteryDrawable.setChromeCache(chromeCache);
+    }
+
+    /**
+     * 获取是否缓存外框和电池头
+     */
+    public boolean isChromeCache() {
+        return batteryDrawable.isChromeCache();
+    }
+
+    /**
+     * 设置是否使用精灵图集，适合列表中大量相同样式的电池
+     */
+    public void setSpriteAtlas(boolean spriteAtlas) {
+        batteryDrawable.setSpriteAtlas(spriteAtlas);
+    }
+
+    /**
+     * 设置是否在电池内部显示电量百分比，不需要再叠加一个 TextView
+     */
+    public void setShowLabel(boolean showLabel) {
+        batteryDrawable.setShowLabel(showLabel);
+    }
+
+    /**
+     * 设置百分比文字大小，0 表示按内部区域自动计算
+     */
+    public void setLabelTextSize(float labelTextSize) {
+        batteryDrawable.setLabelTextSize(labelTextSize);
+    }
+
+    /**
+     * 设置百分比文字颜色
+     */
+    public void setLabelColor(@ColorInt int labelColor) {
+        batteryDrawable.setLabelColor(labelColor);
+    }
+
+    /**
+     * 设置百分比文字字体
+     */
+    public void setLabelTypeface(@Nullable Typeface labelTypeface) {
+        batteryDrawable.setLabelTypeface(labelTypeface);
+    }
+
+    /**
+     * 设置电量历史曲线：HISTORY_NONE 不显示，HISTORY_INSIDE 画在电池内部，适合长时间运行的监控页面
+     */
+    public void setHistoryMode(int historyMode) {
+        batteryDrawable.setHistoryMode(historyMode);
+    }
+
+    /**
+     * 设置历史曲线的时间窗口，单位分钟，默认 24 小时
+     */
+    public void setHistoryWindow(int historyWindow) {
+        batteryDrawable.setHistoryWindow(historyWindow);
+    }
+
+    /**
+     * 设置历史曲线颜色
+     */
+    public void setHistoryColor(@ColorInt int historyColor) {
+        batteryDrawable.setHistoryColor(historyColor);
+    }
+
+    /**
+     * 设置内部填充方式：FILL_SOLID、FILL_LEVEL、FILL_GRADIENT
      */
+    public void setFillMode(int fillMode) {
+        batteryDrawable.setFillMode(fillMode);
+    }
+
+    /**
+     * 设置内部颜色节点，从空电到满电均匀分布；null 表示使用 lowPowerColor 到 highPowerColor
+     */
+    public void setFillColors(@Nullable @ColorInt int... fillColors) {
+        batteryDrawable.setFillColors(fillColors);
+    }
+
+    /**
+     * 设置电量变化的过渡动画时长，单位毫秒，0 表示直接跳到新电量
+     */
+    public void setTransitionDuration(int duration) {
+        batteryDrawable.setTransitionDuration(duration);
+    }
+
+    /**
+     * 设置过渡动画的最大帧率，默认 30
+     */
+    public void setTransitionMaxFps(int maxFps) {
+        batteryDrawable.setTransitionMaxFps(maxFps);
+    }
+
+    /**
+     * 获取是否使用精灵图集
+     */
+    public boolean isSpriteAtlas() {
+        return batteryDrawable.isSpriteAtlas();
+    }
+
+    /**
+     * 内存紧张时释放缓存，可在 Activity/Application 的 onTrimMemory 中调用
+     */
+    public void trimMemory(int level) {
+        batteryDrawable.trimMemory(level);
+    }
+
+    /**
+     * 设置最大电量，可以在任意线程调用，非主线程调用时在下一帧生效
+     */
+    @AnyThread
     public void setMaxPower(int maxPower) {
-        this.maxPower = maxPower;
+        long prev, next;
+        do {
+            prev = requestedState.get();
+            next = (prev & ~(STATE_MASK << MAX_POWER_SHIFT)) | ((long) clampState(maxPower) << MAX_POWER_SHIFT);
+        } while (!requestedState.compareAndSet(prev, next));
+        scheduleFlush();
+    }
+
+    /**
+     * 获取当前样式
+     */
+    @NonNull
+    public BatteryStyle getBatteryStyle() {
+        return batteryDrawable.getBatteryStyle();
+    }
+
+    /**
+     * 设置样式，同一个样式可以设置给任意多个 BatteryView；单独修改某个属性时会复制一份新的样式
+     */
+    @MainThread
+    public void setBatteryStyle(@NonNull BatteryStyle style) {
+        BatteryStyle old = getBatteryStyle();
+        if (old == style) {
+            return;
+        }
+        batteryDrawable.setBatteryStyle(style);
+        // 最大电量同时记录在打包的状态中
+        setMaxPower(style.getMaxPower());
+        if (old.getLevels() != style.getLevels() && isAutoDetect() && !(isChargingRequested() && getChargingAnimMode() == STEP)) {
+            syncPower(getCurrentPower());
+        }
+        if (old.getIntrinsicWidth() != style.getIntrinsicWidth() || old.getIntrinsicHeight() != style.getIntrinsicHeight()) {
+            requestLayout();
+        }
+    }
+
+    /**
+     * 设置电量等级数量，默认 10 级，0 表示不分级、连续显示
+     */
+    public void setLevels(int levels) {
+        if (getLevels() != levels) {
+            batteryDrawable.setLevels(levels);
+            // 按新的等级重新取一次系统电量，步进动画中电量由动画控制
+            if (isAutoDetect() && !(isChargingRequested() && getChargingAnimMode() == STEP)) {
+                syncPower(getCurrentPower());
+            }
+        }
     }
 
     /**
-     * 设置电量
+     * 获取电量等级数量
      */
+    public int getLevels() {
+        return batteryDrawable.getLevels();
+    }
+
+    /**
+     * 设置电量，可以在任意线程调用，非主线程调用时在下一帧生效
+     */
+    @AnyThread
     public void setPower(int power) {
-        this.power = verifyPower(power);
-        invalidate();
+        long prev, next;
+        do {
+            prev = requestedState.get();
+            next = (prev & ~STATE_MASK) | clampState(power);
+        } while (!requestedState.compareAndSet(prev, next));
+        scheduleFlush();
     }
 
     /**
-     * 设置充电状态
+     * 设置充电状态，可以在任意线程调用，非主线程调用时在下一帧生效
      */
+    @AnyThread
     public void setCharging(boolean charging) {
-        if (isCharging() != charging) {
-            isCharging = charging;
-            if (!charging) {
-                batteryHandler.removeCallbacks(chargingTask);
-            }
+        long prev, next;
+        do {
+            prev = requestedState.get();
+            next = charging ? prev | CHARGING_BIT : prev & ~CHARGING_BIT;
+        } while (!requestedState.compareAndSet(prev, next));
+        scheduleFlush();
+    }
+
+    private static long clampState(int value) {
+        return Math.max(0, Math.min(value, (int) STATE_MASK));
+    }
+
+    private static long packState(int power, int maxPower, boolean charging) {
+        return clampState(power) | (clampState(maxPower) << MAX_POWER_SHIFT) | (charging ? CHARGING_BIT : 0);
+    }
+
+    /**
+     * 主线程上立即应用，其它线程只安排一次下一帧的应用，多次设置合并为一次
+     */
+    private void scheduleFlush() {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            flushState();
+        } else if (flushScheduled.compareAndSet(false, true)) {
+            postOnAnimation(flushTask);
+        }
+    }
+
+    /**
+     * 把设置的状态中发生变化的部分应用到 Drawable，只在主线程调用
+     */
+    private void flushState() {
+        flushScheduled.set(false);
+        long state = requestedState.get();
+        long changed = state ^ appliedState;
+        if (changed == 0) {
+            return;
+        }
+        appliedState = state;
+        if ((changed & (STATE_MASK << MAX_POWER_SHIFT)) != 0) {
+            batteryDrawable.setMaxPower((int) ((state >>> MAX_POWER_SHIFT) & STATE_MASK));
+        }
+        if ((changed & STATE_MASK) != 0) {
+            batteryDrawable.setPower((int) (state & STATE_MASK));
+        }
+        if ((changed & CHARGING_BIT) != 0) {
             if (isAutoDetect()) {
-                setPower(getCurrentPower());
-            } else {
-                invalidate();
+                syncPower(getCurrentPower());
             }
+            batteryDrawable.setCharging((state & CHARGING_BIT) != 0);
         }
     }
 
+    /**
+     * 主线程上按系统电量直接刷新 Drawable，同时写回打包的状态，之后 setPower 同样的值不会被当成没有变化
+     */
+    private void syncPower(int power) {
+        long prev, next;
+        do {
+            prev = requestedState.get();
+            next = (prev & ~STATE_MASK) | clampState(power);
+        } while (!requestedState.compareAndSet(prev, next));
+        appliedState = (appliedState & ~STATE_MASK) | clampState(power);
+        batteryDrawable.setPower(power);
+    }
+
     /**
      * 设置充电状态模式
      */
     public void setChargingAnimMode(int chargingMode) {
         if (getChargingAnimMode() != chargingMode) {
-            this.chargingAnimMode = chargingMode;
-            if (isCharging()) {
-                batteryHandler.removeCallbacks(chargingTask);
-                if (isAutoDetect()) {
-                    setPower(getCurrentPower());
-                } else {
-                    invalidate();
-                }
+            if (isChargingRequested() && isAutoDetect()) {
+                syncPower(getCurrentPower());
             }
+            batteryDrawable.setChargingAnimMode(chargingMode);
+        }
+    }
+
+    /**
+     * 把 View 的可见性同步给 Drawable，不可见或者生命周期低于 STARTED 时步进动画暂停
+     */
+    private void updateDrawableVisible() {
+        // 父类构造方法中也可能回调可见性变化，此时 Drawable 还没有创建
+        if (batteryDrawable == null) {
+            return;
+        }
+        batteryDrawable.setVisible(isAttachedToWindow() && getWindowVisibility() == VISIBLE && isShown()
+                && isLifecycleStarted(), false);
+        updateExtrasSubscription();
+    }
+
+    @Override
+    protected void onVisibilityChanged(@NonNull View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        updateDrawableVisible();
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        updateDrawableVisible();
+    }
+
+    /**
+     * 当view附着到窗口时，观察生命周期并订阅电池状态来源
+     */
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        LifecycleOwner owner = lifecycleOwner != null ? lifecycleOwner : ViewTreeLifecycleOwner.get(this);
+        if (owner != null) {
+            observeLifecycle(owner);
+        } else {
+            onActiveChanged();
         }
     }
 
@@ -566,10 +1143,23 @@ public class BatteryView extends View {
      */
     @Override
     protected void onDetachedFromWindow() {
-        batteryHandler.removeCallbacks(chargingTask);
-        if (isAutoDetect()) {
-            getContext().unregisterReceiver(batteryReceiver);
+        batteryDrawable.setVisible(false, false);
+        if (observedLifecycleOwner != null) {
+            observedLifecycleOwner.getLifecycle().removeObserver(lifecycleObserver);
+            observedLifecycleOwner = null;
+        }
+        if (isSubscribed) {
+            unsubscribe();
+        }
+        if (isQualitySubscribed) {
+            isQualitySubscribed = false;
+            BatteryQualityMonitor.getInstance(getContext()).removeListener(qualityListener);
+        }
+        if (isExtrasSubscribed) {
+            isExtrasSubscribed = false;
+            BatteryExtrasPoller.getInstance(getContext()).removeListener(extrasListener);
         }
+        batteryDrawable.releaseChromeCache();
         super.onDetachedFromWindow();
     }
 
@@ -0,0 +1,36 @@
+package com.zhumj.batteryview;
+
+import android.os.BatteryManager;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.NonNull;
+
+/**
+ * @Description : 手动设置的电池状态来源，适合外设、远程设备等由业务代码拿到电量的场景，可以在任意线程设置
+ */
+public class ManualBatteryStateSource extends BaseBatteryStateSource {
+
+    public ManualBatteryStateSource() {
+    }
+
+    public ManualBatteryStateSource(@NonNull BatteryState initial) {
+        setState(initial);
+    }
+
+    /**
+     * 设置电池状态
+     */
+    @AnyThread
+    public void setState(int level, int scale, boolean charging) {
+        publish(new BatteryState(level, scale,
+                charging ? BatteryManager.BATTERY_STATUS_CHARGING : BatteryManager.BATTERY_STATUS_DISCHARGING));
+    }
+
+    /**
+     * 设置电池状态
+     */
+    @AnyThread
+    public void publish(@NonNull BatteryState state) {
+        super.publish(state);
+    }
+}
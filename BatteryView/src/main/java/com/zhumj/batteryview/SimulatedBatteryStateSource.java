@@ -0,0 +1,121 @@
+package com.zhumj.batteryview;
+
+import android.os.BatteryManager;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Description : 脚本模拟的电池状态来源，按顺序循环播放一组状态，用于演示、压力测试和没有设备时的 JVM 测试
+ * 可以调用 step() 手动前进一步，也可以 start() 后在后台线程按固定间隔自动播放。
+ */
+public class SimulatedBatteryStateSource extends BaseBatteryStateSource {
+
+    private final BatteryState[] script;
+    private int index;
+
+    private ScheduledExecutorService executor;
+    private ScheduledFuture<?> future;
+    private long periodNanos;
+
+    /**
+     * @param script 按顺序循环播放的状态
+     */
+    public SimulatedBatteryStateSource(@NonNull BatteryState... script) {
+        if (script.length == 0) {
+            throw new IllegalArgumentException("script must not be empty");
+        }
+        this.script = script.clone();
+        setState(this.script[0]);
+    }
+
+    /**
+     * 从 0 充到 scale 再放电到 0 的脚本，每一步变化 1
+     *
+     * @param scale 最大电量，必须大于 0，否则抛出 IllegalArgumentException
+     */
+    @NonNull
+    public static SimulatedBatteryStateSource chargeCycle(int scale) {
+        if (scale <= 0) {
+            throw new IllegalArgumentException("scale must be > 0");
+        }
+        BatteryState[] script = new BatteryState[scale * 2];
+        for (int i = 0; i < scale; i++) {
+            script[i] = new BatteryState(i, scale, BatteryManager.BATTERY_STATUS_CHARGING);
+            script[scale + i] = new BatteryState(scale - i, scale, BatteryManager.BATTERY_STATUS_DISCHARGING);
+        }
+        return new SimulatedBatteryStateSource(script);
+    }
+
+    /**
+     * 前进到脚本的下一个状态并分发，可以在任意线程调用
+     */
+    public void step() {
+        BatteryState next;
+        synchronized (this) {
+            index = (index + 1) % script.length;
+            next = script[index];
+        }
+        publish(next);
+    }
+
+    /**
+     * 在后台线程按固定间隔播放脚本，只在有监听者时运行
+     *
+     * @param period 间隔
+     * @param unit   间隔的单位
+     */
+    public synchronized void start(long period, @NonNull TimeUnit unit) {
+        stop();
+        periodNanos = unit.toNanos(period);
+        if (isActive()) {
+            schedule();
+        }
+    }
+
+    /**
+     * 停止自动播放
+     */
+    public synchronized void stop() {
+        periodNanos = 0;
+        cancel();
+    }
+
+    @Override
+    protected synchronized void onActive() {
+        if (periodNanos > 0) {
+            schedule();
+        }
+    }
+
+    @Override
+    protected synchronized void onInactive() {
+        cancel();
+    }
+
+    private void schedule() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "BatterySimulator");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        future = executor.scheduleAtFixedRate(this::step, periodNanos, periodNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void cancel() {
+        if (future != null) {
+            future.cancel(false);
+            future = null;
+        }
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.zhumj.batteryview;
+
+import static android.os.Looper.getMainLooper;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.app.Activity;
+import android.view.View;
+import android.widget.LinearLayout;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.LooperMode;
+
+/**
+ * @Description : 共享动画时钟测试：充电步进的 View 可见时加入时钟，隐藏或者离开窗口时移除，没有监听者时不再请求帧回调
+ */
+@RunWith(RobolectricTestRunner.class)
+@LooperMode(LooperMode.Mode.PAUSED)
+public class BatteryAnimationClockTest {
+
+    private static BatteryView createStepView(Activity activity) {
+        BatteryView view = new BatteryView(activity);
+        view.setAutoDetect(false);
+        view.setChargingAnimMode(BatteryView.STEP);
+        view.setCharging(true);
+        return view;
+    }
+
+    @Test
+    public void viewsShareClockUntilHiddenOrDetached() {
+        Activity activity = Robolectric.buildActivity(Activity.class).setup().get();
+        BatteryAnimationClock clock = BatteryAnimationClock.getInstance();
+        int baseline = clock.getListenerCount();
+
+        LinearLayout root = new LinearLayout(activity);
+        BatteryView first = createStepView(activity);
+        BatteryView second = createStepView(activity);
+        root.addView(first);
+        root.addView(second);
+        // 还没有附着到窗口，不加入时钟
+        assertEquals(baseline, clock.getListenerCount());
+
+        activity.setContentView(root);
+        shadowOf(getMainLooper()).idle();
+        assertEquals(baseline + 2, clock.getListenerCount());
+        assertTrue(clock.isScheduled());
+
+        first.setVisibility(View.GONE);
+        assertEquals(baseline + 1, clock.getListenerCount());
+        first.setVisibility(View.VISIBLE);
+        assertEquals(baseline + 2, clock.getListenerCount());
+
+        // 父布局隐藏时两个 View 都不可见
+        root.setVisibility(View.INVISIBLE);
+        assertEquals(baseline, clock.getListenerCount());
+        root.setVisibility(View.VISIBLE);
+        assertEquals(baseline + 2, clock.getListenerCount());
+
+        root.removeView(first);
+        assertEquals(baseline + 1, clock.getListenerCount());
+        root.removeView(second);
+        assertEquals(baseline, clock.getListenerCount());
+        if (baseline == 0) {
+            assertFalse(clock.isScheduled());
+        }
+    }
+
+    @Test
+    public void stopChargingRemovesListener() {
+        Activity activity = Robolectric.buildActivity(Activity.class).setup().get();
+        BatteryAnimationClock clock = BatteryAnimationClock.getInstance();
+        int baseline = clock.getListenerCount();
+
+        BatteryView view = createStepView(activity);
+        activity.setContentView(view);
+        shadowOf(getMainLooper()).idle();
+        assertEquals(baseline + 1, clock.getListenerCount());
+
+        view.setCharging(false);
+        assertEquals(baseline, clock.getListenerCount());
+        view.setCharging(true);
+        assertEquals(baseline + 1, clock.getListenerCount());
+
+        activity.setContentView(new View(activity));
+        assertEquals(baseline, clock.getListenerCount());
+    }
+}
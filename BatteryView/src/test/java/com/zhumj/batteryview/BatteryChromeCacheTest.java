@@ -0,0 +1,111 @@
+package com.zhumj.batteryview;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.graphics.Paint;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.GraphicsMode;
+
+/**
+ * @Description : 外框和电池头位图缓存测试：参数不变时直接画缓存，尺寸、颜色变化或者标记失效后重新渲染
+ */
+@RunWith(RobolectricTestRunner.class)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class BatteryChromeCacheTest {
+
+    /**
+     * 记录最后一次画的位图
+     */
+    private static final class BitmapCanvas extends NoOpCanvas {
+        Bitmap bitmap;
+
+        @Override
+        public void drawBitmap(Bitmap bitmap, float left, float top, Paint paint) {
+            this.bitmap = bitmap;
+        }
+    }
+
+    private static BatteryGeometry geometry(int width, int height) {
+        BatteryGeometry geometry = new BatteryGeometry();
+        geometry.update(width, height, BatteryView.VERTICAL, 6, 36, 8, 4, 4);
+        return geometry;
+    }
+
+    @Test
+    public void rendersOnlyWhenSizeOrColorChanges() {
+        BatteryChromeCache cache = new BatteryChromeCache();
+        BitmapCanvas canvas = new BitmapCanvas();
+        Paint borderPaint = new Paint();
+        borderPaint.setColor(Color.BLACK);
+        Paint headPaint = new Paint();
+        headPaint.setColor(Color.BLACK);
+        BatteryGeometry small = geometry(72, 135);
+
+        cache.draw(canvas, small, 72, 135, BatteryView.VERTICAL, 6, borderPaint, headPaint);
+        assertEquals(1, cache.getRenderCount());
+        Bitmap first = canvas.bitmap;
+
+        // 参数不变，命中缓存
+        cache.draw(canvas, small, 72, 135, BatteryView.VERTICAL, 6, borderPaint, headPaint);
+        assertEquals(1, cache.getRenderCount());
+        assertSame(first, canvas.bitmap);
+
+        // 颜色变化，重新渲染到同一个位图
+        borderPaint.setColor(Color.RED);
+        cache.draw(canvas, small, 72, 135, BatteryView.VERTICAL, 6, borderPaint, headPaint);
+        assertEquals(2, cache.getRenderCount());
+        assertSame(first, canvas.bitmap);
+
+        // 尺寸变化，换一个新尺寸的位图
+        cache.draw(canvas, geometry(96, 180), 96, 180, BatteryView.VERTICAL, 6, borderPaint, headPaint);
+        assertEquals(3, cache.getRenderCount());
+        assertNotSame(first, canvas.bitmap);
+        assertEquals(96, canvas.bitmap.getWidth());
+        assertEquals(180, canvas.bitmap.getHeight());
+    }
+
+    @Test
+    public void invalidateForcesRender() {
+        BatteryChromeCache cache = new BatteryChromeCache();
+        BitmapCanvas canvas = new BitmapCanvas();
+        Paint paint = new Paint();
+        BatteryGeometry geometry = geometry(72, 135);
+        cache.draw(canvas, geometry, 72, 135, BatteryView.VERTICAL, 6, paint, paint);
+        cache.invalidate();
+        cache.draw(canvas, geometry, 72, 135, BatteryView.VERTICAL, 6, paint, paint);
+        assertEquals(2, cache.getRenderCount());
+
+        cache.release();
+        cache.draw(canvas, geometry, 72, 135, BatteryView.VERTICAL, 6, paint, paint);
+        assertEquals(3, cache.getRenderCount());
+    }
+
+    /**
+     * 通过 Drawable 修改外框颜色时缓存失效，重新渲染
+     */
+    @Test
+    public void drawableColorChangeRerenders() {
+        BatteryDrawable drawable = new BatteryDrawable(new BatteryStyle.Builder()
+                .setChromeCache(true)
+                .build());
+        drawable.setBounds(0, 0, drawable.getIntrinsicWidth(), drawable.getIntrinsicHeight());
+        BitmapCanvas canvas = new BitmapCanvas();
+        drawable.draw(canvas);
+        Bitmap first = canvas.bitmap;
+        int x = drawable.getIntrinsicWidth() / 2;
+        int y = drawable.getIntrinsicHeight() - 2;
+        assertEquals(Color.BLACK, first.getPixel(x, y));
+
+        drawable.setBorderColor(Color.BLUE);
+        drawable.draw(canvas);
+        assertSame(first, canvas.bitmap);
+        assertEquals(Color.BLUE, first.getPixel(x, y));
+    }
+}
@@ -0,0 +1,59 @@
+package com.zhumj.batteryview;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.GraphicsMode;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * @Description : 绘制的内存分配测试：预热之后每帧不分配对象
+ */
+@RunWith(RobolectricTestRunner.class)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class BatteryDrawAllocationTest {
+
+    /**
+     * 当前线程累计分配的字节数
+     */
+    static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * 预热之后 BatteryDrawable.draw 不应该分配任何对象，包括步进动画
+     */
+    @Test
+    public void drawAllocatesNothing() {
+        int[][] cases = {
+                {BatteryView.VERTICAL, 0, BatteryView.LIGHTNING},
+                {BatteryView.VERTICAL, 1, BatteryView.LIGHTNING},
+                {BatteryView.VERTICAL, 1, BatteryView.STEP},
+                {BatteryView.HORIZONTAL, 0, BatteryView.LIGHTNING},
+                {BatteryView.HORIZONTAL, 1, BatteryView.LIGHTNING},
+                {BatteryView.HORIZONTAL, 1, BatteryView.STEP},
+        };
+        NoOpCanvas canvas = new NoOpCanvas();
+        for (int[] c : cases) {
+            BatteryDrawable drawable = new BatteryDrawable();
+            drawable.setOrientation(c[0]);
+            drawable.setChargingAnimMode(c[2]);
+            drawable.setCharging(c[1] == 1);
+            drawable.setBounds(0, 0, drawable.getIntrinsicWidth(), drawable.getIntrinsicHeight());
+            for (int i = 0; i < 100; i++) {
+                drawable.draw(canvas);
+            }
+            long start = allocatedBytes();
+            for (int i = 0; i < 1000; i++) {
+                drawable.setPower(i % 101);
+                drawable.draw(canvas);
+            }
+            assertEquals("allocated bytes, case " + c[0] + "/" + c[1] + "/" + c[2],
+                    0, allocatedBytes() - start);
+        }
+    }
+}
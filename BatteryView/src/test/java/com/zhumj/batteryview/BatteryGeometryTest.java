@@ -0,0 +1,35 @@
+package com.zhumj.batteryview;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+/**
+ * @Description : 几何信息测试：两个方向上内部区域的圆角半径都不超过当前电量对应的长度
+ */
+@RunWith(RobolectricTestRunner.class)
+public class BatteryGeometryTest {
+
+    @Test
+    public void fillRadiusIsClampedToFillLength() {
+        for (int orientation : new int[]{BatteryView.VERTICAL, BatteryView.HORIZONTAL}) {
+            BatteryGeometry geometry = new BatteryGeometry();
+            int width = orientation == BatteryView.VERTICAL ? 72 : 135;
+            int height = orientation == BatteryView.VERTICAL ? 135 : 72;
+            geometry.update(width, height, orientation, 6, 8, 8, 4, 4);
+            String message = "orientation=" + orientation;
+
+            // 电量很低时半径等于内部区域的长度
+            geometry.updateFill(2, 100, 20);
+            float length = orientation == BatteryView.VERTICAL
+                    ? geometry.fillRectF.height() : geometry.fillRectF.width();
+            assertEquals(message, length, geometry.fillRadius, 0.001f);
+
+            // 长度足够时保持设置的半径
+            geometry.updateFill(80, 100, 20);
+            assertEquals(message, 20, geometry.fillRadius, 0);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.zhumj.batteryview;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.GraphicsMode;
+
+/**
+ * @Description : 离屏渲染器测试：相同电量等级命中缓存，样式变化后不再命中，缓存按字节数淘汰
+ */
+@RunWith(RobolectricTestRunner.class)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class BatteryRendererTest {
+
+    @Test
+    public void sameLevelHitsCache() {
+        BatteryRenderer renderer = new BatteryRenderer();
+        Bitmap bitmap = renderer.render(72, 135, 55, false, BatteryView.LIGHTNING);
+        assertEquals(72, bitmap.getWidth());
+        assertEquals(135, bitmap.getHeight());
+        // 同一个电量等级
+        assertSame(bitmap, renderer.render(72, 135, 58, false, BatteryView.LIGHTNING));
+        // 不充电时忽略充电动画
+        assertSame(bitmap, renderer.render(72, 135, 55, false, BatteryView.STEP));
+
+        assertNotSame(bitmap, renderer.render(72, 135, 85, false, BatteryView.LIGHTNING));
+        assertNotSame(bitmap, renderer.render(72, 135, 55, true, BatteryView.LIGHTNING));
+        assertNotSame(bitmap, renderer.render(96, 180, 55, false, BatteryView.LIGHTNING));
+    }
+
+    @Test
+    public void styleChangeMissesCache() {
+        BatteryRenderer renderer = new BatteryRenderer();
+        Bitmap bitmap = renderer.render(72, 135, 55, true, BatteryView.LIGHTNING);
+        renderer.getDrawable().setChargingColor(Color.BLUE);
+        Bitmap blue = renderer.render(72, 135, 55, true, BatteryView.LIGHTNING);
+        assertNotSame(bitmap, blue);
+        assertSame(blue, renderer.render(72, 135, 55, true, BatteryView.LIGHTNING));
+    }
+
+    /**
+     * 缓存只够放两张位图时，第三张会淘汰最久没有使用的一张
+     */
+    @Test
+    public void evictsByByteCount() {
+        int byteCount = 72 * 135 * 4;
+        BatteryRenderer renderer = new BatteryRenderer(byteCount * 2);
+        Bitmap low = renderer.render(72, 135, 15, false, BatteryView.LIGHTNING);
+        Bitmap middle = renderer.render(72, 135, 55, false, BatteryView.LIGHTNING);
+        assertEquals(byteCount, low.getByteCount());
+        // 访问 low，middle 成为最久没有使用的
+        assertSame(low, renderer.render(72, 135, 15, false, BatteryView.LIGHTNING));
+        renderer.render(72, 135, 85, false, BatteryView.LIGHTNING);
+
+        assertSame(low, renderer.render(72, 135, 15, false, BatteryView.LIGHTNING));
+        assertNotSame(middle, renderer.render(72, 135, 55, false, BatteryView.LIGHTNING));
+
+        // 缩小缓存后只剩最近的一张
+        renderer.setCacheSize(byteCount);
+        Bitmap latest = renderer.render(72, 135, 55, false, BatteryView.LIGHTNING);
+        assertNotSame(low, renderer.render(72, 135, 15, false, BatteryView.LIGHTNING));
+        assertNotSame(latest, renderer.render(72, 135, 55, false, BatteryView.LIGHTNING));
+    }
+
+    @Test
+    public void evictAllClearsCache() {
+        BatteryRenderer renderer = new BatteryRenderer();
+        Bitmap bitmap = renderer.render(72, 135, 55, false, BatteryView.LIGHTNING);
+        renderer.evictAll();
+        assertNotSame(bitmap, renderer.render(72, 135, 55, false, BatteryView.LIGHTNING));
+    }
+}
@@ -0,0 +1,107 @@
+package com.zhumj.batteryview;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import android.content.ComponentCallbacks2;
+import android.graphics.Bitmap;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.GraphicsMode;
+
+/**
+ * @Description : 精灵图集测试：相同尺寸和样式共享一张图集，超过缓存大小时不创建图集，按矢量方式绘制
+ */
+@RunWith(RobolectricTestRunner.class)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class BatterySpriteAtlasTest {
+
+    /**
+     * 记录从图集画出的位图和矢量绘制的次数
+     */
+    private static final class AtlasCanvas extends NoOpCanvas {
+        Bitmap atlas;
+        int vectorCount;
+
+        @Override
+        public void drawBitmap(Bitmap bitmap, Rect src, Rect dst, Paint paint) {
+            atlas = bitmap;
+        }
+
+        @Override
+        public void drawRoundRect(RectF rect, float rx, float ry, Paint paint) {
+            vectorCount++;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        BatteryDrawable.trimSharedMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+    }
+
+    @After
+    public void tearDown() {
+        BatteryDrawable.setSpriteAtlasCacheSize(BatterySpriteAtlas.DEFAULT_CACHE_SIZE);
+        BatteryDrawable.trimSharedMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+    }
+
+    private static BatteryDrawable createDrawable(int width, int height) {
+        BatteryDrawable drawable = new BatteryDrawable(new BatteryStyle.Builder()
+                .setSpriteAtlas(true)
+                .build());
+        drawable.setBounds(0, 0, width, height);
+        drawable.setPower(50);
+        return drawable;
+    }
+
+    @Test
+    public void sameStyleSharesAtlas() {
+        AtlasCanvas first = new AtlasCanvas();
+        createDrawable(72, 135).draw(first);
+        AtlasCanvas second = new AtlasCanvas();
+        createDrawable(72, 135).draw(second);
+
+        assertNotNull(first.atlas);
+        assertSame(first.atlas, second.atlas);
+        assertEquals(0, second.vectorCount);
+        assertEquals(72 * (BatteryLevels.DEFAULT_LEVELS + 1), first.atlas.getWidth());
+        assertEquals(135 * BatterySpriteAtlas.STATE_COUNT, first.atlas.getHeight());
+    }
+
+    /**
+     * 大尺寸的图集超过默认的 8MB，不创建图集
+     */
+    @Test
+    public void largeViewFallsBackToVector() {
+        assertFalse(BatterySpriteAtlas.fitsCache(BatteryLevels.DEFAULT_LEVELS + 1, 1080, 1920));
+        AtlasCanvas canvas = new AtlasCanvas();
+        createDrawable(1080, 1920).draw(canvas);
+        assertNull(canvas.atlas);
+        assertTrue(canvas.vectorCount > 0);
+    }
+
+    @Test
+    public void smallCacheFallsBackToVector() {
+        assertTrue(BatterySpriteAtlas.fitsCache(BatteryLevels.DEFAULT_LEVELS + 1, 72, 135));
+        BatteryDrawable.setSpriteAtlasCacheSize(1024);
+        assertFalse(BatterySpriteAtlas.fitsCache(BatteryLevels.DEFAULT_LEVELS + 1, 72, 135));
+        assertNull(BatterySpriteAtlas.obtain(new BatteryCacheKey(new int[]{72, 135}), null,
+                BatteryLevels.DEFAULT_LEVELS + 1, 72, 135));
+
+        AtlasCanvas canvas = new AtlasCanvas();
+        createDrawable(72, 135).draw(canvas);
+        assertNull(canvas.atlas);
+        assertTrue(canvas.vectorCount > 0);
+    }
+}
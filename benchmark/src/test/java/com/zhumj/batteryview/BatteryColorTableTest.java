@@ -0,0 +1,54 @@
+package com.zhumj.batteryview;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * @Description : 颜色查找表测试，每个显示等级的颜色和直接插值的结果一致
+ */
+public class BatteryColorTableTest {
+
+    private static final int RED = 0xFFFF0000;
+    private static final int YELLOW = 0xFFFFFF00;
+    private static final int GREEN = 0xFF00FF00;
+
+    @Test
+    public void twoStopsAtTenLevels() {
+        BatteryLevels levels = new BatteryLevels(100, 10);
+        BatteryColorTable table = new BatteryColorTable(levels, new int[]{RED, GREEN});
+        assertEquals(RED, table.colorAt(0));
+        assertEquals(GREEN, table.colorAt(100));
+        for (int i = 0; i < levels.getValueCount(); i++) {
+            int power = levels.valueAt(i);
+            assertEquals("power=" + power,
+                    BatteryColorTable.blendColor(RED, GREEN, power / 100f), table.colorAt(power));
+        }
+    }
+
+    @Test
+    public void multipleStops() {
+        BatteryColorTable table = new BatteryColorTable(new BatteryLevels(100, 10), new int[]{RED, YELLOW, GREEN});
+        assertEquals(RED, table.colorAt(0));
+        assertEquals(YELLOW, table.colorAt(50));
+        assertEquals(GREEN, table.colorAt(100));
+        assertEquals(BatteryColorTable.blendColor(RED, YELLOW, 0.4f), table.colorAt(20));
+        assertEquals(BatteryColorTable.blendColor(YELLOW, GREEN, 0.6f), table.colorAt(80));
+    }
+
+    @Test
+    public void continuousUsesPercentBuckets() {
+        BatteryColorTable table = new BatteryColorTable(new BatteryLevels(1000, BatteryLevels.CONTINUOUS), new int[]{RED, GREEN});
+        assertEquals(RED, table.colorAt(0));
+        assertEquals(GREEN, table.colorAt(1000));
+        assertEquals(BatteryColorTable.blendColor(RED, GREEN, 0.37f), table.colorAt(375));
+        assertEquals(GREEN, table.colorAt(2000));
+    }
+
+    @Test
+    public void singleStop() {
+        BatteryColorTable table = new BatteryColorTable(new BatteryLevels(100, 10), new int[]{GREEN});
+        assertEquals(GREEN, table.colorAt(0));
+        assertEquals(GREEN, table.colorAt(50));
+    }
+}
@@ -0,0 +1,147 @@
+package com.zhumj.batteryview;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.drawable.Drawable;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.GraphicsMode;
+
+/**
+ * @Description : 局部刷新测试：电量变化时只刷新变化的部分和百分比文字，颜色变化时整体刷新
+ */
+@RunWith(RobolectricTestRunner.class)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class BatteryDirtyBoundsTest {
+
+    /**
+     * 记录最后一次刷新时 Drawable 给出的刷新区域
+     */
+    private static final class DirtyCallback implements Drawable.Callback {
+        Rect dirty;
+
+        @Override
+        public void invalidateDrawable(@NonNull Drawable who) {
+            dirty = new Rect(who.getDirtyBounds());
+        }
+
+        @Override
+        public void scheduleDrawable(@NonNull Drawable who, @NonNull Runnable what, long when) {
+        }
+
+        @Override
+        public void unscheduleDrawable(@NonNull Drawable who, @NonNull Runnable what) {
+        }
+    }
+
+    /**
+     * 记录最后一次 drawText 的区域
+     */
+    private static final class TextCanvas extends NoOpCanvas {
+        final RectF text = new RectF();
+
+        @Override
+        public void drawText(String text, float x, float y, Paint paint) {
+            this.text.set(x, y + paint.ascent(), x + paint.measureText(text), y + paint.descent());
+        }
+    }
+
+    private static BatteryDrawable createDrawable(BatteryStyle style, DirtyCallback callback) {
+        BatteryDrawable drawable = new BatteryDrawable(style);
+        drawable.setBounds(0, 0, drawable.getIntrinsicWidth(), drawable.getIntrinsicHeight());
+        drawable.setCallback(callback);
+        drawable.setPower(50);
+        return drawable;
+    }
+
+    @Test
+    public void solidFillInvalidatesChangedStrip() {
+        DirtyCallback callback = new DirtyCallback();
+        BatteryDrawable drawable = createDrawable(new BatteryStyle.Builder().build(), callback);
+        drawable.setPower(60);
+        assertNotNull(callback.dirty);
+        assertNotEquals(drawable.getBounds(), callback.dirty);
+        assertTrue(drawable.getBounds().contains(callback.dirty));
+    }
+
+    /**
+     * 只有电量变化时刷新区域是新旧电量之间的一条，比整体小
+     */
+    @Test
+    public void levelOnlyChangeVersusColorChange() {
+        DirtyCallback callback = new DirtyCallback();
+        BatteryDrawable drawable = createDrawable(new BatteryStyle.Builder().build(), callback);
+        Rect bounds = drawable.getBounds();
+
+        drawable.setPower(60);
+        Rect strip = callback.dirty;
+        assertTrue(bounds.contains(strip));
+        assertTrue(strip.height() < bounds.height() / 4);
+
+        // 跨过低电量阈值，颜色变化，整体刷新
+        drawable.setPower(20);
+        assertNotEquals(bounds, callback.dirty);
+        drawable.setPower(5);
+        assertEquals(bounds, callback.dirty);
+        drawable.setPower(20);
+        assertEquals(bounds, callback.dirty);
+
+        // 低电量阈值以下的电量变化仍然局部刷新
+        drawable.setPower(8);
+        drawable.setPower(3);
+        assertNotEquals(bounds, callback.dirty);
+        assertTrue(bounds.contains(callback.dirty));
+
+        // 充电状态变化，整体刷新
+        callback.dirty = null;
+        drawable.setCharging(true);
+        assertEquals(bounds, callback.dirty);
+        callback.dirty = null;
+        drawable.setCharging(false);
+        assertEquals(bounds, callback.dirty);
+    }
+
+    /**
+     * 按电量取色时整个内部区域都换了颜色，局部刷新会留下旧颜色
+     */
+    @Test
+    public void levelFillColorChangeInvalidatesAll() {
+        DirtyCallback callback = new DirtyCallback();
+        BatteryDrawable drawable = createDrawable(new BatteryStyle.Builder()
+                .setFillMode(BatteryView.FILL_LEVEL)
+                .build(), callback);
+        drawable.setPower(60);
+        assertEquals(drawable.getBounds(), callback.dirty);
+    }
+
+    /**
+     * 百分比文字在内部区域中心，离变化的部分很远，也要包含在刷新区域中
+     */
+    @Test
+    public void labelIsInsideDirtyBounds() {
+        DirtyCallback callback = new DirtyCallback();
+        BatteryDrawable drawable = createDrawable(new BatteryStyle.Builder()
+                .setShowLabel(true)
+                .build(), callback);
+        drawable.setPower(70);
+        TextCanvas canvas = new TextCanvas();
+        drawable.draw(canvas);
+
+        drawable.setPower(80);
+        drawable.draw(canvas);
+        assertNotEquals(drawable.getBounds(), callback.dirty);
+        RectF text = canvas.text;
+        assertTrue(callback.dirty.contains((int) Math.floor(text.left), (int) Math.floor(text.top),
+                (int) Math.ceil(text.right), (int) Math.ceil(text.bottom)));
+    }
+}
@@ -0,0 +1,133 @@
+package com.zhumj.batteryview;
+
+import static org.junit.Assert.assertEquals;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.view.View;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.GraphicsMode;
+
+import java.io.IOException;
+
+/**
+ * @Description : 绘制相关的基准测试：各方向、各充电动画下的 onDraw，列表场景下矢量绘制和精灵图集的对比，以及每帧的内存分配
+ */
+@RunWith(RobolectricTestRunner.class)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class BatteryDrawBenchmark {
+
+    private static final Benchmark benchmark = new Benchmark("BatteryDrawBenchmark");
+
+    @AfterClass
+    public static void writeResults() throws IOException {
+        benchmark.writeJson();
+    }
+
+    private static BatteryView createView(int orientation, boolean charging, int chargingMode) {
+        Context context = ApplicationProvider.getApplicationContext();
+        BatteryView view = new BatteryView(context);
+        view.setAutoDetect(false);
+        view.setOrientation(orientation);
+        view.setChargingAnimMode(chargingMode);
+        view.setCharging(charging);
+        view.setPower(87);
+        int unspecified = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+        view.measure(unspecified, unspecified);
+        view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
+        return view;
+    }
+
+    private static void measureDraw(String name, int orientation, boolean charging, int chargingMode) {
+        BatteryView view = createView(orientation, charging, chargingMode);
+        Bitmap bitmap = Bitmap.createBitmap(view.getWidth(), view.getHeight(), Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        benchmark.measure(name, i -> view.draw(canvas));
+    }
+
+    @Test
+    public void onDraw() {
+        measureDraw("drawVertical", BatteryView.VERTICAL, false, BatteryView.LIGHTNING);
+        measureDraw("drawVerticalLightning", BatteryView.VERTICAL, true, BatteryView.LIGHTNING);
+        measureDraw("drawVerticalStep", BatteryView.VERTICAL, true, BatteryView.STEP);
+        measureDraw("drawHorizontal", BatteryView.HORIZONTAL, false, BatteryView.LIGHTNING);
+        measureDraw("drawHorizontalLightning", BatteryView.HORIZONTAL, true, BatteryView.LIGHTNING);
+        measureDraw("drawHorizontalStep", BatteryView.HORIZONTAL, true, BatteryView.STEP);
+    }
+
+    /**
+     * 长列表中每一行的绘制耗时：矢量绘制对比精灵图集
+     */
+    @Test
+    public void listRow() {
+        int rows = 1000;
+        BatteryDrawable[] vector = new BatteryDrawable[rows];
+        BatteryDrawable[] atlas = new BatteryDrawable[rows];
+        for (int i = 0; i < rows; i++) {
+            vector[i] = createRow(i, false);
+            atlas[i] = createRow(i, true);
+        }
+        Bitmap bitmap = Bitmap.createBitmap(72, 135, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        benchmark.measure("listRowVector", i -> vector[i % rows].draw(canvas));
+        benchmark.measure("listRowSpriteAtlas", i -> atlas[i % rows].draw(canvas));
+    }
+
+    private static BatteryDrawable createRow(int index, boolean spriteAtlas) {
+        BatteryDrawable drawable = new BatteryDrawable();
+        drawable.setBounds(0, 0, 72, 135);
+        drawable.setSpriteAtlas(spriteAtlas);
+        drawable.setPower(index % 101);
+        return drawable;
+    }
+
+    /**
+     * 按电量插值和渐变填充：电量变化时只查表，不创建新的 Shader，不分配对象
+     */
+    @Test
+    public void fillModesAllocateNothing() {
+        NoOpCanvas canvas = new NoOpCanvas();
+        for (int fillMode : new int[]{BatteryView.FILL_LEVEL, BatteryView.FILL_GRADIENT}) {
+            BatteryDrawable drawable = new BatteryDrawable(new BatteryStyle.Builder()
+                    .setFillMode(fillMode)
+                    .setFillColors(0xFFFF0000, 0xFFFFFF00, 0xFF00FF00)
+                    .setLevels(BatteryLevels.CONTINUOUS)
+                    .build());
+            drawable.setBounds(0, 0, drawable.getIntrinsicWidth(), drawable.getIntrinsicHeight());
+            for (int i = 0; i < 100; i++) {
+                drawable.setPower(i % 101);
+                drawable.draw(canvas);
+            }
+            long start = Benchmark.allocatedBytes();
+            for (int i = 0; i < 1000; i++) {
+                drawable.setPower(i % 101);
+                drawable.draw(canvas);
+            }
+            assertEquals("allocated bytes, fill mode " + fillMode, 0, Benchmark.allocatedBytes() - start);
+        }
+    }
+
+    @Test
+    public void onDrawFillModes() {
+        measureFill("drawFillLevel", BatteryView.FILL_LEVEL);
+        measureFill("drawFillGradient", BatteryView.FILL_GRADIENT);
+    }
+
+    private static void measureFill(String name, int fillMode) {
+        BatteryView view = createView(BatteryView.VERTICAL, false, BatteryView.LIGHTNING);
+        view.setFillMode(fillMode);
+        Bitmap bitmap = Bitmap.createBitmap(view.getWidth(), view.getHeight(), Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        benchmark.measure(name, i -> {
+            view.setPower(i % 101);
+            view.draw(canvas);
+        });
+    }
+}
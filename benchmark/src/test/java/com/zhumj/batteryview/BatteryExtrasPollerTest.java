@@ -0,0 +1,165 @@
+package com.zhumj.batteryview;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import android.os.BatteryManager;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @Description : 扩展电池信息轮询测试，用假的 Provider 代替 BatteryManager，不需要设备
+ */
+public class BatteryExtrasPollerTest {
+
+    /**
+     * 每次读取电流加 1，模拟充电中不断变化的读数
+     */
+    private static final class FakeProvider implements BatteryExtrasPoller.Provider {
+        final AtomicInteger reads = new AtomicInteger();
+        volatile int status = BatteryManager.BATTERY_STATUS_CHARGING;
+        volatile boolean changing = true;
+
+        @Override
+        public BatteryExtras read() {
+            int n = reads.incrementAndGet();
+            return new BatteryExtras(changing ? n : 0, 3_000_000, 250, 4200, status, n);
+        }
+    }
+
+    /**
+     * 只记录回调任务，由测试手动执行，相当于主线程一直没空
+     */
+    private static final class QueueExecutor implements Executor {
+        final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+    }
+
+    private static void waitForReads(FakeProvider provider, int reads) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (provider.reads.get() < reads) {
+            assertTrue("timed out waiting for polls", System.currentTimeMillis() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    public void backsOffWhileIdle() {
+        BatteryExtrasPoller poller = new BatteryExtrasPoller(new FakeProvider(), null, Runnable::run);
+        poller.setIntervals(1, 10, 60, TimeUnit.SECONDS);
+        assertEquals(1000, poller.nextInterval(0, true, false));
+        assertEquals(1000, poller.nextInterval(40_000, true, true));
+        // 没在充电时从 idleInterval 开始，读数不变逐次翻倍，最长 maxInterval
+        long interval = poller.nextInterval(1000, false, false);
+        assertEquals(10_000, interval);
+        interval = poller.nextInterval(interval, false, false);
+        assertEquals(20_000, interval);
+        interval = poller.nextInterval(interval, false, false);
+        assertEquals(40_000, interval);
+        interval = poller.nextInterval(interval, false, false);
+        assertEquals(60_000, interval);
+        assertEquals(60_000, poller.nextInterval(interval, false, false));
+        // 读数变化回到 idleInterval
+        assertEquals(10_000, poller.nextInterval(interval, false, true));
+    }
+
+    @Test
+    public void conflatesUndeliveredResults() throws InterruptedException {
+        FakeProvider provider = new FakeProvider();
+        QueueExecutor executor = new QueueExecutor();
+        BatteryExtrasPoller poller = new BatteryExtrasPoller(provider, null, executor);
+        poller.setIntervals(1, 1, 1, TimeUnit.MILLISECONDS);
+        List<BatteryExtras> received = new ArrayList<>();
+        BatteryExtrasPoller.Listener listener = received::add;
+        poller.addListener(listener);
+        waitForReads(provider, 20);
+
+        // 读了很多次，但回调执行之前只安排了一次
+        assertEquals(1, executor.tasks.size());
+        executor.tasks.poll().run();
+        assertEquals(1, received.size());
+        assertTrue(received.get(0).getCurrentNow() >= 20);
+        poller.removeListener(listener);
+    }
+
+    @Test
+    public void newListenerGetsLastResult() throws InterruptedException {
+        FakeProvider provider = new FakeProvider();
+        BatteryExtrasPoller poller = new BatteryExtrasPoller(provider, null, Runnable::run);
+        BatteryExtrasPoller.Listener first = extras -> {
+        };
+        poller.addListener(first);
+        waitForReads(provider, 1);
+        BatteryExtras last = poller.getExtras();
+        assertNotNull(last);
+
+        List<BatteryExtras> received = new ArrayList<>();
+        BatteryExtrasPoller.Listener second = received::add;
+        poller.addListener(second);
+        assertSame(last, received.get(0));
+        poller.removeListener(first);
+        poller.removeListener(second);
+    }
+
+    @Test
+    public void stopsWithoutListeners() throws InterruptedException {
+        FakeProvider provider = new FakeProvider();
+        BatteryExtrasPoller poller = new BatteryExtrasPoller(provider, null, Runnable::run);
+        poller.setIntervals(1, 1, 1, TimeUnit.MILLISECONDS);
+        BatteryExtrasPoller.Listener listener = extras -> {
+        };
+        poller.addListener(listener);
+        waitForReads(provider, 5);
+        poller.removeListener(listener);
+        // 停止时可能还有一次正在进行的读取
+        Thread.sleep(20);
+        int reads = provider.reads.get();
+        Thread.sleep(50);
+        assertEquals(reads, provider.reads.get());
+    }
+
+    @Test
+    public void stateChangeTriggersImmediateRead() throws InterruptedException {
+        FakeProvider provider = new FakeProvider();
+        provider.status = BatteryManager.BATTERY_STATUS_DISCHARGING;
+        provider.changing = false;
+        ManualBatteryStateSource source = new ManualBatteryStateSource(
+                new BatteryState(50, 100, BatteryManager.BATTERY_STATUS_DISCHARGING));
+        BatteryExtrasPoller poller = new BatteryExtrasPoller(provider, source, Runnable::run);
+        // 没在充电时间隔很长，只有充电状态变化才会再读
+        poller.setIntervals(1, 1, 1, TimeUnit.HOURS);
+        BatteryExtrasPoller.Listener listener = extras -> {
+        };
+        poller.addListener(listener);
+        waitForReads(provider, 1);
+        Thread.sleep(20);
+        int reads = provider.reads.get();
+
+        provider.status = BatteryManager.BATTERY_STATUS_CHARGING;
+        source.setState(50, 100, true);
+        waitForReads(provider, reads + 1);
+        poller.removeListener(listener);
+    }
+
+    /**
+     * 换算成毫秒后为 0 的间隔会变成不停地读取，直接拒绝
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsSubMillisecondIntervals() {
+        BatteryExtrasPoller poller = new BatteryExtrasPoller(new FakeProvider(), new ManualBatteryStateSource(), Runnable::run);
+        poller.setIntervals(500, 500, 500, TimeUnit.MICROSECONDS);
+    }
+}
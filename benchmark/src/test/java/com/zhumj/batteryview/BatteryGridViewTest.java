@@ -0,0 +1,133 @@
+package com.zhumj.batteryview;
+
+import static org.junit.Assert.assertEquals;
+
+import android.content.Context;
+import android.graphics.Rect;
+import android.view.View;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * @Description : 电池网格测试：共用样式的等级数量或最大电量变化后，格子的电量从原始电量按新的等级表重新分级；
+ * 批量更新只刷新发生变化的格子
+ */
+@RunWith(RobolectricTestRunner.class)
+public class BatteryGridViewTest {
+
+    /**
+     * 记录刷新请求，整体刷新记为 null
+     */
+    private static final class RecordingGridView extends BatteryGridView {
+        final List<Rect> invalidations = new ArrayList<>();
+
+        RecordingGridView(Context context) {
+            super(context);
+        }
+
+        @Override
+        public void invalidate() {
+            super.invalidate();
+            if (invalidations != null) {
+                invalidations.add(null);
+            }
+        }
+
+        @Override
+        public void invalidate(Rect dirty) {
+            super.invalidate(dirty);
+            invalidations.add(new Rect(dirty));
+        }
+    }
+
+    /**
+     * 4 个格子排成 2 列，每个格子 72x135
+     */
+    private static RecordingGridView createGrid() {
+        RecordingGridView grid = new RecordingGridView(ApplicationProvider.getApplicationContext());
+        grid.setCellCount(4);
+        grid.measure(View.MeasureSpec.makeMeasureSpec(144, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+        grid.update(new int[]{50, 50, 50, 50}, new BitSet());
+        grid.invalidations.clear();
+        return grid;
+    }
+
+    @Test
+    public void styleChangeRequantizesCells() {
+        BatteryGridView grid = new BatteryGridView(ApplicationProvider.getApplicationContext());
+        grid.setCellCount(2);
+        grid.getDrawable().setLevels(BatteryLevels.CONTINUOUS);
+        grid.setCell(0, 37, false);
+        grid.setCell(1, 81, true);
+        assertEquals(37, grid.getPower(0));
+
+        grid.getDrawable().setLevels(10);
+        assertEquals(40, grid.getPower(0));
+        assertEquals(90, grid.getPower(1));
+
+        // 最大电量变化时按比例换算
+        grid.getDrawable().setMaxPower(1000);
+        assertEquals(400, grid.getPower(0));
+        assertEquals(900, grid.getPower(1));
+    }
+
+    /**
+     * 等级数量来回切换后，格子的电量回到设置的原始电量，不会因为分级丢失精度
+     */
+    @Test
+    public void requantizesFromRawPowers() {
+        BatteryGridView grid = new BatteryGridView(ApplicationProvider.getApplicationContext());
+        grid.setCellCount(1);
+        grid.getDrawable().setLevels(BatteryLevels.CONTINUOUS);
+        grid.setCell(0, 37, false);
+        grid.getDrawable().setLevels(10);
+        assertEquals(40, grid.getPower(0));
+        grid.getDrawable().setLevels(BatteryLevels.CONTINUOUS);
+        assertEquals(37, grid.getPower(0));
+
+        grid.getDrawable().setMaxPower(1000);
+        assertEquals(370, grid.getPower(0));
+        grid.getDrawable().setMaxPower(100);
+        assertEquals(37, grid.getPower(0));
+    }
+
+    @Test
+    public void unchangedCellsDoNotInvalidate() {
+        RecordingGridView grid = createGrid();
+        grid.setPowers(new int[]{50, 50, 50, 50});
+        grid.update(new int[]{48, 45, 50, 42}, new BitSet());
+        grid.setCharging(new BitSet());
+        grid.setCell(2, 50, false);
+        assertEquals(0, grid.invalidations.size());
+    }
+
+    @Test
+    public void changedCellsAreInvalidatedOncePerBatch() {
+        RecordingGridView grid = createGrid();
+        grid.setCell(3, 80, false);
+        assertEquals(1, grid.invalidations.size());
+        assertEquals(new Rect(72, 135, 144, 270), grid.invalidations.get(0));
+
+        // 第 0 个和第 1 个格子变化，合并成一次刷新
+        grid.invalidations.clear();
+        grid.setPowers(new int[]{90, 10, 50, 80});
+        assertEquals(1, grid.invalidations.size());
+        assertEquals(new Rect(0, 0, 144, 135), grid.invalidations.get(0));
+
+        grid.invalidations.clear();
+        BitSet charging = new BitSet();
+        charging.set(2);
+        grid.update(new int[]{90, 10, 50, 80}, charging);
+        assertEquals(1, grid.invalidations.size());
+        assertEquals(new Rect(0, 135, 72, 270), grid.invalidations.get(0));
+    }
+}
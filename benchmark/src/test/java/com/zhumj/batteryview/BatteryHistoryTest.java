@@ -0,0 +1,133 @@
+package com.zhumj.batteryview;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import android.graphics.Paint;
+import android.os.SystemClock;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.GraphicsMode;
+
+/**
+ * @Description : 电量历史测试：环形缓冲区、按时间分段、历史曲线增量更新并且绘制时不分配对象
+ */
+@RunWith(RobolectricTestRunner.class)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class BatteryHistoryTest {
+
+    /**
+     * 记录最后一次 drawLines 的线段
+     */
+    private static final class LinesCanvas extends NoOpCanvas {
+        float[] pts;
+        int count;
+
+        @Override
+        public void drawLines(float[] pts, int offset, int count, Paint paint) {
+            this.pts = pts;
+            this.count = count;
+        }
+    }
+
+    @Test
+    public void ringBufferDropsOldest() {
+        // 每 1000 毫秒一个采样
+        BatteryHistory history = new BatteryHistory(4, 4000);
+        assertEquals(1000, history.getBucketMillis());
+        assertTrue(history.add(0, 10, 100));
+        // 同一段内只保留最后一个
+        assertTrue(history.add(500, 20, 100));
+        assertEquals(1, history.size());
+        assertEquals(2000, history.getLevel(0));
+        // 比最后一个采样还早，忽略
+        assertFalse(history.add(100, 90, 100));
+        for (int i = 1; i <= 5; i++) {
+            history.add(i * 1000L, i * 10, 100);
+        }
+        assertEquals(4, history.size());
+        assertEquals(2000, history.getTime(0));
+        assertEquals(5000, history.getTime(3));
+        assertEquals(BatteryHistory.MAX_LEVEL / 2, history.getLevel(3));
+    }
+
+    @Test
+    public void addAllResamples() {
+        BatteryHistory fine = new BatteryHistory(8, 8000);
+        for (int i = 0; i < 8; i++) {
+            fine.add(i * 1000L, i, 100);
+        }
+        BatteryHistory coarse = new BatteryHistory(4, 8000);
+        coarse.addAll(fine);
+        assertEquals(4, coarse.size());
+        // 每段保留最后一个采样
+        for (int i = 0; i < 4; i++) {
+            assertEquals((i * 2 + 1) * 1000L, coarse.getTime(i));
+            assertEquals((i * 2 + 1) * BatteryHistory.MAX_LEVEL / 100, coarse.getLevel(i));
+        }
+    }
+
+    @Test
+    public void sparklineUpdatesOneLinePerSample() {
+        BatteryHistory history = new BatteryHistory(3, 3000);
+        BatterySparkline sparkline = new BatterySparkline(history);
+        sparkline.setSize(20, 10);
+        LinesCanvas canvas = new LinesCanvas();
+        Paint paint = new Paint();
+        sparkline.add(0, 100, 100);
+        sparkline.add(1000, 0, 100);
+        sparkline.draw(canvas, 0, 0, paint);
+        assertEquals(8, canvas.count);
+        // 第二个采样的线段从 (0, 0) 到 (10, 10)
+        assertEquals(0, canvas.pts[4], 0);
+        assertEquals(0, canvas.pts[5], 0);
+        assertEquals(10, canvas.pts[6], 0);
+        assertEquals(10, canvas.pts[7], 0);
+
+        sparkline.add(2000, 50, 100);
+        sparkline.add(3000, 100, 100);
+        sparkline.draw(canvas, 0, 0, paint);
+        assertEquals(12, canvas.count);
+        // 最旧的采样被覆盖，新的线段写在它的位置上
+        assertEquals(20, canvas.pts[0], 0);
+        assertEquals(5, canvas.pts[1], 0);
+        assertEquals(30, canvas.pts[2], 0);
+        assertEquals(0, canvas.pts[3], 0);
+    }
+
+    @Test
+    public void drawableDrawsHistoryWithoutAllocation() {
+        BatteryDrawable drawable = new BatteryDrawable(new BatteryStyle.Builder()
+                .setOrientation(BatteryView.HORIZONTAL)
+                .setHistoryMode(BatteryView.HISTORY_INSIDE)
+                .build());
+        drawable.setBounds(0, 0, drawable.getIntrinsicWidth(), drawable.getIntrinsicHeight());
+        BatteryHistory history = drawable.getHistory();
+        assertNotNull(history);
+        assertEquals((int) drawable.getInsideRect().width(), history.getCapacity());
+        assertEquals(BatteryStyle.DEFAULT_HISTORY_WINDOW * 60_000L, history.getWindowMillis());
+        assertEquals(1, history.size());
+        // 和 BatteryTimeEstimator 一样使用 elapsedRealtime，不受修改系统时间影响
+        assertEquals(SystemClock.elapsedRealtime(), history.getTime(0));
+
+        LinesCanvas canvas = new LinesCanvas();
+        for (int i = 0; i < 200; i++) {
+            drawable.setPower(i % 101);
+            drawable.draw(canvas);
+        }
+        assertEquals(history.size() * 4, canvas.count);
+        long start = Benchmark.allocatedBytes();
+        for (int i = 0; i < 1000; i++) {
+            drawable.setPower(i % 101);
+            drawable.draw(canvas);
+        }
+        assertEquals(0, Benchmark.allocatedBytes() - start);
+
+        drawable.setHistoryMode(BatteryView.HISTORY_NONE);
+        assertEquals(null, drawable.getHistory());
+    }
+}
@@ -0,0 +1,131 @@
+package com.zhumj.batteryview;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import android.content.Context;
+import android.graphics.Color;
+import android.util.AttributeSet;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * @Description : 创建 BatteryView 的基准测试：共用缓存样式和在布局里直接写属性的耗时对比，以及 500 个 BatteryView 的常驻内存
+ */
+@RunWith(RobolectricTestRunner.class)
+public class BatteryInflateBenchmark {
+
+    private static final int VIEW_COUNT = 500;
+
+    private static final Benchmark benchmark = new Benchmark("BatteryInflateBenchmark");
+
+    @AfterClass
+    public static void writeResults() throws IOException {
+        benchmark.writeJson();
+    }
+
+    /**
+     * 只有通用属性，可以使用缓存的样式
+     */
+    private static AttributeSet cachedAttrs() {
+        return Robolectric.buildAttributeSet()
+                .addAttribute(android.R.attr.layout_width, "wrap_content")
+                .addAttribute(android.R.attr.layout_height, "wrap_content")
+                .build();
+    }
+
+    /**
+     * 在布局里直接写了 BatteryView 属性，每次都要解析
+     */
+    private static AttributeSet inlineAttrs() {
+        return Robolectric.buildAttributeSet()
+                .addAttribute(android.R.attr.layout_width, "wrap_content")
+                .addAttribute(android.R.attr.layout_height, "wrap_content")
+                .addAttribute(R.attr.border_width, "6px")
+                .addAttribute(R.attr.chargingColor, "#ff00ff00")
+                .build();
+    }
+
+    @Test
+    public void inflate() {
+        Context context = ApplicationProvider.getApplicationContext();
+        AttributeSet cached = cachedAttrs();
+        AttributeSet inline = inlineAttrs();
+        benchmark.measure("inflateCachedStyle", VIEW_COUNT, i -> Benchmark.sink += new BatteryView(context, cached).getLevels());
+        benchmark.measure("inflateInlineAttrs", VIEW_COUNT, i -> Benchmark.sink += new BatteryView(context, inline).getLevels());
+    }
+
+    /**
+     * 500 个 BatteryView 的常驻内存：共用一个样式，对比每个 View 都单独修改了一个属性
+     */
+    @Test
+    public void retainedHeap() {
+        Context context = ApplicationProvider.getApplicationContext();
+        AttributeSet attrs = cachedAttrs();
+        BatteryView[] views = new BatteryView[VIEW_COUNT];
+
+        long before = Benchmark.usedMemory();
+        for (int i = 0; i < VIEW_COUNT; i++) {
+            views[i] = new BatteryView(context, attrs);
+        }
+        benchmark.record("retainedSharedStyle", "bytes/view", (double) (Benchmark.usedMemory() - before) / VIEW_COUNT);
+        Arrays.fill(views, null);
+
+        before = Benchmark.usedMemory();
+        for (int i = 0; i < VIEW_COUNT; i++) {
+            views[i] = new BatteryView(context, attrs);
+            views[i].setChargingColor(Color.rgb(0, i % 256, i / 256));
+        }
+        benchmark.record("retainedOwnStyle", "bytes/view", (double) (Benchmark.usedMemory() - before) / VIEW_COUNT);
+        Benchmark.sink += views[VIEW_COUNT - 1].getLevels();
+    }
+
+    /**
+     * 相同主题和属性的 View 共用一个样式，单独修改属性时复制一份，不影响其他 View
+     */
+    @Test
+    public void sharedStyleCopyOnWrite() {
+        Context context = ApplicationProvider.getApplicationContext();
+        BatteryView first = new BatteryView(context, cachedAttrs());
+        BatteryView second = new BatteryView(context, cachedAttrs());
+        assertSame(first.getBatteryStyle(), second.getBatteryStyle());
+
+        BatteryStyle shared = first.getBatteryStyle();
+        second.setBorderColor(Color.BLUE);
+        assertNotSame(shared, second.getBatteryStyle());
+        assertSame(shared, first.getBatteryStyle());
+        assertEquals(Color.BLACK, first.getBatteryStyle().getBorderColor());
+        assertEquals(Color.BLUE, second.getBatteryStyle().getBorderColor());
+
+        BatteryView inline = new BatteryView(context, inlineAttrs());
+        assertEquals(Color.GREEN, inline.getBatteryStyle().getChargingColor());
+    }
+
+    /**
+     * 已有相同内容的样式时，build() 直接按构建器的属性找到已有实例，不再创建画笔和查找表
+     */
+    @Test
+    public void internedBuildAllocatesNothing() {
+        BatteryStyle.Builder builder = new BatteryStyle.Builder()
+                .setFillMode(BatteryView.FILL_LEVEL)
+                .setChargingColor(Color.BLUE);
+        BatteryStyle first = builder.build();
+        assertSame(first, builder.build());
+
+        long start = Benchmark.allocatedBytes();
+        BatteryStyle second = builder.build();
+        assertEquals(0, Benchmark.allocatedBytes() - start);
+        assertSame(first, second);
+        assertSame(first, first.toBuilder().build());
+    }
+}
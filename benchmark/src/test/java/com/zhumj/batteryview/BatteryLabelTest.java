@@ -0,0 +1,116 @@
+package com.zhumj.batteryview;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RectF;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.GraphicsMode;
+
+/**
+ * @Description : 电量百分比文字测试：两个方向都放在内部区域内，绘制时不分配对象
+ */
+@RunWith(RobolectricTestRunner.class)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class BatteryLabelTest {
+
+    /**
+     * 只记录最后一次 drawText 的 Canvas
+     */
+    private static final class TextCanvas extends NoOpCanvas {
+        String text;
+        float x;
+        float y;
+        float width;
+        float ascent;
+        float descent;
+
+        @Override
+        public void drawText(String text, float x, float y, Paint paint) {
+            this.text = text;
+            this.x = x;
+            this.y = y;
+            this.width = paint.measureText(text);
+            this.ascent = paint.ascent();
+            this.descent = paint.descent();
+        }
+    }
+
+    private static BatteryDrawable createDrawable(int orientation, float textSize) {
+        BatteryDrawable drawable = new BatteryDrawable(new BatteryStyle.Builder()
+                .setOrientation(orientation)
+                .setShowLabel(true)
+                .setLabelTextSize(textSize)
+                .build());
+        drawable.setBounds(0, 0, drawable.getIntrinsicWidth(), drawable.getIntrinsicHeight());
+        return drawable;
+    }
+
+    @Test
+    public void labelFitsInsideBothOrientations() {
+        for (int orientation : new int[]{BatteryView.VERTICAL, BatteryView.HORIZONTAL}) {
+            // 0 自动计算字号，200 远大于内部区域，需要缩小
+            for (float textSize : new float[]{0, 200}) {
+                BatteryDrawable drawable = createDrawable(orientation, textSize);
+                RectF inside = drawable.getInsideRect();
+                TextCanvas canvas = new TextCanvas();
+                for (int power = 0; power <= 100; power += 10) {
+                    drawable.setPower(power);
+                    drawable.draw(canvas);
+                    assertEquals(power + "%", canvas.text);
+                    String message = "orientation=" + orientation + ", textSize=" + textSize + ", power=" + power;
+                    assertTrue(message, canvas.x >= inside.left - 0.5f);
+                    assertTrue(message, canvas.x + canvas.width <= inside.right + 0.5f);
+                    assertTrue(message, canvas.y + canvas.ascent >= inside.top - 0.5f);
+                    assertTrue(message, canvas.y + canvas.descent <= inside.bottom + 0.5f);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void hiddenWhileChargingWithLightning() {
+        BatteryDrawable drawable = createDrawable(BatteryView.VERTICAL, 0);
+        drawable.setCharging(true);
+        TextCanvas canvas = new TextCanvas();
+        drawable.draw(canvas);
+        assertEquals(null, canvas.text);
+    }
+
+    /**
+     * 预热之后画百分比不测量文字、不创建字符串
+     */
+    @Test
+    public void drawAllocatesNothing() {
+        BatteryDrawable drawable = createDrawable(BatteryView.HORIZONTAL, 0);
+        Canvas canvas = new NoOpCanvas();
+        for (int i = 0; i < 200; i++) {
+            drawable.setPower(i % 101);
+            drawable.draw(canvas);
+        }
+        long start = Benchmark.allocatedBytes();
+        for (int i = 0; i < 1000; i++) {
+            drawable.setPower(i % 101);
+            drawable.draw(canvas);
+        }
+        assertEquals(0, Benchmark.allocatedBytes() - start);
+    }
+
+    /**
+     * 百分比文字的样式不同，位图缓存不能共用
+     */
+    @Test
+    public void labelStyleIsPartOfCacheKey() {
+        BatteryDrawable label = createDrawable(BatteryView.VERTICAL, 0);
+        BatteryDrawable bigger = createDrawable(BatteryView.VERTICAL, 20);
+        BatteryDrawable hidden = new BatteryDrawable(label.getBatteryStyle().toBuilder().setShowLabel(false).build());
+        assertNotEquals(label.getCacheKey(), bigger.getCacheKey());
+        assertNotEquals(label.getCacheKey(), hidden.getCacheKey());
+    }
+}
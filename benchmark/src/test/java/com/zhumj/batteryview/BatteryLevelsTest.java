@@ -0,0 +1,136 @@
+package com.zhumj.batteryview;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * @Description : 电量分级查找表测试，10 级时必须和原来 if/else 的分级和步进结果一致
+ */
+public class BatteryLevelsTest {
+
+    private static final int[] MAX_POWERS = {1, 5, 7, 10, 13, 50, 99, 100, 101, 255, 1000};
+
+    @Test
+    public void quantizeMatchesLegacyAtTenLevels() {
+        for (int maxPower : MAX_POWERS) {
+            BatteryLevels levels = new BatteryLevels(maxPower, 10);
+            for (int power = -5; power <= maxPower + 5; power++) {
+                assertEquals("maxPower=" + maxPower + ", power=" + power,
+                        legacyVerifyPower(maxPower, power), levels.quantize(power));
+            }
+        }
+    }
+
+    @Test
+    public void nextStepMatchesLegacyAtTenLevels() {
+        // 原来的实现在 maxPower 不是 5 的倍数时会走到非等级值上，只比较 5 的倍数
+        for (int maxPower : new int[]{5, 10, 50, 100, 255, 1000}) {
+            BatteryLevels levels = new BatteryLevels(maxPower, 10);
+            for (int power = 0; power <= maxPower; power++) {
+                assertEquals("maxPower=" + maxPower + ", power=" + power,
+                        legacyNextStep(maxPower, power), levels.nextStep(power));
+            }
+        }
+    }
+
+    @Test
+    public void finerLevels() {
+        BatteryLevels levels = new BatteryLevels(100, 20);
+        assertEquals(0, levels.quantize(0));
+        assertEquals(5, levels.quantize(1));
+        assertEquals(5, levels.quantize(5));
+        assertEquals(10, levels.quantize(6));
+        assertEquals(100, levels.quantize(96));
+        assertEquals(21, levels.getValueCount());
+        assertEquals(3, levels.indexOf(15));
+        assertEquals(-1, levels.indexOf(16));
+
+        BatteryLevels percent = new BatteryLevels(100, 100);
+        for (int power = 0; power <= 100; power++) {
+            assertEquals(power, percent.quantize(power));
+        }
+    }
+
+    @Test
+    public void continuous() {
+        BatteryLevels levels = new BatteryLevels(100, BatteryLevels.CONTINUOUS);
+        assertEquals(0, levels.quantize(-1));
+        assertEquals(37, levels.quantize(37));
+        assertEquals(100, levels.quantize(150));
+        assertEquals(0, levels.getValueCount());
+        assertEquals(-1, levels.indexOf(50));
+        assertEquals(20, levels.nextStep(0));
+        assertEquals(40, levels.nextStep(37));
+        assertEquals(20, levels.nextStep(100));
+    }
+
+    @Test
+    public void largeMaxPowerWithoutTable() {
+        BatteryLevels levels = new BatteryLevels(100000, 10);
+        assertEquals(10000, levels.quantize(1));
+        assertEquals(50000, levels.quantize(45000));
+        assertEquals(100000, levels.quantize(90001));
+        assertEquals(40000, levels.nextStep(20000));
+    }
+
+    /**
+     * 原来的 verifyPower
+     */
+    private static int legacyVerifyPower(int maxPower, int power) {
+        int p;
+        if (power <= 0) {
+            p = 0;
+        } else if (power <= maxPower/10) {
+            p = maxPower/10;
+        } else if (power <= maxPower*2/10) {
+            p = maxPower/5;
+        } else if (power <= maxPower*3/10) {
+            p = maxPower*3/10;
+        } else if (power <= maxPower*4/10) {
+            p = maxPower*4/10;
+        } else if (power <= maxPower*5/10) {
+            p = maxPower*5/10;
+        } else if (power <= maxPower*6/10) {
+            p = maxPower*6/10;
+        } else if (power <= maxPower*7/10) {
+            p = maxPower*7/10;
+        } else if (power <= maxPower*8/10) {
+            p = maxPower*8/10;
+        } else if (power <= maxPower*9/10) {
+            p = maxPower*9/10;
+        } else {
+            p = maxPower;
+        }
+        return p;
+    }
+
+    /**
+     * 原来 chargingTask 中的步进逻辑
+     */
+    private static int legacyNextStep(int maxPower, int p) {
+        if (p >= maxPower) {
+            p = maxPower/5;
+        } else {
+            if (p == maxPower/5 || p == maxPower*2/5 || p == maxPower*3/5 || p == maxPower*4/5) {
+                p += maxPower/5;
+            } else {
+                if (p <= maxPower/5) {
+                    p = maxPower/5;
+                }
+                else if (p <= maxPower*2/5) {
+                    p = maxPower*2/5;
+                }
+                else if (p <= maxPower*3/5) {
+                    p = maxPower*3/5;
+                }
+                else if (p <= maxPower*4/5) {
+                    p = maxPower*4/5;
+                } else {
+                    p = maxPower;
+                }
+            }
+        }
+        return p;
+    }
+}
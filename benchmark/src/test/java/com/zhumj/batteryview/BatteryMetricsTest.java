@@ -0,0 +1,175 @@
+package com.zhumj.batteryview;
+
+import static android.os.Looper.getMainLooper;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.app.Activity;
+import android.graphics.drawable.Drawable;
+import android.os.BatteryManager;
+
+import androidx.annotation.NonNull;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.LooperMode;
+
+import java.time.Duration;
+
+/**
+ * @Description : 绘制和更新统计测试：直方图分桶、不在屏幕上的步进、刷新请求和实际绘制、关闭时不分配对象
+ */
+@RunWith(RobolectricTestRunner.class)
+@LooperMode(LooperMode.Mode.PAUSED)
+public class BatteryMetricsTest {
+
+    /**
+     * 只接收刷新请求，从不绘制，相当于 View 不在屏幕上
+     */
+    private static final class OffscreenCallback implements Drawable.Callback {
+        @Override
+        public void invalidateDrawable(@NonNull Drawable who) {
+        }
+
+        @Override
+        public void scheduleDrawable(@NonNull Drawable who, @NonNull Runnable what, long when) {
+        }
+
+        @Override
+        public void unscheduleDrawable(@NonNull Drawable who, @NonNull Runnable what) {
+        }
+    }
+
+    @After
+    public void tearDown() {
+        BatteryMetrics.setGlobal(null);
+    }
+
+    @Test
+    public void histogramBuckets() {
+        assertEquals(0, BatteryMetrics.bucketOf(0));
+        assertEquals(0, BatteryMetrics.bucketOf(BatteryMetrics.getBucketUpperBound(0) - 1));
+        for (int i = 1; i < BatteryMetrics.BUCKET_COUNT - 1; i++) {
+            assertEquals(i, BatteryMetrics.bucketOf(BatteryMetrics.getBucketUpperBound(i - 1)));
+            assertEquals(i, BatteryMetrics.bucketOf(BatteryMetrics.getBucketUpperBound(i) - 1));
+        }
+        assertEquals(BatteryMetrics.BUCKET_COUNT - 1, BatteryMetrics.bucketOf(Long.MAX_VALUE));
+
+        BatteryMetrics metrics = new BatteryMetrics();
+        metrics.recordDraw(1_000);
+        metrics.recordDraw(5_000_000);
+        BatteryMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(2, snapshot.getDrawCount());
+        assertEquals(5_001_000, snapshot.getDrawTimeNanos());
+        assertEquals(5_000_000, snapshot.getMaxDrawTimeNanos());
+        assertEquals(1, snapshot.getDrawHistogram(0));
+        assertEquals(1, snapshot.getDrawHistogram(BatteryMetrics.bucketOf(5_000_000)));
+        metrics.reset();
+        assertEquals(0, metrics.snapshot().getDrawCount());
+        // 快照不随之后的记录变化
+        assertEquals(2, snapshot.getDrawCount());
+    }
+
+    @Test
+    public void viewOverridesGlobal() {
+        BatteryMetrics global = new BatteryMetrics();
+        BatteryMetrics own = new BatteryMetrics();
+        BatteryMetrics.setGlobal(global);
+        BatteryDrawable drawable = new BatteryDrawable();
+        drawable.setBounds(0, 0, drawable.getIntrinsicWidth(), drawable.getIntrinsicHeight());
+        NoOpCanvas canvas = new NoOpCanvas();
+        drawable.draw(canvas);
+        drawable.setMetrics(own);
+        drawable.draw(canvas);
+        drawable.draw(canvas);
+        assertEquals(1, global.snapshot().getDrawCount());
+        assertEquals(2, own.snapshot().getDrawCount());
+    }
+
+    @Test
+    public void countsOffscreenTicks() {
+        BatteryMetrics metrics = new BatteryMetrics();
+        BatteryDrawable drawable = new BatteryDrawable(new BatteryStyle.Builder()
+                .setChargingAnimMode(BatteryView.STEP)
+                .build());
+        drawable.setBounds(0, 0, drawable.getIntrinsicWidth(), drawable.getIntrinsicHeight());
+        drawable.setMetrics(metrics);
+        drawable.setCallback(new OffscreenCallback());
+        drawable.setCharging(true);
+        drawable.setVisible(true, false);
+
+        // 第一次步进前还没有请求刷新，不算不在屏幕上
+        shadowOf(getMainLooper()).idleFor(Duration.ofMillis(BatteryAnimationClock.STEP_INTERVAL * 3 + 100));
+        BatteryMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(3, snapshot.getAnimationTicks());
+        assertEquals(2, snapshot.getOffscreenAnimationTicks());
+
+        // 每次步进之间都绘制过
+        NoOpCanvas canvas = new NoOpCanvas();
+        for (int i = 0; i < 3; i++) {
+            drawable.draw(canvas);
+            shadowOf(getMainLooper()).idleFor(Duration.ofMillis(BatteryAnimationClock.STEP_INTERVAL));
+        }
+        snapshot = metrics.snapshot();
+        assertEquals(6, snapshot.getAnimationTicks());
+        assertEquals(2, snapshot.getOffscreenAnimationTicks());
+        drawable.setVisible(false, false);
+    }
+
+    @Test
+    public void countsReceiverEventsAndInvalidations() {
+        Activity activity = Robolectric.buildActivity(Activity.class).setup().get();
+        BatteryMetrics metrics = new BatteryMetrics();
+        ManualBatteryStateSource source = new ManualBatteryStateSource(
+                new BatteryState(50, 100, BatteryManager.BATTERY_STATUS_DISCHARGING));
+        BatteryView view = new BatteryView(activity);
+        view.setMetrics(metrics);
+        view.setBatteryStateSource(source);
+        activity.setContentView(view);
+        shadowOf(getMainLooper()).idle();
+
+        source.setState(20, 100, false);
+        shadowOf(getMainLooper()).idle();
+        source.setState(80, 100, false);
+        shadowOf(getMainLooper()).idle();
+        BatteryMetrics.Snapshot snapshot = metrics.snapshot();
+        // 订阅时的当前状态加两次变化
+        assertEquals(3, snapshot.getReceiverEvents());
+        assertTrue(snapshot.getInvalidationsRequested() >= 2);
+
+        view.draw(new NoOpCanvas());
+        snapshot = metrics.snapshot();
+        assertTrue(snapshot.getInvalidationsPerformed() >= 1);
+        assertTrue(snapshot.getInvalidationsPerformed() <= snapshot.getInvalidationsRequested());
+        assertTrue(snapshot.getDrawCount() >= 1);
+    }
+
+    /**
+     * 关闭时不计时、不计数；打开时记录也不分配对象
+     */
+    @Test
+    public void drawAllocatesNothing() {
+        BatteryDrawable drawable = new BatteryDrawable();
+        drawable.setBounds(0, 0, drawable.getIntrinsicWidth(), drawable.getIntrinsicHeight());
+        NoOpCanvas canvas = new NoOpCanvas();
+        assertNull(drawable.getActiveMetrics());
+        for (BatteryMetrics metrics : new BatteryMetrics[]{null, new BatteryMetrics()}) {
+            drawable.setMetrics(metrics);
+            for (int i = 0; i < 200; i++) {
+                drawable.setPower(i % 101);
+                drawable.draw(canvas);
+            }
+            long start = Benchmark.allocatedBytes();
+            for (int i = 0; i < 1000; i++) {
+                drawable.setPower(i % 101);
+                drawable.draw(canvas);
+            }
+            assertEquals(0, Benchmark.allocatedBytes() - start);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.zhumj.batteryview;
+
+import static android.os.Looper.getMainLooper;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.Intent;
+import android.graphics.Bitmap;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.os.BatteryManager;
+import android.os.PowerManager;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.GraphicsMode;
+import org.robolectric.annotation.LooperMode;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @Description : 自适应绘制质量测试，省电模式下停止步进动画并显示真实电量，退出后自动恢复
+ */
+@RunWith(RobolectricTestRunner.class)
+@LooperMode(LooperMode.Mode.PAUSED)
+public class BatteryQualityTest {
+
+    @Test
+    public void computeQuality() {
+        assertEquals(BatteryQualityMonitor.QUALITY_FULL,
+                BatteryQualityMonitor.computeQuality(false, PowerManager.THERMAL_STATUS_LIGHT));
+        assertEquals(BatteryQualityMonitor.QUALITY_REDUCED,
+                BatteryQualityMonitor.computeQuality(false, PowerManager.THERMAL_STATUS_MODERATE));
+        assertEquals(BatteryQualityMonitor.QUALITY_MINIMAL,
+                BatteryQualityMonitor.computeQuality(false, PowerManager.THERMAL_STATUS_SEVERE));
+        assertEquals(BatteryQualityMonitor.QUALITY_MINIMAL,
+                BatteryQualityMonitor.computeQuality(true, PowerManager.THERMAL_STATUS_NONE));
+    }
+
+    @Test
+    public void powerSaveFreezesStepAnimation() {
+        Activity activity = Robolectric.buildActivity(Activity.class).setup().get();
+        PowerManager powerManager = (PowerManager) activity.getSystemService(Context.POWER_SERVICE);
+        BatteryView view = new BatteryView(activity);
+        view.setChargingAnimMode(BatteryView.STEP);
+        view.setBatteryStateSource(new ManualBatteryStateSource(
+                new BatteryState(50, 100, BatteryManager.BATTERY_STATUS_CHARGING)));
+        view.setAdaptiveQuality(true);
+        List<Integer> qualities = new ArrayList<>();
+        view.setOnQualityChangeListener(qualities::add);
+        activity.setContentView(view);
+        shadowOf(getMainLooper()).idle();
+        assertEquals(BatteryQualityMonitor.QUALITY_FULL, view.getQuality());
+
+        // 充电中步进动画会改变显示的电量
+        shadowOf(getMainLooper()).idleFor(Duration.ofMillis(BatteryAnimationClock.STEP_INTERVAL + 100));
+        assertEquals(60, view.getBatteryDrawable().getPower());
+
+        shadowOf(powerManager).setIsPowerSaveMode(true);
+        activity.sendBroadcast(new Intent(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED));
+        shadowOf(getMainLooper()).idle();
+        assertEquals(BatteryQualityMonitor.QUALITY_MINIMAL, view.getQuality());
+        assertEquals(50, view.getBatteryDrawable().getPower());
+        shadowOf(getMainLooper()).idleFor(Duration.ofMillis(BatteryAnimationClock.STEP_INTERVAL * 3));
+        assertEquals(50, view.getBatteryDrawable().getPower());
+
+        shadowOf(powerManager).setIsPowerSaveMode(false);
+        activity.sendBroadcast(new Intent(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED));
+        shadowOf(getMainLooper()).idle();
+        assertEquals(BatteryQualityMonitor.QUALITY_FULL, view.getQuality());
+        assertEquals(2, qualities.size());
+        assertEquals(BatteryQualityMonitor.QUALITY_MINIMAL, (int) qualities.get(0));
+        assertEquals(BatteryQualityMonitor.QUALITY_FULL, (int) qualities.get(1));
+    }
+
+    /**
+     * 记录最后一次画出的图集位图
+     */
+    private static final class AtlasCanvas extends NoOpCanvas {
+        Bitmap bitmap;
+
+        @Override
+        public void drawBitmap(Bitmap bitmap, Rect src, Rect dst, Paint paint) {
+            this.bitmap = bitmap;
+        }
+    }
+
+    @Test
+    @GraphicsMode(GraphicsMode.Mode.NATIVE)
+    public void reducedQualityUsesOwnAtlas() {
+        BatteryDrawable full = new BatteryDrawable();
+        BatteryDrawable reduced = new BatteryDrawable();
+        for (BatteryDrawable drawable : new BatteryDrawable[]{full, reduced}) {
+            drawable.setSpriteAtlas(true);
+            drawable.setBounds(0, 0, 72, 135);
+            drawable.setPower(50);
+        }
+        reduced.setQuality(BatteryQualityMonitor.QUALITY_REDUCED);
+        AtlasCanvas canvas = new AtlasCanvas();
+        full.draw(canvas);
+        Bitmap fullAtlas = canvas.bitmap;
+        reduced.draw(canvas);
+        // 关闭抗锯齿画出的图集不能给完整质量使用
+        assertNotSame(fullAtlas, canvas.bitmap);
+
+        reduced.setQuality(BatteryQualityMonitor.QUALITY_FULL);
+        reduced.draw(canvas);
+        assertEquals(fullAtlas, canvas.bitmap);
+    }
+}
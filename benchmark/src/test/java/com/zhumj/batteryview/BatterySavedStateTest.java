@@ -0,0 +1,79 @@
+package com.zhumj.batteryview;
+
+import static android.os.Looper.getMainLooper;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.app.Activity;
+import android.os.BatteryManager;
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.LooperMode;
+
+import java.time.Duration;
+
+/**
+ * @Description : 保存状态和进程内最近电池状态测试，重建后的第一帧就是正确的电量
+ */
+@RunWith(RobolectricTestRunner.class)
+@LooperMode(LooperMode.Mode.PAUSED)
+public class BatterySavedStateTest {
+
+    private static Parcelable parcel(Parcelable state) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            state.writeToParcel(parcel, 0);
+            parcel.setDataPosition(0);
+            return BatteryView.SavedState.CREATOR.createFromParcel(parcel);
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    @Test
+    public void restoresLevelChargingAndStepPhase() {
+        Activity activity = Robolectric.buildActivity(Activity.class).setup().get();
+        BatteryView view = new BatteryView(activity);
+        view.setChargingAnimMode(BatteryView.STEP);
+        view.setBatteryStateSource(new ManualBatteryStateSource(
+                new BatteryState(30, 200, BatteryManager.BATTERY_STATUS_CHARGING)));
+        activity.setContentView(view);
+        shadowOf(getMainLooper()).idle();
+        shadowOf(getMainLooper()).idleFor(Duration.ofMillis(BatteryAnimationClock.STEP_INTERVAL + 100));
+        BatteryDrawable drawable = view.getBatteryDrawable();
+        int stepPower = drawable.getPower();
+        assertNotEquals(drawable.getRealPower(), stepPower);
+
+        Parcelable saved = parcel(view.onSaveInstanceState());
+
+        BatteryView restored = new BatteryView(activity);
+        restored.setAutoDetect(false);
+        restored.onRestoreInstanceState(saved);
+        BatteryDrawable restoredDrawable = restored.getBatteryDrawable();
+        assertEquals(200, restoredDrawable.getMaxPower());
+        assertEquals(drawable.getRealPower(), restoredDrawable.getRealPower());
+        assertEquals(stepPower, restoredDrawable.getPower());
+        assertTrue(restored.isCharging());
+        assertTrue(restoredDrawable.isCharging());
+    }
+
+    @Test
+    public void newViewUsesLastKnownState() {
+        Activity activity = Robolectric.buildActivity(Activity.class).setup().get();
+        BatteryStateHub hub = BatteryStateHub.getInstance(activity);
+        hub.dispatch(new BatteryState(40, 100, BatteryManager.BATTERY_STATUS_DISCHARGING));
+
+        BatteryView view = new BatteryView(activity);
+        assertEquals(40, view.getBatteryDrawable().getPower());
+        assertEquals(100, view.getBatteryDrawable().getMaxPower());
+        // 不影响其它测试
+        hub.setState(null);
+    }
+}
@@ -0,0 +1,103 @@
+package com.zhumj.batteryview;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.BatteryManager;
+import android.view.View;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+
+/**
+ * @Description : 状态相关的基准测试：测量、电量分级、STEP 动画步进，以及电量广播的解析和分发
+ */
+@RunWith(RobolectricTestRunner.class)
+public class BatteryStateBenchmark {
+
+    private static final Benchmark benchmark = new Benchmark("BatteryStateBenchmark");
+
+    @AfterClass
+    public static void writeResults() throws IOException {
+        benchmark.writeJson();
+    }
+
+    @Test
+    public void onMeasure() {
+        Context context = ApplicationProvider.getApplicationContext();
+        BatteryView view = new BatteryView(context);
+        view.setAutoDetect(false);
+        int width = View.MeasureSpec.makeMeasureSpec(200, View.MeasureSpec.AT_MOST);
+        int height = View.MeasureSpec.makeMeasureSpec(300, View.MeasureSpec.AT_MOST);
+        benchmark.measure("measure", i -> {
+            view.forceLayout();
+            view.measure(width, height);
+        });
+    }
+
+    @Test
+    public void verifyPower() {
+        BatteryDrawable drawable = new BatteryDrawable();
+        benchmark.measure("verifyPower", i -> Benchmark.sink += drawable.verifyPower(i % 101));
+    }
+
+    @Test
+    public void nextStepPower() {
+        BatteryDrawable drawable = new BatteryDrawable();
+        int[] power = {0};
+        benchmark.measure("nextStepPower", i -> power[0] = drawable.nextStepPower(power[0]));
+        Benchmark.sink += power[0];
+    }
+
+    /**
+     * 预计时间每个采样的耗时，每 100 个采样电量变化一次
+     */
+    @Test
+    public void timeEstimatorSample() {
+        BatteryTimeEstimator estimator = new BatteryTimeEstimator();
+        benchmark.measure("timeEstimatorSample",
+                i -> estimator.onSample(i * 1000L, 100 - (i / 100) % 100, 100, (i / 10_000) % 2 == 0));
+        Benchmark.sink += estimator.getTimeToEmpty();
+    }
+
+    /**
+     * 一次电量广播从解析到分发给 20 个电池的耗时
+     */
+    @Test
+    public void broadcast() {
+        Context context = ApplicationProvider.getApplicationContext();
+        BatteryStateHub hub = BatteryStateHub.getInstance(context);
+        BatteryDrawable[] drawables = new BatteryDrawable[20];
+        BatteryStateSource.Listener[] listeners = new BatteryStateSource.Listener[drawables.length];
+        for (int i = 0; i < drawables.length; i++) {
+            BatteryDrawable drawable = new BatteryDrawable();
+            drawable.setBounds(0, 0, drawable.getIntrinsicWidth(), drawable.getIntrinsicHeight());
+            drawables[i] = drawable;
+            listeners[i] = state -> {
+                drawable.setMaxPower(state.getScale());
+                drawable.setPower(state.getLevel());
+                drawable.setCharging(state.isCharging());
+            };
+            hub.addListener(listeners[i]);
+        }
+        Intent[] intents = new Intent[101];
+        for (int level = 0; level < intents.length; level++) {
+            intents[level] = new Intent(Intent.ACTION_BATTERY_CHANGED)
+                    .putExtra(BatteryManager.EXTRA_LEVEL, level)
+                    .putExtra(BatteryManager.EXTRA_SCALE, 100)
+                    .putExtra(BatteryManager.EXTRA_STATUS, BatteryManager.BATTERY_STATUS_DISCHARGING);
+        }
+        try {
+            benchmark.measure("broadcastTo20", i -> hub.dispatch(BatteryState.fromIntent(intents[i % intents.length])));
+        } finally {
+            for (BatteryStateSource.Listener listener : listeners) {
+                hub.removeListener(listener);
+            }
+        }
+    }
+}
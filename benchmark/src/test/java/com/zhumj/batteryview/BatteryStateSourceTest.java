@@ -0,0 +1,296 @@
+package com.zhumj.batteryview;
+
+import static android.os.Looper.getMainLooper;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.app.Activity;
+import android.os.BatteryManager;
+import android.view.ViewGroup;
+
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.LifecycleRegistry;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.LooperMode;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * @Description : 电池状态来源测试，后台线程的高频更新在 View 中合并为每帧一次
+ */
+@RunWith(RobolectricTestRunner.class)
+@LooperMode(LooperMode.Mode.PAUSED)
+public class BatteryStateSourceTest {
+
+    private static BatteryView attach(BatteryStateSource source) {
+        Activity activity = Robolectric.buildActivity(Activity.class).setup().get();
+        BatteryView view = new BatteryView(activity);
+        view.setBatteryStateSource(source);
+        activity.setContentView(view);
+        shadowOf(getMainLooper()).idle();
+        return view;
+    }
+
+    @Test
+    public void backgroundBurstIsConflatedIntoOneFrame() throws InterruptedException {
+        ManualBatteryStateSource source = new ManualBatteryStateSource(
+                new BatteryState(50, 100, BatteryManager.BATTERY_STATUS_DISCHARGING));
+        BatteryView view = attach(source);
+        assertEquals(50, view.getBatteryDrawable().getPower());
+        view.resetUpdateCounts();
+
+        Thread producer = new Thread(() -> {
+            for (int i = 1; i <= 500; i++) {
+                source.setState(i % 101, 100, false);
+            }
+        });
+        producer.start();
+        producer.join();
+        shadowOf(getMainLooper()).idleFor(Duration.ofMillis(100));
+
+        assertEquals(500, view.getReceivedUpdateCount());
+        assertEquals(499, view.getCoalescedUpdateCount());
+        // 最后一次是 96，按 10 级显示为 100
+        assertEquals(100, view.getBatteryDrawable().getPower());
+    }
+
+    /**
+     * 同一帧内的多次状态只处理最后一次，其余计入合并次数；处理后的下一次状态重新安排一帧
+     */
+    @Test
+    public void coalescedCountPerFrame() {
+        ManualBatteryStateSource source = new ManualBatteryStateSource(
+                new BatteryState(50, 100, BatteryManager.BATTERY_STATUS_DISCHARGING));
+        BatteryView view = attach(source);
+        view.resetUpdateCounts();
+
+        source.setState(60, 100, false);
+        source.setState(70, 100, false);
+        source.setState(80, 100, false);
+        assertEquals(3, view.getReceivedUpdateCount());
+        assertEquals(2, view.getCoalescedUpdateCount());
+        assertEquals(50, view.getBatteryDrawable().getPower());
+        shadowOf(getMainLooper()).idleFor(Duration.ofMillis(20));
+        assertEquals(80, view.getBatteryDrawable().getPower());
+
+        source.setState(90, 100, false);
+        assertEquals(2, view.getCoalescedUpdateCount());
+        shadowOf(getMainLooper()).idleFor(Duration.ofMillis(20));
+        assertEquals(90, view.getBatteryDrawable().getPower());
+        assertEquals(0, view.getSkippedUpdateCount());
+
+        view.resetUpdateCounts();
+        assertEquals(0, view.getReceivedUpdateCount());
+        assertEquals(0, view.getCoalescedUpdateCount());
+    }
+
+    /**
+     * 分级后的电量、充电状态和最大电量都没变化时跳过；充电步进动画中电量由动画控制，也跳过
+     */
+    @Test
+    public void skippedCountWithoutVisibleChange() {
+        ManualBatteryStateSource source = new ManualBatteryStateSource(
+                new BatteryState(55, 100, BatteryManager.BATTERY_STATUS_DISCHARGING));
+        BatteryView view = attach(source);
+        assertEquals(60, view.getBatteryDrawable().getPower());
+        view.resetUpdateCounts();
+
+        // 55 和 58 都显示为 60
+        source.setState(58, 100, false);
+        shadowOf(getMainLooper()).idleFor(Duration.ofMillis(20));
+        assertEquals(1, view.getSkippedUpdateCount());
+
+        source.setState(65, 100, false);
+        shadowOf(getMainLooper()).idleFor(Duration.ofMillis(20));
+        assertEquals(1, view.getSkippedUpdateCount());
+        assertEquals(70, view.getBatteryDrawable().getPower());
+
+        // 最大电量变化时不跳过
+        source.setState(65, 200, false);
+        shadowOf(getMainLooper()).idleFor(Duration.ofMillis(20));
+        assertEquals(1, view.getSkippedUpdateCount());
+
+        view.setChargingAnimMode(BatteryView.STEP);
+        source.setState(65, 200, true);
+        shadowOf(getMainLooper()).idleFor(Duration.ofMillis(20));
+        assertEquals(1, view.getSkippedUpdateCount());
+        assertTrue(view.isCharging());
+        source.setState(90, 200, true);
+        shadowOf(getMainLooper()).idleFor(Duration.ofMillis(20));
+        assertEquals(2, view.getSkippedUpdateCount());
+        assertEquals(0, view.getCoalescedUpdateCount());
+    }
+
+    /**
+     * 多个线程同时 publish，每次变化只分发一次之外，监听者最后收到的必须是当前状态
+     */
+    @Test
+    public void concurrentPublishEndsOnCurrentState() throws InterruptedException {
+        for (int round = 0; round < 100; round++) {
+            ManualBatteryStateSource source = new ManualBatteryStateSource();
+            AtomicReference<BatteryState> last = new AtomicReference<>();
+            // 偶尔在回调里停一下，让其它线程的分发先送达
+            source.addListener(state -> {
+                if (ThreadLocalRandom.current().nextInt(8) == 0) {
+                    LockSupport.parkNanos(10_000);
+                }
+                last.set(state);
+            });
+            CountDownLatch start = new CountDownLatch(1);
+            Thread[] producers = new Thread[4];
+            for (int t = 0; t < producers.length; t++) {
+                int base = t * 1000;
+                producers[t] = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < 200; i++) {
+                        source.setState(base + i, 4000, false);
+                    }
+                });
+                producers[t].start();
+            }
+            start.countDown();
+            for (Thread producer : producers) {
+                producer.join();
+            }
+            assertEquals(source.getState(), last.get());
+        }
+    }
+
+    /**
+     * 修改等级时按系统电量直接刷新，之后再设置同样的电量不能被当成没有变化
+     */
+    @Test
+    public void setPowerAfterLevelsChangeIsApplied() {
+        ManualBatteryStateSource source = new ManualBatteryStateSource(
+                new BatteryState(30, 100, BatteryManager.BATTERY_STATUS_DISCHARGING));
+        BatteryView view = attach(source);
+        view.setPower(80);
+        assertEquals(80, view.getBatteryDrawable().getPower());
+
+        view.setLevels(5);
+        assertEquals(40, view.getBatteryDrawable().getPower());
+        view.setPower(80);
+        assertEquals(80, view.getBatteryDrawable().getPower());
+    }
+
+    @Test
+    public void simulatedSourceDrivesView() {
+        SimulatedBatteryStateSource source = SimulatedBatteryStateSource.chargeCycle(100);
+        BatteryView view = attach(source);
+        assertTrue(view.isCharging());
+        assertEquals(0, view.getBatteryDrawable().getPower());
+
+        for (int i = 0; i < 100; i++) {
+            source.step();
+        }
+        shadowOf(getMainLooper()).idleFor(Duration.ofMillis(100));
+        // 第 100 步开始放电，电量 100
+        assertFalse(view.isCharging());
+        assertEquals(100, view.getBatteryDrawable().getPower());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void chargeCycleRejectsZeroScale() {
+        SimulatedBatteryStateSource.chargeCycle(0);
+    }
+
+    /**
+     * 相同的广播只在 publish 中过滤一次，分发次数只统计真正分发的
+     */
+    @Test
+    public void hubCountsOnlyDispatchedStates() {
+        BatteryStateHub hub = BatteryStateHub.getInstance(ApplicationProvider.getApplicationContext());
+        AtomicInteger received = new AtomicInteger();
+        BatteryStateSource.Listener listener = state -> received.incrementAndGet();
+        hub.setState(null);
+        hub.addListener(listener);
+        received.set(0);
+        int dispatched = hub.getDispatchedCount();
+
+        hub.dispatch(new BatteryState(40, 100, BatteryManager.BATTERY_STATUS_DISCHARGING));
+        hub.dispatch(new BatteryState(40, 100, BatteryManager.BATTERY_STATUS_DISCHARGING));
+        hub.dispatch(new BatteryState(41, 100, BatteryManager.BATTERY_STATUS_DISCHARGING));
+        assertEquals(dispatched + 2, hub.getDispatchedCount());
+        assertEquals(2, received.get());
+
+        hub.removeListener(listener);
+        // 不影响其它测试
+        hub.setState(null);
+    }
+
+    @Test
+    public void pausesBelowStarted() {
+        TestLifecycleOwner owner = new TestLifecycleOwner();
+        owner.registry.setCurrentState(Lifecycle.State.RESUMED);
+        ManualBatteryStateSource source = new ManualBatteryStateSource(
+                new BatteryState(50, 100, BatteryManager.BATTERY_STATUS_DISCHARGING));
+        Activity activity = Robolectric.buildActivity(Activity.class).setup().get();
+        BatteryView view = new BatteryView(activity);
+        view.setLifecycleOwner(owner);
+        view.setBatteryStateSource(source);
+        activity.setContentView(view);
+        shadowOf(getMainLooper()).idle();
+        assertTrue(source.isActive());
+        assertTrue(view.getBatteryDrawable().isVisible());
+
+        owner.registry.setCurrentState(Lifecycle.State.CREATED);
+        assertFalse(source.isActive());
+        assertFalse(view.getBatteryDrawable().isVisible());
+
+        // 停止期间的更新不会收到，恢复时立即刷新到最新状态
+        source.setState(80, 100, false);
+        owner.registry.setCurrentState(Lifecycle.State.STARTED);
+        assertTrue(source.isActive());
+        assertTrue(view.getBatteryDrawable().isVisible());
+        assertEquals(80, view.getBatteryDrawable().getPower());
+    }
+
+    @Test
+    public void resubscribesAfterReattach() {
+        ManualBatteryStateSource source = new ManualBatteryStateSource(
+                new BatteryState(50, 100, BatteryManager.BATTERY_STATUS_DISCHARGING));
+        BatteryView view = attach(source);
+        ViewGroup parent = (ViewGroup) view.getParent();
+        parent.removeView(view);
+        assertFalse(source.isActive());
+        source.setState(30, 100, false);
+        parent.addView(view);
+        assertTrue(source.isActive());
+        assertEquals(30, view.getBatteryDrawable().getPower());
+    }
+
+    private static final class TestLifecycleOwner implements LifecycleOwner {
+        final LifecycleRegistry registry = new LifecycleRegistry(this);
+
+        @Override
+        public Lifecycle getLifecycle() {
+            return registry;
+        }
+    }
+
+    @Test
+    public void unsubscribesOnDetach() {
+        ManualBatteryStateSource source = new ManualBatteryStateSource();
+        BatteryView view = attach(source);
+        assertTrue(source.isActive());
+        ((ViewGroup) view.getParent()).removeView(view);
+        assertFalse(source.isActive());
+    }
+}
@@ -0,0 +1,161 @@
+package com.zhumj.batteryview;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * @Description : 预计时间测试：用可以重放的采样序列代替电量广播，不需要设备
+ */
+public class BatteryTimeEstimatorTest {
+
+    private static final long MINUTE = 60_000;
+
+    /**
+     * 按固定速率变化的采样序列，电量取整数部分，和系统广播一样只在整数变化时才看得出变化
+     */
+    private static final class Feed {
+        long time;
+        double level;
+        final int scale;
+
+        Feed(long time, double level, int scale) {
+            this.time = time;
+            this.level = level;
+            this.scale = scale;
+        }
+
+        /**
+         * 每 interval 毫秒一个采样，电量每分钟变化 perMinute（以 scale 为单位），持续 duration 毫秒
+         */
+        void replay(BatteryTimeEstimator estimator, long duration, long interval, double perMinute, boolean charging) {
+            long end = time + duration;
+            while (time < end) {
+                time += interval;
+                level += perMinute * interval / MINUTE;
+                estimator.onSample(time, (int) Math.floor(level + 1e-9), scale, charging);
+            }
+        }
+    }
+
+    private static void assertNear(double expected, double actual, double tolerance) {
+        assertTrue("expected " + expected + " but was " + actual, Math.abs(expected - actual) <= expected * tolerance);
+    }
+
+    @Test
+    public void steadyDischarge() {
+        BatteryTimeEstimator estimator = new BatteryTimeEstimator();
+        Feed feed = new Feed(0, 80, 100);
+        // 每 6 分钟掉 1%，每 30 秒一个采样
+        feed.replay(estimator, 120 * MINUTE, 30_000, -1 / 6.0, false);
+        assertEquals(BatteryTimeEstimator.UNKNOWN, estimator.getTimeToFull());
+        assertNear(10, estimator.getPercentPerHour(), 0.01);
+        // 剩余 60%，还能用 6 小时
+        assertNear(360 * MINUTE, estimator.getTimeToEmpty(), 0.02);
+    }
+
+    @Test
+    public void followsRateChange() {
+        BatteryTimeEstimator estimator = new BatteryTimeEstimator(10 * MINUTE);
+        Feed feed = new Feed(0, 90, 100);
+        feed.replay(estimator, 120 * MINUTE, 30_000, -1 / 6.0, false);
+        // 速率变成三倍，三个半衰期之后旧速率只剩 1/8 的权重
+        feed.replay(estimator, 30 * MINUTE, 30_000, -1 / 2.0, false);
+        float rate = estimator.getPercentPerHour();
+        assertTrue("rate " + rate, rate > 26 && rate <= 30.5);
+    }
+
+    @Test
+    public void stalledLevelSlowsEstimate() {
+        BatteryTimeEstimator estimator = new BatteryTimeEstimator();
+        Feed feed = new Feed(0, 50, 100);
+        feed.replay(estimator, 60 * MINUTE, 30_000, -1 / 6.0, false);
+        long before = estimator.getTimeToEmpty();
+        // 一个小时没有变化，说明至少比一格一小时还慢
+        feed.replay(estimator, 60 * MINUTE, 30_000, 0, false);
+        long after = estimator.getTimeToEmpty();
+        assertTrue(before + " -> " + after, after >= before * 5);
+    }
+
+    @Test
+    public void chargingFlipRestarts() {
+        BatteryTimeEstimator estimator = new BatteryTimeEstimator();
+        Feed feed = new Feed(0, 60, 100);
+        feed.replay(estimator, 60 * MINUTE, 30_000, -1 / 6.0, false);
+        assertTrue(estimator.getTimeToEmpty() > 0);
+
+        // 插上充电器，之前的放电速率作废
+        Feed charge = new Feed(feed.time, 50, 100);
+        estimator.onSample(charge.time, 50, 100, true);
+        assertEquals(BatteryTimeEstimator.UNKNOWN, estimator.getTimeToFull());
+        assertEquals(BatteryTimeEstimator.UNKNOWN, estimator.getTimeToEmpty());
+        assertEquals(0, estimator.getPercentPerHour(), 0);
+        // 第一次变化只作为起点
+        charge.replay(estimator, 90_000, 30_000, 1, true);
+        assertEquals(BatteryTimeEstimator.UNKNOWN, estimator.getTimeToFull());
+        // 每分钟 1%
+        charge.replay(estimator, 20 * MINUTE, 30_000, 1, true);
+        assertNear((100 - (int) charge.level) * MINUTE, estimator.getTimeToFull(), 0.05);
+
+        charge.replay(estimator, 30 * MINUTE, 30_000, 1, true);
+        estimator.onSample(charge.time + 1, 100, 100, true);
+        assertEquals(0, estimator.getTimeToFull());
+    }
+
+    @Test
+    public void scaleChangeKeepsRate() {
+        BatteryTimeEstimator estimator = new BatteryTimeEstimator();
+        Feed feed = new Feed(0, 80, 100);
+        feed.replay(estimator, 60 * MINUTE, 30_000, -1 / 6.0, false);
+        long before = estimator.getTimeToEmpty();
+        // 同一个电量换成千分比
+        estimator.onSample(feed.time + 1, (int) feed.level * 10, 1000, false);
+        assertNear(before, estimator.getTimeToEmpty(), 0.1);
+        Feed fine = new Feed(feed.time + 1, (int) feed.level * 10, 1000);
+        fine.replay(estimator, 60 * MINUTE, 30_000, -10 / 6.0, false);
+        assertNear(10, estimator.getPercentPerHour(), 0.02);
+    }
+
+    @Test
+    public void listenerGetsChanges() {
+        BatteryTimeEstimator estimator = new BatteryTimeEstimator();
+        long[] last = {0, 0};
+        int[] calls = {0};
+        estimator.setOnEstimateChangeListener((timeToFull, timeToEmpty) -> {
+            calls[0]++;
+            last[0] = timeToFull;
+            last[1] = timeToEmpty;
+        });
+        Feed feed = new Feed(0, 80, 100);
+        feed.replay(estimator, 60 * MINUTE, 30_000, -1 / 6.0, false);
+        assertTrue(calls[0] > 0);
+        assertEquals(estimator.getTimeToFull(), last[0]);
+        assertEquals(estimator.getTimeToEmpty(), last[1]);
+
+        estimator.reset();
+        assertEquals(BatteryTimeEstimator.UNKNOWN, last[1]);
+    }
+
+    @Test
+    public void sampleDoesNotAllocate() {
+        BatteryTimeEstimator estimator = new BatteryTimeEstimator();
+        estimator.setOnEstimateChangeListener((timeToFull, timeToEmpty) -> Benchmark.sink += timeToEmpty);
+        // 先让 JIT 编译完
+        for (int round = 0; round < 5; round++) {
+            sawtooth(estimator, round * 100_000, 100_000);
+        }
+        long start = Benchmark.allocatedBytes();
+        sawtooth(estimator, 500_000, 100_000);
+        assertEquals(0, Benchmark.allocatedBytes() - start);
+    }
+
+    /**
+     * 每 100 秒变化 1%，放电和充电交替，每个采样间隔 1 秒
+     */
+    private static void sawtooth(BatteryTimeEstimator estimator, int from, int count) {
+        for (int i = from; i < from + count; i++) {
+            estimator.onSample(i * 1000L, 100 - (i / 100) % 100, 100, (i / 10_000) % 2 == 0);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.zhumj.batteryview;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.graphics.Color;
+import android.graphics.drawable.Drawable;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.LooperMode;
+import org.robolectric.shadows.ShadowSystemClock;
+
+import java.time.Duration;
+
+/**
+ * @Description : 过渡动画测试：帧率上限、到达目标后停止、每帧不分配对象
+ */
+@RunWith(RobolectricTestRunner.class)
+@LooperMode(LooperMode.Mode.PAUSED)
+public class BatteryTransitionTest {
+
+    /**
+     * 记录 Drawable 安排的下一帧，由测试手动执行
+     */
+    private static final class FrameCallback implements Drawable.Callback {
+        Runnable next;
+        long nextTime;
+        int frames;
+
+        @Override
+        public void invalidateDrawable(@NonNull Drawable who) {
+        }
+
+        @Override
+        public void scheduleDrawable(@NonNull Drawable who, @NonNull Runnable what, long when) {
+            next = what;
+            nextTime = when;
+            frames++;
+        }
+
+        @Override
+        public void unscheduleDrawable(@NonNull Drawable who, @NonNull Runnable what) {
+            if (next == what) {
+                next = null;
+            }
+        }
+
+        /**
+         * 时间前进到下一帧并执行
+         */
+        void runNext() {
+            Runnable task = next;
+            next = null;
+            ShadowSystemClock.advanceBy(Duration.ofMillis(nextTime - SystemClock.uptimeMillis()));
+            task.run();
+        }
+    }
+
+    private static BatteryDrawable createDrawable(FrameCallback callback, int duration, int maxFps) {
+        BatteryDrawable drawable = new BatteryDrawable(new BatteryStyle.Builder()
+                .setTransitionDuration(duration)
+                .setTransitionMaxFps(maxFps)
+                .build());
+        drawable.setBounds(0, 0, drawable.getIntrinsicWidth(), drawable.getIntrinsicHeight());
+        drawable.setCallback(callback);
+        return drawable;
+    }
+
+    @Test
+    public void framesAreCappedAndStopAtTarget() {
+        FrameCallback callback = new FrameCallback();
+        BatteryDrawable drawable = createDrawable(callback, 500, 20);
+        drawable.setPower(30);
+        assertTrue(drawable.isTransitioning());
+        assertEquals(30, drawable.getPower());
+
+        long start = SystemClock.uptimeMillis();
+        while (callback.next != null) {
+            assertTrue(callback.nextTime - SystemClock.uptimeMillis() >= 50);
+            callback.runNext();
+        }
+        assertFalse(drawable.isTransitioning());
+        assertTrue(SystemClock.uptimeMillis() - start >= 500);
+        // 500ms、20fps 最多 10 帧
+        assertEquals(10, callback.frames);
+    }
+
+    @Test
+    public void disabledWithoutDuration() {
+        FrameCallback callback = new FrameCallback();
+        BatteryDrawable drawable = createDrawable(callback, 0, 30);
+        drawable.setPower(30);
+        assertFalse(drawable.isTransitioning());
+        assertNull(callback.next);
+    }
+
+    @Test
+    public void chargingColorIsInterpolated() {
+        FrameCallback callback = new FrameCallback();
+        BatteryDrawable drawable = createDrawable(callback, 300, 30);
+        drawable.setChargingAnimMode(BatteryView.STEP);
+        drawable.setCharging(true);
+        assertTrue(drawable.isTransitioning());
+        assertNotNull(callback.next);
+        assertEquals(Color.BLACK, BatteryColorTable.blendColor(Color.BLACK, Color.GREEN, 0f));
+        assertEquals(Color.GREEN, BatteryColorTable.blendColor(Color.BLACK, Color.GREEN, 1f));
+        assertEquals(Color.argb(255, 0, 128, 0), BatteryColorTable.blendColor(Color.BLACK, Color.GREEN, 0.5f));
+    }
+
+    /**
+     * 过渡中每一帧的计算和绘制都不分配对象
+     */
+    @Test
+    public void framesAllocateNothing() {
+        FrameCallback callback = new FrameCallback();
+        BatteryDrawable drawable = createDrawable(callback, 100_000, 60);
+        NoOpCanvas canvas = new NoOpCanvas();
+        drawable.setPower(10);
+        // 时长足够长，不推进时钟也一直处于过渡中，推进模拟时钟本身会分配对象
+        for (int i = 0; i < 100; i++) {
+            callback.next.run();
+            drawable.draw(canvas);
+        }
+        long start = Benchmark.allocatedBytes();
+        for (int i = 0; i < 1000; i++) {
+            callback.next.run();
+            drawable.draw(canvas);
+        }
+        assertEquals(0, Benchmark.allocatedBytes() - start);
+        assertTrue(drawable.isTransitioning());
+    }
+}
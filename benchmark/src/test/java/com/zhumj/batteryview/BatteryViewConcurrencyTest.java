@@ -0,0 +1,125 @@
+package com.zhumj.batteryview;
+
+import static android.os.Looper.getMainLooper;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.app.Activity;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.LooperMode;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * @Description : 多线程同时调用 setPower、setCharging、setMaxPower 的压力测试，各字段的更新互不覆盖
+ */
+@RunWith(RobolectricTestRunner.class)
+@LooperMode(LooperMode.Mode.PAUSED)
+public class BatteryViewConcurrencyTest {
+
+    private static final int THREADS_PER_FIELD = 4;
+    private static final int WRITES = 20_000;
+
+    private static BatteryView attach() {
+        Activity activity = Robolectric.buildActivity(Activity.class).setup().get();
+        BatteryView view = new BatteryView(activity);
+        view.setAutoDetect(false);
+        activity.setContentView(view);
+        shadowOf(getMainLooper()).idle();
+        return view;
+    }
+
+    @Test
+    public void concurrentWritersDoNotLoseFields() throws InterruptedException {
+        BatteryView view = attach();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS_PER_FIELD; t++) {
+            int seed = t;
+            // 每组线程只写一个字段，最后一次写入的值是确定的
+            threads.add(new Thread(() -> {
+                await(start);
+                for (int i = 0; i < WRITES; i++) {
+                    view.setPower((i * 7 + seed) % 150);
+                }
+                view.setPower(100);
+            }));
+            threads.add(new Thread(() -> {
+                await(start);
+                for (int i = 0; i < WRITES; i++) {
+                    view.setCharging((i + seed) % 2 == 0);
+                }
+                view.setCharging(true);
+            }));
+            threads.add(new Thread(() -> {
+                await(start);
+                for (int i = 0; i < WRITES; i++) {
+                    view.setMaxPower(100 + (i + seed) % 100);
+                }
+                view.setMaxPower(200);
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        // 设置的状态立即可见，显示的状态在下一帧才生效
+        assertTrue(view.isChargingRequested());
+
+        shadowOf(getMainLooper()).idleFor(Duration.ofMillis(100));
+        assertTrue(view.isCharging());
+        BatteryDrawable drawable = view.getBatteryDrawable();
+        assertEquals(200, drawable.getMaxPower());
+        assertTrue(drawable.isCharging());
+        assertEquals(drawable.verifyPower(100), drawable.getPower());
+    }
+
+    @Test
+    public void mainThreadWritesApplyImmediately() {
+        BatteryView view = attach();
+        view.setMaxPower(100);
+        view.setPower(37);
+        assertEquals(40, view.getBatteryDrawable().getPower());
+        view.setCharging(true);
+        assertTrue(view.getBatteryDrawable().isCharging());
+        assertTrue(view.isCharging());
+    }
+
+    /**
+     * 其它线程设置的充电状态生效前，isCharging 返回界面上显示的状态
+     */
+    @Test
+    public void isChargingReturnsAppliedState() throws InterruptedException {
+        BatteryView view = attach();
+        view.setCharging(false);
+        Thread writer = new Thread(() -> view.setCharging(true));
+        writer.start();
+        writer.join();
+        assertTrue(view.isChargingRequested());
+        assertFalse(view.isCharging());
+        assertFalse(view.getBatteryDrawable().isCharging());
+
+        shadowOf(getMainLooper()).idleFor(Duration.ofMillis(100));
+        assertTrue(view.isCharging());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
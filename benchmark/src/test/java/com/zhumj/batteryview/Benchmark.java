@@ -0,0 +1,153 @@
+package com.zhumj.batteryview;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * @Description : 简单的 JVM 基准测试工具
+ * 先预热，再分多轮计时，记录每次操作的耗时（中位数和最小值）和分配的字节数，
+ * 结果写成 JSON，方便在版本之间对比耗时和内存分配的变化。
+ */
+final class Benchmark {
+
+    interface Op {
+        void run(int i);
+    }
+
+    static final class Result {
+        final String name;
+        final long iterations;
+        final double medianNsPerOp;
+        final double minNsPerOp;
+        final double allocatedBytesPerOp;
+
+        Result(String name, long iterations, double medianNsPerOp, double minNsPerOp, double allocatedBytesPerOp) {
+            this.name = name;
+            this.iterations = iterations;
+            this.medianNsPerOp = medianNsPerOp;
+            this.minNsPerOp = minNsPerOp;
+            this.allocatedBytesPerOp = allocatedBytesPerOp;
+        }
+    }
+
+    static final class Metric {
+        final String name;
+        final String unit;
+        final double value;
+
+        Metric(String name, String unit, double value) {
+            this.name = name;
+            this.unit = unit;
+            this.value = value;
+        }
+    }
+
+    private static final int WARMUP_OPS = 2_000;
+    private static final int SAMPLES = 10;
+    private static final int OPS_PER_SAMPLE = 1_000;
+
+    //防止 JIT 把结果没被使用的计算优化掉
+    static volatile long sink;
+
+    private final String suite;
+    private final List<Result> results = new ArrayList<>();
+    private final List<Metric> metrics = new ArrayList<>();
+
+    Benchmark(String suite) {
+        this.suite = suite;
+    }
+
+    Result measure(String name, Op op) {
+        return measure(name, OPS_PER_SAMPLE, op);
+    }
+
+    Result measure(String name, int opsPerSample, Op op) {
+        for (int i = 0; i < WARMUP_OPS; i++) {
+            op.run(i);
+        }
+        long[] samples = new long[SAMPLES];
+        long allocated = 0;
+        int index = 0;
+        for (int s = 0; s < SAMPLES; s++) {
+            long allocatedStart = allocatedBytes();
+            long start = System.nanoTime();
+            for (int i = 0; i < opsPerSample; i++) {
+                op.run(index++);
+            }
+            samples[s] = System.nanoTime() - start;
+            allocated += allocatedBytes() - allocatedStart;
+        }
+        Arrays.sort(samples);
+        long iterations = (long) SAMPLES * opsPerSample;
+        Result result = new Result(name, iterations,
+                (double) samples[SAMPLES / 2] / opsPerSample,
+                (double) samples[0] / opsPerSample,
+                (double) allocated / iterations);
+        results.add(result);
+        System.out.println(String.format(Locale.US, "%s.%s: %.1f ns/op (min %.1f), %.1f B/op",
+                suite, name, result.medianNsPerOp, result.minNsPerOp, result.allocatedBytesPerOp));
+        return result;
+    }
+
+    /**
+     * 记录一个不是按次计时的指标，比如常驻内存
+     */
+    void record(String name, String unit, double value) {
+        metrics.add(new Metric(name, unit, value));
+        System.out.println(String.format(Locale.US, "%s.%s: %.1f %s", suite, name, value, unit));
+    }
+
+    /**
+     * GC 之后堆中已使用的字节数
+     */
+    static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * 当前线程累计分配的字节数
+     */
+    static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * 把结果写到 benchmark.output 目录下的 <suite>.json
+     */
+    void writeJson() throws IOException {
+        File dir = new File(System.getProperty("benchmark.output", "build/benchmark-results"));
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        try (Writer writer = new FileWriter(new File(dir, suite + ".json"))) {
+            writer.write("{\n  \"suite\": \"" + suite + "\",\n  \"benchmarks\": [\n");
+            for (int i = 0; i < results.size(); i++) {
+                Result r = results.get(i);
+                writer.write(String.format(Locale.US,
+                        "    {\"name\": \"%s\", \"iterations\": %d, \"medianNsPerOp\": %.2f, \"minNsPerOp\": %.2f, \"allocatedBytesPerOp\": %.2f}%s\n",
+                        r.name, r.iterations, r.medianNsPerOp, r.minNsPerOp, r.allocatedBytesPerOp,
+                        i < results.size() - 1 ? "," : ""));
+            }
+            writer.write("  ],\n  \"metrics\": [\n");
+            for (int i = 0; i < metrics.size(); i++) {
+                Metric m = metrics.get(i);
+                writer.write(String.format(Locale.US,
+                        "    {\"name\": \"%s\", \"unit\": \"%s\", \"value\": %.2f}%s\n",
+                        m.name, m.unit, m.value, i < metrics.size() - 1 ? "," : ""));
+            }
+            writer.write("  ]\n}\n");
+        }
+    }
+}